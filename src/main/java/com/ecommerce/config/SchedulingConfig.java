@@ -0,0 +1,10 @@
+package com.ecommerce.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background jobs such as folding hot-SKU stock shards back into the product rows
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
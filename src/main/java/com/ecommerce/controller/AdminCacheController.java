@@ -0,0 +1,54 @@
+package com.ecommerce.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/cache")
+@Tag(name = "Admin Cache", description = "Admin-only cache monitoring endpoints")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminCacheController {
+
+    private final CacheManager cacheManager;
+
+    public AdminCacheController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get hit/miss/eviction statistics per cache (Admin only)")
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        Map<String, Map<String, Object>> response = new LinkedHashMap<>();
+
+        for (String name : cacheManager.getCacheNames()) {
+            if (!(cacheManager.getCache(name) instanceof CaffeineCache cache)) {
+                continue;
+            }
+
+            CacheStats stats = cache.getNativeCache().stats();
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            cacheStats.put("size", cache.getNativeCache().estimatedSize());
+            cacheStats.put("hitCount", stats.hitCount());
+            cacheStats.put("missCount", stats.missCount());
+            cacheStats.put("hitRate", stats.hitRate());
+            cacheStats.put("evictionCount", stats.evictionCount());
+            response.put(name, cacheStats);
+        }
+
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,29 +1,35 @@
 package com.ecommerce.controller;
 
-import java.util.Comparator;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.ecommerce.dto.OrderItemResponseDTO;
+import com.ecommerce.dto.BulkStatusUpdateRequestDTO;
+import com.ecommerce.dto.BulkStatusUpdateResultDTO;
 import com.ecommerce.dto.OrderResponseDTO;
 import com.ecommerce.model.Order;
 import com.ecommerce.model.OrderStatus;
 import com.ecommerce.service.EnhancedOrderService;
+import com.ecommerce.service.OrderFulfillmentService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 
 @RestController
 @RequestMapping("/admin/orders")
@@ -32,31 +38,24 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 public class AdminOrderController {
 
     private final EnhancedOrderService orderService;
+    private final OrderFulfillmentService fulfillmentService;
 
-    public AdminOrderController(EnhancedOrderService orderService) {
+    public AdminOrderController(EnhancedOrderService orderService, OrderFulfillmentService fulfillmentService) {
         this.orderService = orderService;
+        this.fulfillmentService = fulfillmentService;
     }
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get all orders (Admin only)")
+    @Operation(summary = "Get the newest orders, optionally by status and creation time (Admin only)",
+               description = "Returns at most limit orders; use /paginated to go further back")
     public ResponseEntity<List<OrderResponseDTO>> getAllOrders(
-            @RequestParam(required = false) OrderStatus status) {
-        
-        List<Order> orders = orderService.getAllOrders();
-        
-        // Filter by status if provided
-        if (status != null) {
-            orders = orders.stream()
-                    .filter(order -> order.getStatus() == status)
-                    .collect(Collectors.toList());
-        }
-        
-        List<OrderResponseDTO> dtos = orders.stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "100") int limit) {
         
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(orderService.getOrdersPage(status, from, to, false, null, null, limit).getContent());
     }
 
     @PutMapping("/{orderId}/status")
@@ -67,100 +66,61 @@ public class AdminOrderController {
             @RequestParam OrderStatus status) {
         
         Order order = orderService.updateOrderStatus(orderId, status);
-        return ResponseEntity.ok(convertToResponseDTO(order));
+        return ResponseEntity.ok(OrderResponseDTO.from(order));
     }
 
-    @GetMapping("/status/{status}")
+    @PostMapping("/status/bulk")
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get orders by status (Admin only)")
-    public ResponseEntity<List<OrderResponseDTO>> getOrdersByStatus(@PathVariable OrderStatus status) {
-        List<Order> orders = orderService.getAllOrders().stream()
-                .filter(order -> order.getStatus() == status)
-                .collect(Collectors.toList());
-        
-        List<OrderResponseDTO> dtos = orders.stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(dtos);
+    @Operation(summary = "Move many orders to a fulfillment status (Admin only)",
+               description = "Takes orderIds, or currentStatus with an optional created_at range [from, to). " +
+                             "Only PROCESSING, SHIPPED and DELIVERED can be set in bulk; orders that cannot " +
+                             "make the step are listed in rejected")
+    public ResponseEntity<BulkStatusUpdateResultDTO> updateOrderStatuses(
+            @Valid @RequestBody BulkStatusUpdateRequestDTO request) {
+        return ResponseEntity.ok(fulfillmentService.updateStatuses(request));
     }
 
-    private OrderResponseDTO convertToResponseDTO(Order order) {
-        List<OrderItemResponseDTO> itemDTOs = order.getOrderItems().stream().map(item -> {
-            return new OrderItemResponseDTO(
-                item.getProduct().getId(),
-                item.getProduct().getName(),
-                item.getPrice(),
-                item.getQuantity()
-            );
-        }).collect(Collectors.toList());
-
-        return new OrderResponseDTO(
-            order.getId(),
-            order.getUser().getId(),
-            order.getCreatedAt(),
-            order.getPaidAt(),
-            order.getTotalPrice(),
-            order.getStatus(),
-            itemDTOs
-        );
+    @GetMapping("/status/{status}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get the newest orders with a status (Admin only)")
+    public ResponseEntity<List<OrderResponseDTO>> getOrdersByStatus(
+            @PathVariable OrderStatus status,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(orderService.getOrdersPage(status, null, null, false, null, null, limit).getContent());
     }
     
     @GetMapping("/paginated")
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get all orders with pagination (Admin only)")
+    @Operation(summary = "Get orders with keyset pagination (Admin only)",
+               description = "Filters by status and created_at in [from, to). Pass after=<createdAt,id> " +
+                             "(the nextCursor of the previous page) for the next page")
     public ResponseEntity<Map<String, Object>> getAllOrdersPaginated(
             @RequestParam(required = false) OrderStatus status,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortOrder) {
+            @RequestParam(defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String after) {
         
-        List<Order> allOrders = orderService.getAllOrders();
+        KeysetCursor cursor = KeysetCursor.parse(after, "createdAt");
+        LocalDateTime afterCreatedAt = cursor == null ? null : cursor.createdAt();
+        Long afterId = cursor == null ? null : cursor.id();
         
-        // Filter by status if provided
-        if (status != null) {
-            allOrders = allOrders.stream()
-                    .filter(order -> order.getStatus() == status)
-                    .collect(Collectors.toList());
-        }
-        
-        // Sort
-        Comparator<Order> comparator;
-        switch (sortBy) {
-            case "totalPrice":
-                comparator = Comparator.comparing(Order::getTotalPrice);
-                break;
-            case "createdAt":
-            default:
-                comparator = Comparator.comparing(Order::getCreatedAt);
-                break;
-        }
+        boolean ascending = sortOrder.equalsIgnoreCase("asc");
+        Slice<OrderResponseDTO> slice = orderService.getOrdersPage(status, from, to, ascending, afterCreatedAt, afterId, size);
         
-        if (sortOrder.equalsIgnoreCase("desc")) {
-            comparator = comparator.reversed();
+        List<OrderResponseDTO> pageContent = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !pageContent.isEmpty()) {
+            OrderResponseDTO last = pageContent.get(pageContent.size() - 1);
+            nextCursor = KeysetCursor.of(last.getCreatedAt(), last.getOrderId());
         }
         
-        allOrders.sort(comparator);
-        
-        // Paginate
-        int start = page * size;
-        int end = Math.min(start + size, allOrders.size());
-        
-        List<Order> pageContent = start < allOrders.size() 
-            ? allOrders.subList(start, end) 
-            : List.of();
-        
-        List<OrderResponseDTO> dtos = pageContent.stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
-        
         Map<String, Object> response = new HashMap<>();
-        response.put("content", dtos);
-        response.put("currentPage", page);
-        response.put("totalItems", allOrders.size());
-        response.put("totalPages", (int) Math.ceil((double) allOrders.size() / size));
-        response.put("pageSize", size);
+        response.put("content", pageContent);
+        response.put("pageSize", slice.getSize());
+        response.put("hasNext", slice.hasNext());
+        response.put("nextCursor", nextCursor);
         
         return ResponseEntity.ok(response);
     }
@@ -0,0 +1,67 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.model.ProductStockShard;
+import com.ecommerce.service.StockShardService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/stock")
+@Tag(name = "Admin Stock", description = "Admin-only stock management endpoints")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminStockController {
+
+    private final StockShardService stockShardService;
+
+    public AdminStockController(StockShardService stockShardService) {
+        this.stockShardService = stockShardService;
+    }
+
+    @GetMapping("/hot")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "List products in hot-SKU mode with their shard counts (Admin only)")
+    public ResponseEntity<Map<Long, Integer>> getHotProducts() {
+        return ResponseEntity.ok(stockShardService.getHotProducts());
+    }
+
+    @GetMapping("/hot/{productId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get the stock shards of a hot product (Admin only)")
+    public ResponseEntity<List<ProductStockShard>> getShards(@PathVariable Long productId) {
+        return ResponseEntity.ok(stockShardService.getShards(productId));
+    }
+
+    @PostMapping("/hot/{productId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Split a product's stock across shards for a flash sale (Admin only)")
+    public ResponseEntity<List<ProductStockShard>> enableHotMode(
+            @PathVariable Long productId,
+            @RequestParam(defaultValue = "16") int shards) {
+        
+        return ResponseEntity.ok(stockShardService.enable(productId, shards));
+    }
+
+    @DeleteMapping("/hot/{productId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Fold a product's shards back into its stock (Admin only)")
+    public ResponseEntity<Map<String, Object>> disableHotMode(@PathVariable Long productId) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("productId", productId);
+        response.put("stock", stockShardService.disable(productId));
+        return ResponseEntity.ok(response);
+    }
+}
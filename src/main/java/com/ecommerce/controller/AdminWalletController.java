@@ -0,0 +1,71 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.DepositBatchDTO;
+import com.ecommerce.service.BulkDepositService;
+import com.ecommerce.service.WalletRetryExecutor;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/wallets")
+@Tag(name = "Admin Wallets", description = "Admin-only wallet monitoring and bulk deposit endpoints")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminWalletController {
+
+    private final WalletRetryExecutor walletRetry;
+    private final BulkDepositService bulkDepositService;
+
+    public AdminWalletController(WalletRetryExecutor walletRetry, BulkDepositService bulkDepositService) {
+        this.walletRetry = walletRetry;
+        this.bulkDepositService = bulkDepositService;
+    }
+
+    @GetMapping("/contention")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get retry and conflict counts for wallet balance updates since startup (Admin only)")
+    public ResponseEntity<Map<String, Object>> getContentionStats() {
+        return ResponseEntity.ok(walletRetry.getStats());
+    }
+
+    @PostMapping("/deposits")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Start a bulk deposit job; its rows are sent to /admin/wallets/deposits/{jobId} (Admin only)")
+    public ResponseEntity<DepositBatchDTO> createDepositBatch() {
+        DepositBatchDTO batch = bulkDepositService.createBatch();
+        return ResponseEntity.created(URI.create("/admin/wallets/deposits/" + batch.getJobId())).body(batch);
+    }
+
+    @PostMapping(value = "/deposits/{jobId}", consumes = {"text/csv", "application/x-ndjson", "text/plain", "application/octet-stream"})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Credit wallets from CSV or NDJSON rows of userId, amount and description (Admin only)",
+               description = "Rows are committed in chunks; if the upload breaks off, send the whole file again and rows up to lastLine are skipped")
+    public ResponseEntity<DepositBatchDTO> uploadDeposits(
+            @PathVariable Long jobId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            InputStream body) throws IOException {
+
+        BulkDepositService.Format depositFormat = ProductController.parseFormat(BulkDepositService.Format.class, format);
+        return ResponseEntity.ok(bulkDepositService.upload(jobId, depositFormat, body));
+    }
+
+    @GetMapping("/deposits/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get the progress of a bulk deposit job (Admin only)")
+    public ResponseEntity<DepositBatchDTO> getDepositBatch(@PathVariable Long jobId) {
+        return ResponseEntity.ok(bulkDepositService.getBatch(jobId));
+    }
+}
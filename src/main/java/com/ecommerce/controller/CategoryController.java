@@ -2,7 +2,8 @@ package com.ecommerce.controller;
 
 import com.ecommerce.dto.CategoryDTO;
 import com.ecommerce.model.Category;
-import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.service.CategoryService;
+import com.ecommerce.service.ProductSearchService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -10,22 +11,23 @@ import jakarta.validation.Valid;
 
 import java.net.URI;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/categories")
 public class CategoryController {
 
-    private final CategoryRepository categoryRepository;
+    private final CategoryService categoryService;
+    private final ProductSearchService productSearchService;
 
-    public CategoryController(CategoryRepository categoryRepository) {
-        this.categoryRepository = categoryRepository;
+    public CategoryController(CategoryService categoryService, ProductSearchService productSearchService) {
+        this.categoryService = categoryService;
+        this.productSearchService = productSearchService;
     }
 
     // Get all categories
     @GetMapping
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        return categoryService.getAllCategories();
     }
 
     // Create a new Category
@@ -34,32 +36,28 @@ public class CategoryController {
         Category category = new Category();
         category.setName(categoryDTO.getName());
 
-        Category savedCategory = categoryRepository.save(category);
+        Category savedCategory = categoryService.createCategory(category);
         return ResponseEntity.created(URI.create("/categories/" + savedCategory.getId())).body(savedCategory);
     }
 
     // Get Category by ID
     @GetMapping("/{id}")
     public Category getCategoryById(@PathVariable Long id) {
-        return categoryRepository.findById(id)
+        return categoryService.getCategoryById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found"));
     }
 
     // Update an existing Category
     @PutMapping("/{id}")
     public ResponseEntity<Category> updateCategory(@PathVariable Long id, @Valid @RequestBody CategoryDTO categoryDTO) {
-        Category category = categoryRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Category not found"));
-
-        category.setName(categoryDTO.getName());
-
-        return ResponseEntity.ok(categoryRepository.save(category));
+        return ResponseEntity.ok(categoryService.updateCategory(id, categoryDTO.getName()));
     }
 
     // Delete a Category
     @DeleteMapping("/{id}")
     public void deleteCategory(@PathVariable Long id) {
-        categoryRepository.deleteById(id);
+        categoryService.deleteCategory(id);
+        productSearchService.removeCategory(id);
     }
 }
 
@@ -1,11 +1,13 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.OrderJobDTO;
 import com.ecommerce.dto.OrderRequestDTO;
 import com.ecommerce.dto.OrderResponseDTO;
-import com.ecommerce.dto.OrderItemResponseDTO;
 import com.ecommerce.model.Order;
 import com.ecommerce.model.OrderStatus;
 import com.ecommerce.service.EnhancedOrderService;
+import com.ecommerce.service.IdempotencyService;
+import com.ecommerce.service.OrderJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -14,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -21,45 +24,89 @@ import java.util.List;
 public class EnhancedOrderController {
 
     private final EnhancedOrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final OrderJobService orderJobService;
 
-    public EnhancedOrderController(EnhancedOrderService orderService) {
+    public EnhancedOrderController(EnhancedOrderService orderService, IdempotencyService idempotencyService,
+                                   OrderJobService orderJobService) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
+        this.orderJobService = orderJobService;
     }
 
     @PostMapping
     @Operation(summary = "Create a new order (PENDING status)")
-    public ResponseEntity<OrderResponseDTO> createOrder(@Valid @RequestBody OrderRequestDTO orderRequestDTO) {
-        Order order = orderService.createOrder(orderRequestDTO);
-        return ResponseEntity.created(URI.create("/api/orders/" + order.getId()))
-                .body(convertToResponseDTO(order));
+    public ResponseEntity<?> createOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody OrderRequestDTO orderRequestDTO) {
+
+        return idempotencyService.execute(idempotencyKey, "POST /api/orders", orderRequestDTO, () -> {
+            Order order = orderService.createOrder(orderRequestDTO);
+            return ResponseEntity.created(URI.create("/api/orders/" + order.getId()))
+                    .body(OrderResponseDTO.from(order));
+        });
     }
 
     @PostMapping("/create-and-pay")
     @Operation(summary = "Create order and pay immediately")
-    public ResponseEntity<OrderResponseDTO> createAndPayOrder(@Valid @RequestBody OrderRequestDTO orderRequestDTO) {
-        Order order = orderService.createAndPayOrder(orderRequestDTO);
-        return ResponseEntity.created(URI.create("/api/orders/" + order.getId()))
-                .body(convertToResponseDTO(order));
+    public ResponseEntity<?> createAndPayOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody OrderRequestDTO orderRequestDTO) {
+
+        return idempotencyService.execute(idempotencyKey, "POST /api/orders/create-and-pay", orderRequestDTO, () -> {
+            Order order = orderService.createAndPayOrder(orderRequestDTO);
+            return ResponseEntity.created(URI.create("/api/orders/" + order.getId()))
+                    .body(OrderResponseDTO.from(order));
+        });
+    }
+
+    @PostMapping("/async")
+    @Operation(summary = "Accept an order for background processing; poll the returned job for the result")
+    public ResponseEntity<?> submitOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestParam(defaultValue = "false") boolean pay,
+            @Valid @RequestBody OrderRequestDTO orderRequestDTO) {
+
+        return idempotencyService.execute(idempotencyKey, "POST /api/orders/async?pay=" + pay, orderRequestDTO, () -> {
+            OrderJobDTO job = orderJobService.submit(orderRequestDTO, pay);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/orders/jobs/" + job.getJobId()))
+                    .body(job);
+        });
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get the status of an order accepted for background processing")
+    public ResponseEntity<OrderJobDTO> getOrderJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(orderJobService.getJob(jobId));
     }
 
     @PostMapping("/{orderId}/pay")
     @Operation(summary = "Pay for an existing order")
-    public ResponseEntity<OrderResponseDTO> payForOrder(
+    public ResponseEntity<?> payForOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @PathVariable Long orderId,
             @RequestParam Long userId) {
         
-        Order order = orderService.payForOrder(orderId, userId);
-        return ResponseEntity.ok(convertToResponseDTO(order));
+        return idempotencyService.execute(idempotencyKey, "POST /api/orders/" + orderId + "/pay",
+                Map.of("userId", userId), () -> {
+            Order order = orderService.payForOrder(orderId, userId);
+            return ResponseEntity.ok(OrderResponseDTO.from(order));
+        });
     }
 
     @PostMapping("/{orderId}/cancel")
     @Operation(summary = "Cancel an order (with refund if paid)")
-    public ResponseEntity<OrderResponseDTO> cancelOrder(
+    public ResponseEntity<?> cancelOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @PathVariable Long orderId,
             @RequestParam Long userId) {
         
-        Order order = orderService.cancelOrder(orderId, userId);
-        return ResponseEntity.ok(convertToResponseDTO(order));
+        return idempotencyService.execute(idempotencyKey, "POST /api/orders/" + orderId + "/cancel",
+                Map.of("userId", userId), () -> {
+            Order order = orderService.cancelOrder(orderId, userId);
+            return ResponseEntity.ok(OrderResponseDTO.from(order));
+        });
     }
 
     @PutMapping("/{orderId}/status")
@@ -69,50 +116,25 @@ public class EnhancedOrderController {
             @RequestParam OrderStatus status) {
         
         Order order = orderService.updateOrderStatus(orderId, status);
-        return ResponseEntity.ok(convertToResponseDTO(order));
+        return ResponseEntity.ok(OrderResponseDTO.from(order));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID")
     public ResponseEntity<OrderResponseDTO> getOrderById(@PathVariable Long id) {
         Order order = orderService.getOrderById(id);
-        return ResponseEntity.ok(convertToResponseDTO(order));
+        return ResponseEntity.ok(OrderResponseDTO.from(order));
     }
 
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get all orders for a user")
     public ResponseEntity<List<OrderResponseDTO>> getOrdersByUser(@PathVariable Long userId) {
-        List<Order> orders = orderService.getOrdersByUserId(userId);
-        List<OrderResponseDTO> dtos = orders.stream().map(this::convertToResponseDTO).toList();
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(orderService.getOrderResponsesByUserId(userId));
     }
 
     @GetMapping
     @Operation(summary = "Get all orders")
     public ResponseEntity<List<OrderResponseDTO>> getAllOrders() {
-        List<Order> orders = orderService.getAllOrders();
-        List<OrderResponseDTO> dtos = orders.stream().map(this::convertToResponseDTO).toList();
-        return ResponseEntity.ok(dtos);
-    }
-
-    private OrderResponseDTO convertToResponseDTO(Order order) {
-        List<OrderItemResponseDTO> itemDTOs = order.getOrderItems().stream().map(item -> {
-            return new OrderItemResponseDTO(
-                item.getProduct().getId(),
-                item.getProduct().getName(),
-                item.getPrice(),
-                item.getQuantity()
-            );
-        }).toList();
-
-        return new OrderResponseDTO(
-            order.getId(),
-            order.getUser().getId(),
-            order.getCreatedAt(),
-            order.getPaidAt(),
-            order.getTotalPrice(),
-            order.getStatus(),
-            itemDTOs
-        );
+        return ResponseEntity.ok(orderService.getAllOrderResponses());
     }
 }
@@ -0,0 +1,72 @@
+package com.ecommerce.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+// The after=<sortKey,id> cursor of keyset-paginated listings: the sort key and id of the last
+// row of the previous page. The id follows the last comma, since a sort key such as a product
+// name may contain commas itself. Anything malformed is the client's fault, so a 400.
+final class KeysetCursor {
+
+    private final String text;
+    private final String sortKey;
+    private final Long id;
+
+    private KeysetCursor(String text, String sortKey, Long id) {
+        this.text = text;
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    // Null when no cursor was sent, which asks for the first page
+    static KeysetCursor parse(String after, String sortKeyName) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        int separator = after.lastIndexOf(',');
+        if (separator < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor must look like <" + sortKeyName + ",id>");
+        }
+        try {
+            return new KeysetCursor(after, after.substring(0, separator), Long.valueOf(after.substring(separator + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw malformed(after);
+        }
+    }
+
+    // The cursor pointing past the given row, for the nextCursor of a page
+    static String of(Object sortKey, Long id) {
+        return sortKey + "," + id;
+    }
+
+    String sortKey() {
+        return sortKey;
+    }
+
+    Long id() {
+        return id;
+    }
+
+    LocalDateTime createdAt() {
+        try {
+            return LocalDateTime.parse(sortKey.trim());
+        } catch (DateTimeParseException e) {
+            throw malformed(text);
+        }
+    }
+
+    double number() {
+        try {
+            return Double.parseDouble(sortKey);
+        } catch (NumberFormatException e) {
+            throw malformed(text);
+        }
+    }
+
+    private static ResponseStatusException malformed(String after) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor: " + after);
+    }
+}
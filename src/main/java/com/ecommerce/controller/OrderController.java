@@ -1,28 +1,17 @@
 package com.ecommerce.controller;
 
-import com.ecommerce.dto.OrderItemDTO;
-import com.ecommerce.dto.OrderItemResponseDTO;
 import com.ecommerce.dto.OrderRequestDTO;
 import com.ecommerce.dto.OrderResponseDTO;
-import com.ecommerce.exception.InsufficientStockException;
-import com.ecommerce.exception.ResourceNotFoundException;
 import com.ecommerce.model.Order;
-import com.ecommerce.model.OrderItem;
-import com.ecommerce.model.Product;
-import com.ecommerce.model.User;
 import com.ecommerce.repository.OrderRepository;
-import com.ecommerce.repository.OrderItemRepository;
-import com.ecommerce.repository.ProductRepository;
-import com.ecommerce.repository.UserRepository;
-import jakarta.transaction.Transactional;
+import com.ecommerce.service.IdempotencyService;
+import com.ecommerce.service.OrderPlacementService;
 import jakarta.validation.Valid;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 
@@ -31,61 +20,27 @@ import java.util.List;
 public class OrderController {
 
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
-    private final ProductRepository productRepository;
-    private final UserRepository userRepository;
+    private final OrderPlacementService orderPlacementService;
+    private final IdempotencyService idempotencyService;
 
-    public OrderController(OrderRepository orderRepository, OrderItemRepository orderItemRepository, ProductRepository productRepository, UserRepository userRepository) {
+    public OrderController(OrderRepository orderRepository, OrderPlacementService orderPlacementService,
+                           IdempotencyService idempotencyService) {
         this.orderRepository = orderRepository;
-        this.orderItemRepository = orderItemRepository;
-        this.productRepository = productRepository;
-        this.userRepository = userRepository;
+        this.orderPlacementService = orderPlacementService;
+        this.idempotencyService = idempotencyService;
     }
 
     //Create Order
     @PostMapping
-    @Transactional
-    public ResponseEntity<OrderResponseDTO> createOrder(@Valid @RequestBody OrderRequestDTO orderRequestDTO) {
-        User user = userRepository.findById(orderRequestDTO.getUserId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        Order order = new Order();
-        order.setUser(user);
-        order.setCreatedAt(LocalDateTime.now());
-
-        List<OrderItem> orderItems = new ArrayList<>();
-        double totalPrice = 0.0;
-
-        for (OrderItemDTO itemDTO : orderRequestDTO.getOrderItems()) {
-            Product product = productRepository.findById(itemDTO.getProductId())
-            		.orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-
-            if (product.getStock() < itemDTO.getQuantity()) {
-            	 throw new InsufficientStockException("Not enough stock for product: " + product.getName());
-
-            }
-
-            // Decrease stock
-            product.setStock(product.getStock() - itemDTO.getQuantity());
-            productRepository.save(product); // persist the updated stock
-
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProduct(product);
-            orderItem.setQuantity(itemDTO.getQuantity());
-            orderItem.setPrice(product.getPrice());
-
-            totalPrice += product.getPrice() * itemDTO.getQuantity();
-            orderItems.add(orderItem);
-        }
-
-
-        order.setOrderItems(orderItems);
-        order.setTotalPrice(totalPrice);
-
-        Order savedOrder = orderRepository.save(order);
-        return ResponseEntity.created(URI.create("/orders/" + savedOrder.getId()))
-                .body(convertToResponseDTO(savedOrder));
+    public ResponseEntity<?> createOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody OrderRequestDTO orderRequestDTO) {
+
+        return idempotencyService.execute(idempotencyKey, "POST /orders", orderRequestDTO, () -> {
+            Order savedOrder = orderPlacementService.placeOrder(orderRequestDTO);
+            return ResponseEntity.created(URI.create("/orders/" + savedOrder.getId()))
+                    .body(OrderResponseDTO.from(savedOrder));
+        });
     }
 
 
@@ -93,18 +48,16 @@ public class OrderController {
     // Get Order by ID
     @GetMapping("/{id}")
     public ResponseEntity<OrderResponseDTO> getOrderById(@PathVariable Long id) {
-        Order order = orderRepository.findById(id)
+        Order order = orderRepository.findWithItemsById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        return ResponseEntity.ok(convertToResponseDTO(order));
+        return ResponseEntity.ok(OrderResponseDTO.from(order));
     }
 
     
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<OrderResponseDTO>> getOrdersByUser(@PathVariable Long userId) {
-        List<Order> orders = orderRepository.findByUserId(userId);
-        List<OrderResponseDTO> dtos = orders.stream().map(this::convertToResponseDTO).toList();
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(OrderResponseDTO.fromLines(orderRepository.findLinesByUserId(userId)));
     }
 
 
@@ -112,29 +65,7 @@ public class OrderController {
     // Get all Orders
     @GetMapping
     public ResponseEntity<List<OrderResponseDTO>> getAllOrders() {
-        List<Order> orders = orderRepository.findAll();
-        List<OrderResponseDTO> dtos = orders.stream().map(this::convertToResponseDTO).toList();
-        return ResponseEntity.ok(dtos);
-    }
-
-    
-    private OrderResponseDTO convertToResponseDTO(Order order) {
-        List<OrderItemResponseDTO> itemDTOs = order.getOrderItems().stream().map(item -> {
-            return new OrderItemResponseDTO(
-                item.getProduct().getId(),
-                item.getProduct().getName(),
-                item.getPrice(),
-                item.getQuantity()
-            );
-        }).toList();
-
-        return new OrderResponseDTO(
-            order.getId(),
-            order.getUser().getId(),
-            order.getCreatedAt(),
-            order.getTotalPrice(),
-            itemDTOs
-        );
+        return ResponseEntity.ok(OrderResponseDTO.fromLines(orderRepository.findAllLines()));
     }
 
 }
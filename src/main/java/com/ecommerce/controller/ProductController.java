@@ -1,7 +1,9 @@
 package com.ecommerce.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.util.Comparator;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,7 +12,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,13 +27,24 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.ecommerce.dto.AutocompleteSuggestionDTO;
+import com.ecommerce.dto.ProductBatchDTO;
 import com.ecommerce.dto.ProductDTO;
+import com.ecommerce.dto.ProductImportResultDTO;
+import com.ecommerce.dto.ProductSummaryDTO;
 import com.ecommerce.model.Category;
 import com.ecommerce.model.Product;
-import com.ecommerce.repository.CategoryRepository;
 import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.service.CategoryService;
+import com.ecommerce.service.ProductExportService;
+import com.ecommerce.service.ProductImportService;
 import com.ecommerce.service.ProductSearchService;
+import com.ecommerce.service.ProductService;
+import com.ecommerce.service.StockReservationService;
+import com.ecommerce.service.StockShardService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
@@ -39,22 +56,64 @@ public class ProductController {
 	@Autowired
 	private ProductSearchService productSearchService;
 	
+	@Autowired
+	private ProductExportService productExportService;
+	
+	@Autowired
+	private ProductImportService productImportService;
+	
+	@Autowired
+	private StockShardService stockShardService;
+	
+	@Autowired
+	private StockReservationService stockReservationService;
+	
     private final ProductRepository productRepository;
-    private final CategoryRepository categoryRepository;
+    private final ProductService productService;
+    private final CategoryService categoryService;
 
-    public ProductController(ProductRepository productRepository, CategoryRepository categoryRepository) {
+    public ProductController(ProductRepository productRepository, ProductService productService, CategoryService categoryService) {
         this.productRepository = productRepository;
-        this.categoryRepository = categoryRepository;
+        this.productService = productService;
+        this.categoryService = categoryService;
     }
 
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public List<ProductSummaryDTO> getAllProducts() {
+        return productService.getAllProducts();
     }
     
+    @GetMapping("/export")
+    @Operation(summary = "Stream the whole catalog as NDJSON or CSV",
+               description = "Rows are written as they are read from the database, so memory use does not grow with the catalog")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        ProductExportService.Format exportFormat = parseFormat(ProductExportService.Format.class, format);
+        MediaType contentType = exportFormat == ProductExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        String filename = "products." + format.toLowerCase();
+
+        StreamingResponseBody body = out -> productExportService.export(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson", "text/plain", "application/octet-stream"})
+    @Operation(summary = "Bulk import products from CSV or NDJSON",
+               description = "Rows with an id replace that product; invalid rows are skipped and reported with their line number")
+    public ResponseEntity<ProductImportResultDTO> importProducts(
+            @RequestParam(defaultValue = "csv") String format,
+            InputStream body) throws IOException {
+        
+        ProductImportService.Format importFormat = parseFormat(ProductImportService.Format.class, format);
+        return ResponseEntity.ok(productImportService.importProducts(importFormat, body));
+    }
+
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable Long categoryId) {
-        List<Product> products = productRepository.findByCategoryId(categoryId);
+    public ResponseEntity<List<ProductSummaryDTO>> getProductsByCategory(@PathVariable Long categoryId) {
+        List<ProductSummaryDTO> products = productService.getProductsByCategory(categoryId);
         if (products.isEmpty()) {
             return ResponseEntity.noContent().build(); // 204 No Content if no products
         }
@@ -63,16 +122,35 @@ public class ProductController {
 
 
     
+    @GetMapping("/batch")
+    @Operation(summary = "Get several products in one call",
+               description = "Products come back in the requested order; unknown ids are listed in missingIds")
+    public ResponseEntity<ProductBatchDTO> getProductsBatch(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Get several products in one call, ids in the request body")
+    public ResponseEntity<ProductBatchDTO> getProductsBatchFromBody(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
     @GetMapping("/{id}")
     public Product getProductById(@PathVariable Long id) {
-        return productRepository.findById(id)
+        return productService.getProductById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
     }
 
+    // Stock minus units held by pending orders, served from memory
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<Map<String, Object>> getAvailability(@PathVariable Long id) {
+        return ResponseEntity.ok(stockReservationService.getAvailability(id));
+    }
+
     //Create a new Product
     @PostMapping
     public ResponseEntity<Product> createProduct(@Valid @RequestBody ProductDTO productDTO) {
-        Category category = categoryRepository.findById(productDTO.getCategoryId())
+        Category category = categoryService.getCategoryById(productDTO.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Category not found"));
 
         Product product = new Product();
@@ -83,7 +161,8 @@ public class ProductController {
         product.setImageUrl(productDTO.getImageUrl());
         product.setCategory(category);
 
-        Product savedProduct = productRepository.save(product);
+        Product savedProduct = productService.saveProduct(product);
+        productSearchService.indexProduct(savedProduct);
 
         return ResponseEntity.created(URI.create("/products/" + savedProduct.getId())).body(savedProduct);
     }
@@ -104,39 +183,69 @@ public class ProductController {
         product.setImageUrl(productDTO.getImageUrl());
 
         if (productDTO.getCategoryId() != null) {
-            Category category = categoryRepository.findById(productDTO.getCategoryId())
+            Category category = categoryService.getCategoryById(productDTO.getCategoryId())
                     .orElseThrow(() -> new RuntimeException("Category not found"));
             product.setCategory(category);
         }
 
-        return ResponseEntity.ok(productRepository.save(product));
+        Product savedProduct = productService.saveProduct(product);
+        if (stockShardService.isHot(id)) {
+            // The shards hold the sellable units of a hot product
+            stockShardService.resetStock(id, savedProduct.getStock());
+        }
+        productSearchService.indexProduct(savedProduct);
+
+        return ResponseEntity.ok(savedProduct);
     }
 
     
     //Delete a Product
     @DeleteMapping("/{id}")
     public void deleteProduct(@PathVariable Long id) {
-    	productRepository.deleteById(id);
+    	productService.deleteProduct(id);
+    	productSearchService.removeProduct(id);
     }
     
     @GetMapping("/search")
-    @Operation(summary = "Search products by keyword")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String keyword) {
-        List<Product> products = productSearchService.quickSearch(keyword);
+    @Operation(summary = "Search products by keyword",
+               description = "Falls back to typo-tolerant matching when nothing matches exactly; fuzzy=true always matches approximately")
+    public ResponseEntity<List<ProductSummaryDTO>> searchProducts(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "false") boolean fuzzy) {
+        
+        List<ProductSummaryDTO> products = productSearchService.search(keyword, fuzzy);
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Typeahead suggestions for a product name prefix, most popular first")
+    public ResponseEntity<List<AutocompleteSuggestionDTO>> autocomplete(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        return ResponseEntity.ok(productSearchService.autocomplete(prefix, limit));
+    }
+
     @GetMapping("/filter")
-    @Operation(summary = "Advanced product search with filters")
-    public ResponseEntity<List<Product>> filterProducts(
+    @Operation(summary = "Advanced product search with filters",
+               description = "With facets=true the response also carries category counts, a price histogram and stock counts")
+    public ResponseEntity<?> filterProducts(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
             @RequestParam(required = false, defaultValue = "name") String sortBy,
-            @RequestParam(required = false, defaultValue = "asc") String sortOrder) {
+            @RequestParam(required = false, defaultValue = "asc") String sortOrder,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(defaultValue = "50") double priceInterval) {
         
-        List<Product> products = productSearchService.searchProducts(
+        if (facets) {
+            return ResponseEntity.ok(productSearchService.searchProductsWithFacets(
+                name, categoryId, minPrice, maxPrice, sortBy, sortOrder, priceInterval
+            ));
+        }
+        
+        List<ProductSummaryDTO> products = productSearchService.searchProducts(
             name, categoryId, minPrice, maxPrice, sortBy, sortOrder
         );
         
@@ -145,17 +254,17 @@ public class ProductController {
 
     @GetMapping("/price-range")
     @Operation(summary = "Get products by price range")
-    public ResponseEntity<List<Product>> getProductsByPriceRange(
+    public ResponseEntity<List<ProductSummaryDTO>> getProductsByPriceRange(
             @RequestParam Double minPrice,
             @RequestParam Double maxPrice) {
         
-        List<Product> products = productSearchService.getProductsByPriceRange(minPrice, maxPrice);
+        List<ProductSummaryDTO> products = productSearchService.getProductsByPriceRange(minPrice, maxPrice);
         return ResponseEntity.ok(products);
     }
     
     @GetMapping("/paginated")
     @Operation(summary = "Get products with pagination")
-    public ResponseEntity<Page<Product>> getProductsPaginated(
+    public ResponseEntity<Page<ProductSummaryDTO>> getProductsPaginated(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
@@ -166,7 +275,7 @@ public class ProductController {
             : Sort.by(sortBy).descending();
         
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Product> products = productRepository.findAll(pageable);
+        Page<ProductSummaryDTO> products = productService.getProductsPage(pageable);
         
         return ResponseEntity.ok(products);
     }
@@ -178,64 +287,82 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
-        List<Product> allResults = productSearchService.quickSearch(keyword);
+        // Only the ranked ids are sliced; products are resolved for the requested page alone
+        List<Long> rankedIds = productSearchService.quickSearchIds(keyword);
         
-        // Manual pagination
-        int start = page * size;
-        int end = Math.min(start + size, allResults.size());
+        int start = (int) Math.min((long) page * size, rankedIds.size());
+        int end = Math.min(start + size, rankedIds.size());
         
-        List<Product> pageContent = start < allResults.size() 
-            ? allResults.subList(start, end) 
-            : List.of();
+        List<ProductSummaryDTO> pageContent = productSearchService.getIndexedProducts(rankedIds.subList(start, end));
         
         Map<String, Object> response = new HashMap<>();
         response.put("content", pageContent);
         response.put("currentPage", page);
-        response.put("totalItems", allResults.size());
-        response.put("totalPages", (int) Math.ceil((double) allResults.size() / size));
+        response.put("totalItems", rankedIds.size());
+        response.put("totalPages", (int) Math.ceil((double) rankedIds.size() / size));
         response.put("pageSize", size);
         
         return ResponseEntity.ok(response);
     }
     
     @GetMapping("/category/{categoryId}/paginated")
-    @Operation(summary = "Get products by category with pagination")
+    @Operation(summary = "Get products by category with pagination",
+               description = "Pass after=<sortKey,id> (the nextCursor of the previous page) for keyset pagination")
     public ResponseEntity<Map<String, Object>> getProductsByCategoryPaginated(
             @PathVariable Long categoryId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortOrder) {
+            @RequestParam(defaultValue = "asc") String sortOrder,
+            @RequestParam(required = false) String after) {
         
-        List<Product> allProducts = productRepository.findByCategoryId(categoryId);
+        boolean byPrice = sortBy.equals("price");
+        boolean descending = sortOrder.equalsIgnoreCase("desc");
         
-        // Sort
-        Comparator<Product> comparator = sortBy.equals("price") 
-            ? Comparator.comparing(Product::getPrice)
-            : Comparator.comparing(Product::getName);
+        Map<String, Object> response = new HashMap<>();
+        Slice<ProductSummaryDTO> slice;
         
-        if (sortOrder.equalsIgnoreCase("desc")) {
-            comparator = comparator.reversed();
+        if (after != null && !after.isBlank()) {
+            // Keyset mode: seek past the cursor, so every page costs the same as the first
+            KeysetCursor cursor = KeysetCursor.parse(after, "sortKey");
+            if (byPrice) {
+                // A price key that is not a number gets a 400 here instead of failing in the query
+                cursor.number();
+            }
+            slice = productService.getProductsByCategoryAfter(categoryId, byPrice, descending, cursor.sortKey(), cursor.id(), size);
+        } else {
+            Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+            Sort sort = Sort.by(direction, byPrice ? "price" : "name").and(Sort.by(direction, "id"));
+            
+            Page<ProductSummaryDTO> products = productService.getProductsByCategory(categoryId, PageRequest.of(page, size, sort));
+            response.put("currentPage", page);
+            response.put("totalItems", products.getTotalElements());
+            response.put("totalPages", products.getTotalPages());
+            slice = products;
         }
         
-        allProducts.sort(comparator);
-        
-        // Paginate
-        int start = page * size;
-        int end = Math.min(start + size, allProducts.size());
-        
-        List<Product> pageContent = start < allProducts.size() 
-            ? allProducts.subList(start, end) 
-            : List.of();
+        List<ProductSummaryDTO> pageContent = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !pageContent.isEmpty()) {
+            ProductSummaryDTO last = pageContent.get(pageContent.size() - 1);
+            nextCursor = KeysetCursor.of(byPrice ? String.valueOf(last.getPrice()) : last.getName(), last.getId());
+        }
         
-        Map<String, Object> response = new HashMap<>();
         response.put("content", pageContent);
-        response.put("currentPage", page);
-        response.put("totalItems", allProducts.size());
-        response.put("totalPages", (int) Math.ceil((double) allProducts.size() / size));
         response.put("pageSize", size);
+        response.put("hasNext", slice.hasNext());
+        response.put("nextCursor", nextCursor);
         
         return ResponseEntity.ok(response);
     }
-     
+
+    // An unknown format is a bad request, not a missing resource
+    static <E extends Enum<E>> E parseFormat(Class<E> formats, String format) {
+        for (E candidate : formats.getEnumConstants()) {
+            if (candidate.name().equalsIgnoreCase(format)) {
+                return candidate;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown format: " + format);
+    }
 }
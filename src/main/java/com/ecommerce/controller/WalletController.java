@@ -1,16 +1,22 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.TransactionHistoryDTO;
+import com.ecommerce.dto.TransferRequestDTO;
 import com.ecommerce.dto.WalletTransactionDTO;
 import com.ecommerce.model.Transaction;
 import com.ecommerce.model.Wallet;
+import com.ecommerce.service.IdempotencyService;
 import com.ecommerce.service.WalletService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,19 +27,25 @@ import java.util.Map;
 public class WalletController {
 
     private final WalletService walletService;
+    private final IdempotencyService idempotencyService;
 
-    public WalletController(WalletService walletService) {
+    public WalletController(WalletService walletService, IdempotencyService idempotencyService) {
         this.walletService = walletService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping
     @Operation(summary = "Create a new wallet for a user")
-    public ResponseEntity<Wallet> createWallet(
+    public ResponseEntity<?> createWallet(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestParam Long userId,
             @RequestParam(defaultValue = "0.0") Double initialBalance) {
         
-        Wallet wallet = walletService.createWallet(userId, initialBalance);
-        return ResponseEntity.created(URI.create("/wallets/" + wallet.getId())).body(wallet);
+        return idempotencyService.execute(idempotencyKey, "POST /wallets",
+                Map.of("userId", userId, "initialBalance", initialBalance), () -> {
+            Wallet wallet = walletService.createWallet(userId, initialBalance);
+            return ResponseEntity.created(URI.create("/wallets/" + wallet.getId())).body(wallet);
+        });
     }
 
     @GetMapping("/user/{userId}")
@@ -54,29 +66,72 @@ public class WalletController {
 
     @PostMapping("/user/{userId}/deposit")
     @Operation(summary = "Deposit money into wallet")
-    public ResponseEntity<Wallet> deposit(
+    public ResponseEntity<?> deposit(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @PathVariable Long userId,
             @Valid @RequestBody WalletTransactionDTO transactionDTO) {
         
-        Wallet wallet = walletService.deposit(userId, transactionDTO.getAmount());
-        return ResponseEntity.ok(wallet);
+        return idempotencyService.execute(idempotencyKey, "POST /wallets/user/" + userId + "/deposit",
+                transactionDTO, () -> ResponseEntity.ok(walletService.deposit(userId, transactionDTO.getAmount())));
     }
 
     @PostMapping("/user/{userId}/withdraw")
     @Operation(summary = "Withdraw money from wallet")
-    public ResponseEntity<Wallet> withdraw(
+    public ResponseEntity<?> withdraw(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @PathVariable Long userId,
             @Valid @RequestBody WalletTransactionDTO transactionDTO) {
         
-        Wallet wallet = walletService.withdraw(userId, transactionDTO.getAmount());
-        return ResponseEntity.ok(wallet);
+        return idempotencyService.execute(idempotencyKey, "POST /wallets/user/" + userId + "/withdraw",
+                transactionDTO, () -> ResponseEntity.ok(walletService.withdraw(userId, transactionDTO.getAmount())));
+    }
+
+    @PostMapping("/transfer")
+    @Operation(summary = "Transfer money from one user's wallet to another's")
+    public ResponseEntity<?> transfer(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody TransferRequestDTO transferDTO) {
+        
+        return idempotencyService.execute(idempotencyKey, "POST /wallets/transfer", transferDTO,
+                () -> ResponseEntity.ok(walletService.transfer(transferDTO.getFromUserId(), transferDTO.getToUserId(),
+                        transferDTO.getAmount())));
     }
 
     @GetMapping("/user/{userId}/transactions")
-    @Operation(summary = "Get transaction history")
-    public ResponseEntity<List<Transaction>> getTransactionHistory(@PathVariable Long userId) {
-        List<Transaction> transactions = walletService.getTransactionHistory(userId);
-        return ResponseEntity.ok(transactions);
+    @Operation(summary = "Get transaction history with keyset pagination",
+               description = "Filters by type and created_at in [from, to). Pass after=<createdAt,id> " +
+                             "(the nextCursor of the previous page) for the next page")
+    public ResponseEntity<Map<String, Object>> getTransactionHistory(
+            @PathVariable Long userId,
+            @RequestParam(required = false) List<Transaction.TransactionType> type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String after) {
+        
+        KeysetCursor cursor = KeysetCursor.parse(after, "createdAt");
+        LocalDateTime afterCreatedAt = cursor == null ? null : cursor.createdAt();
+        Long afterId = cursor == null ? null : cursor.id();
+        
+        boolean ascending = sortOrder.equalsIgnoreCase("asc");
+        Slice<TransactionHistoryDTO> slice = walletService.getTransactionHistory(userId, type, from, to, ascending,
+                afterCreatedAt, afterId, size);
+        
+        List<TransactionHistoryDTO> pageContent = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !pageContent.isEmpty()) {
+            TransactionHistoryDTO last = pageContent.get(pageContent.size() - 1);
+            nextCursor = KeysetCursor.of(last.getCreatedAt(), last.getId());
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", pageContent);
+        response.put("pageSize", slice.getSize());
+        response.put("hasNext", slice.hasNext());
+        response.put("nextCursor", nextCursor);
+        
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/user/{userId}/check-balance")
@@ -0,0 +1,40 @@
+package com.ecommerce.dto;
+
+public class AutocompleteSuggestionDTO {
+    private Long productId;
+    private String name;
+    private long popularity;
+
+    public AutocompleteSuggestionDTO() {}
+
+    public AutocompleteSuggestionDTO(Long productId, String name, long popularity) {
+        this.productId = productId;
+        this.name = name;
+        this.popularity = popularity;
+    }
+
+    // Getters and Setters
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getPopularity() {
+        return popularity;
+    }
+
+    public void setPopularity(long popularity) {
+        this.popularity = popularity;
+    }
+}
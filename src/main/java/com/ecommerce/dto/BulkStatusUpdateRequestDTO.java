@@ -0,0 +1,64 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.OrderStatus;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Moves many orders to one status: either the listed orderIds, or every order currently in
+// currentStatus whose created_at falls in [from, to)
+public class BulkStatusUpdateRequestDTO {
+
+    @NotNull(message = "Target status is required")
+    private OrderStatus targetStatus;
+
+    private List<Long> orderIds;
+
+    private OrderStatus currentStatus;
+
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+
+    // Getters and Setters
+    public OrderStatus getTargetStatus() {
+        return targetStatus;
+    }
+
+    public void setTargetStatus(OrderStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+
+    public List<Long> getOrderIds() {
+        return orderIds;
+    }
+
+    public void setOrderIds(List<Long> orderIds) {
+        this.orderIds = orderIds;
+    }
+
+    public OrderStatus getCurrentStatus() {
+        return currentStatus;
+    }
+
+    public void setCurrentStatus(OrderStatus currentStatus) {
+        this.currentStatus = currentStatus;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk status change, with the reason every rejected order was left as it was
+public class BulkStatusUpdateResultDTO {
+    private OrderStatus targetStatus;
+    private long updated;
+    private List<Rejection> rejected = new ArrayList<>();
+
+    public BulkStatusUpdateResultDTO() {}
+
+    public BulkStatusUpdateResultDTO(OrderStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+
+    // Getters and Setters
+    public OrderStatus getTargetStatus() {
+        return targetStatus;
+    }
+
+    public void setTargetStatus(OrderStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public List<Rejection> getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(List<Rejection> rejected) {
+        this.rejected = rejected;
+    }
+
+    public static class Rejection {
+        private Long orderId;
+        private OrderStatus currentStatus;
+        private String reason;
+
+        public Rejection() {}
+
+        public Rejection(Long orderId, OrderStatus currentStatus, String reason) {
+            this.orderId = orderId;
+            this.currentStatus = currentStatus;
+            this.reason = reason;
+        }
+
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        public void setOrderId(Long orderId) {
+            this.orderId = orderId;
+        }
+
+        public OrderStatus getCurrentStatus() {
+            return currentStatus;
+        }
+
+        public void setCurrentStatus(OrderStatus currentStatus) {
+            this.currentStatus = currentStatus;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public void setReason(String reason) {
+            this.reason = reason;
+        }
+    }
+}
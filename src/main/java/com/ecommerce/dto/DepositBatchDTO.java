@@ -0,0 +1,147 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.DepositBatch;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// State of a bulk deposit job. errors only covers the rows rejected by the latest upload.
+public class DepositBatchDTO {
+    private Long jobId;
+    private DepositBatch.BatchStatus status;
+    private Long lastLine;
+    private Long credited;
+    private Long rejected;
+    private Double totalAmount;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private List<RowError> errors = new ArrayList<>();
+
+    // Constructors
+    public DepositBatchDTO() {}
+
+    public static DepositBatchDTO from(DepositBatch batch) {
+        DepositBatchDTO dto = new DepositBatchDTO();
+        dto.jobId = batch.getId();
+        dto.status = batch.getStatus();
+        dto.lastLine = batch.getLastLine();
+        dto.credited = batch.getCredited();
+        dto.rejected = batch.getRejected();
+        dto.totalAmount = batch.getTotalAmount();
+        dto.error = batch.getError();
+        dto.createdAt = batch.getCreatedAt();
+        dto.updatedAt = batch.getUpdatedAt();
+        return dto;
+    }
+
+    // Getters and Setters
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Long jobId) {
+        this.jobId = jobId;
+    }
+
+    public DepositBatch.BatchStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(DepositBatch.BatchStatus status) {
+        this.status = status;
+    }
+
+    public Long getLastLine() {
+        return lastLine;
+    }
+
+    public void setLastLine(Long lastLine) {
+        this.lastLine = lastLine;
+    }
+
+    public Long getCredited() {
+        return credited;
+    }
+
+    public void setCredited(Long credited) {
+        this.credited = credited;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Long rejected) {
+        this.rejected = rejected;
+    }
+
+    public Double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(Double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    public static class RowError {
+        private long line;
+        private String message;
+
+        public RowError() {}
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public void setLine(long line) {
+            this.line = line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
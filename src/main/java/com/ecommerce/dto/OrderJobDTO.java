@@ -0,0 +1,87 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.OrderJob;
+
+import java.time.LocalDateTime;
+
+public class OrderJobDTO {
+    private Long jobId;
+    private OrderJob.JobType type;
+    private OrderJob.JobStatus status;
+    private Long orderId;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public OrderJobDTO() {}
+
+    public static OrderJobDTO from(OrderJob job) {
+        OrderJobDTO dto = new OrderJobDTO();
+        dto.jobId = job.getId();
+        dto.type = job.getType();
+        dto.status = job.getStatus();
+        dto.orderId = job.getOrderId();
+        dto.error = job.getError();
+        dto.createdAt = job.getCreatedAt();
+        dto.updatedAt = job.getUpdatedAt();
+        return dto;
+    }
+
+    // Getters and Setters
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Long jobId) {
+        this.jobId = jobId;
+    }
+
+    public OrderJob.JobType getType() {
+        return type;
+    }
+
+    public void setType(OrderJob.JobType type) {
+        this.type = type;
+    }
+
+    public OrderJob.JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderJob.JobStatus status) {
+        this.status = status;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.OrderStatus;
+
+import java.time.LocalDateTime;
+
+// One row of an order listing query: the order's columns repeated for each of its items, with
+// the product flattened to id and name. OrderResponseDTO.fromLines folds the rows back into
+// orders. An order without items comes back as a single row with null item columns.
+public class OrderLineDTO {
+    private Long orderId;
+    private Long userId;
+    private LocalDateTime createdAt;
+    private LocalDateTime paidAt;
+    private Double totalPrice;
+    private OrderStatus status;
+    private Long productId;
+    private String productName;
+    private Double price;
+    private Integer quantity;
+
+    public OrderLineDTO() {}
+
+    public OrderLineDTO(Long orderId, Long userId, LocalDateTime createdAt, LocalDateTime paidAt, Double totalPrice,
+                        OrderStatus status, Long productId, String productName, Double price, Integer quantity) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.createdAt = createdAt;
+        this.paidAt = paidAt;
+        this.totalPrice = totalPrice;
+        this.status = status;
+        this.productId = productId;
+        this.productName = productName;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getPaidAt() {
+        return paidAt;
+    }
+
+    public void setPaidAt(LocalDateTime paidAt) {
+        this.paidAt = paidAt;
+    }
+
+    public Double getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(Double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
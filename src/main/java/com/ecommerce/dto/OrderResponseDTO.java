@@ -1,8 +1,12 @@
 package com.ecommerce.dto;
 
+import com.ecommerce.model.Order;
 import com.ecommerce.model.OrderStatus;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class OrderResponseDTO {
     private Long orderId;
@@ -36,6 +40,47 @@ public class OrderResponseDTO {
         this.orderItems = orderItems;
     }
 
+    // For an order whose items and products are already loaded
+    public static OrderResponseDTO from(Order order) {
+        List<OrderItemResponseDTO> itemDTOs = order.getOrderItems().stream()
+                .map(item -> new OrderItemResponseDTO(
+                        item.getProduct().getId(),
+                        item.getProduct().getName(),
+                        item.getPrice(),
+                        item.getQuantity()))
+                .toList();
+
+        return new OrderResponseDTO(
+                order.getId(),
+                order.getUser().getId(),
+                order.getCreatedAt(),
+                order.getPaidAt(),
+                order.getTotalPrice(),
+                order.getStatus(),
+                itemDTOs);
+    }
+
+    // Folds OrderLineDTO rows into orders, keeping the order in which the rows arrive.
+    // Rows of the same order need not be adjacent.
+    public static List<OrderResponseDTO> fromLines(List<OrderLineDTO> lines) {
+        Map<Long, OrderResponseDTO> orders = new LinkedHashMap<>();
+        for (OrderLineDTO line : lines) {
+            OrderResponseDTO order = orders.computeIfAbsent(line.getOrderId(), id -> new OrderResponseDTO(
+                    id,
+                    line.getUserId(),
+                    line.getCreatedAt(),
+                    line.getPaidAt(),
+                    line.getTotalPrice() == null ? 0.0 : line.getTotalPrice(),
+                    line.getStatus(),
+                    new ArrayList<>()));
+            if (line.getProductId() != null) {
+                order.getOrderItems().add(new OrderItemResponseDTO(
+                        line.getProductId(), line.getProductName(), line.getPrice(), line.getQuantity()));
+            }
+        }
+        return new ArrayList<>(orders.values());
+    }
+
     // Getters and Setters
     public Long getOrderId() {
         return orderId;
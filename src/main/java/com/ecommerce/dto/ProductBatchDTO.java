@@ -0,0 +1,34 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.Product;
+
+import java.util.List;
+
+public class ProductBatchDTO {
+    private List<Product> products;
+    private List<Long> missingIds;
+
+    public ProductBatchDTO() {}
+
+    public ProductBatchDTO(List<Product> products, List<Long> missingIds) {
+        this.products = products;
+        this.missingIds = missingIds;
+    }
+
+    // Getters and Setters
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
@@ -0,0 +1,141 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+
+// Facet aggregates computed alongside a product search
+public class ProductFacetsDTO {
+    private long totalMatches;
+    private long inStock;
+    private long outOfStock;
+    private List<CategoryFacet> categories;
+    private List<PriceBucket> priceHistogram;
+
+    public ProductFacetsDTO() {}
+
+    public ProductFacetsDTO(long totalMatches, long inStock, long outOfStock,
+                            List<CategoryFacet> categories, List<PriceBucket> priceHistogram) {
+        this.totalMatches = totalMatches;
+        this.inStock = inStock;
+        this.outOfStock = outOfStock;
+        this.categories = categories;
+        this.priceHistogram = priceHistogram;
+    }
+
+    // Getters and Setters
+    public long getTotalMatches() {
+        return totalMatches;
+    }
+
+    public void setTotalMatches(long totalMatches) {
+        this.totalMatches = totalMatches;
+    }
+
+    public long getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(long inStock) {
+        this.inStock = inStock;
+    }
+
+    public long getOutOfStock() {
+        return outOfStock;
+    }
+
+    public void setOutOfStock(long outOfStock) {
+        this.outOfStock = outOfStock;
+    }
+
+    public List<CategoryFacet> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<CategoryFacet> categories) {
+        this.categories = categories;
+    }
+
+    public List<PriceBucket> getPriceHistogram() {
+        return priceHistogram;
+    }
+
+    public void setPriceHistogram(List<PriceBucket> priceHistogram) {
+        this.priceHistogram = priceHistogram;
+    }
+
+    public static class CategoryFacet {
+        private Long categoryId;
+        private String categoryName;
+        private long count;
+
+        public CategoryFacet() {}
+
+        public CategoryFacet(Long categoryId, String categoryName, long count) {
+            this.categoryId = categoryId;
+            this.categoryName = categoryName;
+            this.count = count;
+        }
+
+        public Long getCategoryId() {
+            return categoryId;
+        }
+
+        public void setCategoryId(Long categoryId) {
+            this.categoryId = categoryId;
+        }
+
+        public String getCategoryName() {
+            return categoryName;
+        }
+
+        public void setCategoryName(String categoryName) {
+            this.categoryName = categoryName;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+
+    // Prices in [from, to); the last bucket is open-ended when "to" is null
+    public static class PriceBucket {
+        private double from;
+        private Double to;
+        private long count;
+
+        public PriceBucket() {}
+
+        public PriceBucket(double from, Double to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+
+        public double getFrom() {
+            return from;
+        }
+
+        public void setFrom(double from) {
+            this.from = from;
+        }
+
+        public Double getTo() {
+            return to;
+        }
+
+        public void setTo(Double to) {
+            this.to = to;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+}
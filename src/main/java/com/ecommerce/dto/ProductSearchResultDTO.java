@@ -0,0 +1,32 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+
+public class ProductSearchResultDTO {
+    private List<ProductSummaryDTO> products;
+    private ProductFacetsDTO facets;
+
+    public ProductSearchResultDTO() {}
+
+    public ProductSearchResultDTO(List<ProductSummaryDTO> products, ProductFacetsDTO facets) {
+        this.products = products;
+        this.facets = facets;
+    }
+
+    // Getters and Setters
+    public List<ProductSummaryDTO> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<ProductSummaryDTO> products) {
+        this.products = products;
+    }
+
+    public ProductFacetsDTO getFacets() {
+        return facets;
+    }
+
+    public void setFacets(ProductFacetsDTO facets) {
+        this.facets = facets;
+    }
+}
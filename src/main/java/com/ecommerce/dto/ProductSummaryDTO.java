@@ -0,0 +1,84 @@
+package com.ecommerce.dto;
+
+// Read-only view of a product for listings: only the columns a listing shows, with the
+// category flattened to its id and name. Filled by JPQL constructor expressions, so no
+// entity is loaded or tracked by the persistence context.
+public class ProductSummaryDTO {
+    private Long id;
+    private String name;
+    private Double price;
+    private Integer stock;
+    private String imageUrl;
+    private Long categoryId;
+    private String categoryName;
+
+    public ProductSummaryDTO() {}
+
+    public ProductSummaryDTO(Long id, String name, Double price, Integer stock, String imageUrl,
+                             Long categoryId, String categoryName) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.stock = stock;
+        this.imageUrl = imageUrl;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.Transaction;
+
+import java.time.LocalDateTime;
+
+// One row of a wallet's transaction history, read straight from the transactions columns so
+// neither the user nor the order is loaded
+public class TransactionHistoryDTO {
+    private Long id;
+    private Transaction.TransactionType type;
+    private Double amount;
+    private String description;
+    private Double balanceAfter;
+    private Long orderId;
+    private LocalDateTime createdAt;
+
+    public TransactionHistoryDTO() {}
+
+    public TransactionHistoryDTO(Long id, Transaction.TransactionType type, Double amount, String description,
+                                 Double balanceAfter, Long orderId, LocalDateTime createdAt) {
+        this.id = id;
+        this.type = type;
+        this.amount = amount;
+        this.description = description;
+        this.balanceAfter = balanceAfter;
+        this.orderId = orderId;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Transaction.TransactionType getType() {
+        return type;
+    }
+
+    public void setType(Transaction.TransactionType type) {
+        this.type = type;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Double getBalanceAfter() {
+        return balanceAfter;
+    }
+
+    public void setBalanceAfter(Double balanceAfter) {
+        this.balanceAfter = balanceAfter;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
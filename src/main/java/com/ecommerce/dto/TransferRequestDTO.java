@@ -0,0 +1,51 @@
+package com.ecommerce.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+// Moves amount from the wallet of fromUserId to the wallet of toUserId
+public class TransferRequestDTO {
+
+    @NotNull(message = "Sender is required")
+    private Long fromUserId;
+
+    @NotNull(message = "Recipient is required")
+    private Long toUserId;
+
+    @NotNull(message = "Amount is required")
+    @Positive(message = "Amount must be positive")
+    private Double amount;
+
+    public TransferRequestDTO() {}
+
+    public TransferRequestDTO(Long fromUserId, Long toUserId, Double amount) {
+        this.fromUserId = fromUserId;
+        this.toUserId = toUserId;
+        this.amount = amount;
+    }
+
+    // Getters and Setters
+    public Long getFromUserId() {
+        return fromUserId;
+    }
+
+    public void setFromUserId(Long fromUserId) {
+        this.fromUserId = fromUserId;
+    }
+
+    public Long getToUserId() {
+        return toUserId;
+    }
+
+    public void setToUserId(Long toUserId) {
+        this.toUserId = toUserId;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+}
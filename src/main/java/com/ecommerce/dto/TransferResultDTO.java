@@ -0,0 +1,83 @@
+package com.ecommerce.dto;
+
+// Outcome of a wallet-to-wallet transfer: the two history rows it wrote and the balances
+// they left behind
+public class TransferResultDTO {
+    private Long fromUserId;
+    private Long toUserId;
+    private Double amount;
+    private Long debitTransactionId;
+    private Long creditTransactionId;
+    private Double fromBalance;
+    private Double toBalance;
+
+    public TransferResultDTO() {}
+
+    public TransferResultDTO(Long fromUserId, Long toUserId, Double amount, Long debitTransactionId,
+                             Long creditTransactionId, Double fromBalance, Double toBalance) {
+        this.fromUserId = fromUserId;
+        this.toUserId = toUserId;
+        this.amount = amount;
+        this.debitTransactionId = debitTransactionId;
+        this.creditTransactionId = creditTransactionId;
+        this.fromBalance = fromBalance;
+        this.toBalance = toBalance;
+    }
+
+    // Getters and Setters
+    public Long getFromUserId() {
+        return fromUserId;
+    }
+
+    public void setFromUserId(Long fromUserId) {
+        this.fromUserId = fromUserId;
+    }
+
+    public Long getToUserId() {
+        return toUserId;
+    }
+
+    public void setToUserId(Long toUserId) {
+        this.toUserId = toUserId;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public Long getDebitTransactionId() {
+        return debitTransactionId;
+    }
+
+    public void setDebitTransactionId(Long debitTransactionId) {
+        this.debitTransactionId = debitTransactionId;
+    }
+
+    public Long getCreditTransactionId() {
+        return creditTransactionId;
+    }
+
+    public void setCreditTransactionId(Long creditTransactionId) {
+        this.creditTransactionId = creditTransactionId;
+    }
+
+    public Double getFromBalance() {
+        return fromBalance;
+    }
+
+    public void setFromBalance(Double fromBalance) {
+        this.fromBalance = fromBalance;
+    }
+
+    public Double getToBalance() {
+        return toBalance;
+    }
+
+    public void setToBalance(Double toBalance) {
+        this.toBalance = toBalance;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// A bulk deposit run (payroll, cashback). Rows are applied in chunks, and each chunk moves
+// lastLine forward in the same transaction as its deposits, so an upload that breaks off can
+// be sent again and picks up after the last committed row.
+@Entity
+@Table(name = "deposit_batches")
+public class DepositBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BatchStatus status = BatchStatus.OPEN;
+
+    @Column(name = "last_line", nullable = false)
+    private Long lastLine = 0L;
+
+    @Column(nullable = false)
+    private Long credited = 0L;
+
+    @Column(nullable = false)
+    private Long rejected = 0L;
+
+    @Column(name = "total_amount", nullable = false)
+    private Double totalAmount = 0.0;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum BatchStatus {
+        OPEN,       // Created, or an upload stopped part way; rows can be (re)sent
+        COMPLETED   // An upload reached the end of its input
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public DepositBatch() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public BatchStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(BatchStatus status) {
+        this.status = status;
+    }
+
+    public Long getLastLine() {
+        return lastLine;
+    }
+
+    public void setLastLine(Long lastLine) {
+        this.lastLine = lastLine;
+    }
+
+    public Long getCredited() {
+        return credited;
+    }
+
+    public void setCredited(Long credited) {
+        this.credited = credited;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Long rejected) {
+        this.rejected = rejected;
+    }
+
+    public Double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(Double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
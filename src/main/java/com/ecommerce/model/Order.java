@@ -9,7 +9,11 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Positive;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    // Admin listings: keyset pages per status, and across all statuses, by creation time
+    @Index(name = "idx_orders_status_created_at", columnList = "status, created_at, id"),
+    @Index(name = "idx_orders_created_at", columnList = "created_at, id")
+})
 public class Order {
 
     @Id
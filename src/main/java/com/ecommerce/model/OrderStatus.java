@@ -1,5 +1,8 @@
 package com.ecommerce.model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING,      // Order created, not yet paid
     PAID,         // Payment successful
@@ -7,5 +10,45 @@ public enum OrderStatus {
     SHIPPED,      // Order shipped
     DELIVERED,    // Order delivered
     CANCELLED,    // Order cancelled
-    REFUNDED      // Order refunded
+    REFUNDED;     // Order refunded
+
+    // Statuses an order may move to from this one; CANCELLED and REFUNDED are final
+    public Set<OrderStatus> nextStatuses() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(PAID, CANCELLED);
+            case PAID -> EnumSet.of(PROCESSING, REFUNDED);
+            case PROCESSING -> EnumSet.of(SHIPPED, REFUNDED);
+            case SHIPPED -> EnumSet.of(DELIVERED);
+            case DELIVERED -> EnumSet.of(REFUNDED);
+            case CANCELLED, REFUNDED -> EnumSet.noneOf(OrderStatus.class);
+        };
+    }
+
+    public boolean canMoveTo(OrderStatus next) {
+        return nextStatuses().contains(next);
+    }
+
+    // Steps that only change the status. Paying, cancelling and refunding also move money,
+    // stock or reservations, so they go through the order's own endpoints.
+    public boolean isFulfillmentStep(OrderStatus next) {
+        return canMoveTo(next) && (next == PROCESSING || next == SHIPPED || next == DELIVERED);
+    }
+
+    // Where cancelling leaves the order: an unpaid one is cancelled, a paid one that has not
+    // shipped is refunded. Null once it can no longer be cancelled.
+    public OrderStatus cancellationStatus() {
+        OrderStatus next = this == PENDING ? CANCELLED : REFUNDED;
+        return canMoveTo(next) && this != DELIVERED ? next : null;
+    }
+
+    // The statuses an order must be in to take a fulfillment step to this one
+    public Set<OrderStatus> fulfillmentPredecessors() {
+        Set<OrderStatus> predecessors = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus status : values()) {
+            if (status.isFulfillmentStep(this)) {
+                predecessors.add(status);
+            }
+        }
+        return predecessors;
+    }
 }
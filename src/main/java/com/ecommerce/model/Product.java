@@ -12,7 +12,11 @@ import jakarta.validation.constraints.Min;
 
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    // Back the category listings and their (sort key, id) keyset cursors
+    @Index(name = "idx_products_category_name", columnList = "category_id, name, id"),
+    @Index(name = "idx_products_category_price", columnList = "category_id, price, id")
+})
 public class Product {
 
     @Id
@@ -37,6 +41,12 @@ public class Product {
 
     @Column(name = "created_at", updatable = false, insertable = false)
     private LocalDateTime createdAt;
+
+    // Set by StockShardService while the stock lives in the shard rows. The stock statements
+    // check it under the product row lock; JPA never writes it.
+    @Column(name = "stock_sharded", insertable = false, updatable = false,
+            columnDefinition = "boolean default false not null")
+    private boolean stockSharded;
     
     //Modify the Product class to include a reference to Category
     @ManyToOne
@@ -117,6 +127,10 @@ public class Product {
         this.createdAt = createdAt;
     }
     
+    public boolean isStockSharded() {
+        return stockSharded;
+    }
+
     public Category getCategory() {
         return category;
     }
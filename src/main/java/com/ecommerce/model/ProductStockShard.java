@@ -0,0 +1,67 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+
+// One slice of a hot product's stock. While a product has shards they hold its sellable
+// units, and Product.stock is a periodically refreshed total of them.
+@Entity
+@Table(name = "product_stock_shards", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stock_shard_product_index", columnNames = {"product_id", "shard_index"})
+})
+public class ProductStockShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "shard_index", nullable = false)
+    private Integer shardIndex;
+
+    @Column(nullable = false)
+    private Integer stock;
+
+    public ProductStockShard() {
+    }
+
+    public ProductStockShard(Long productId, Integer shardIndex, Integer stock) {
+        this.productId = productId;
+        this.shardIndex = shardIndex;
+        this.stock = stock;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getShardIndex() {
+        return shardIndex;
+    }
+
+    public void setShardIndex(Integer shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+}
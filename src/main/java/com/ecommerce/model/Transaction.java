@@ -6,7 +6,10 @@ import jakarta.validation.constraints.Positive;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    // Wallet history: keyset pages of a user's transactions by creation time
+    @Index(name = "idx_transactions_user_created_at", columnList = "user_id, created_at, id")
+})
 public class Transaction {
 
     @Id
@@ -126,6 +129,13 @@ public class Transaction {
         DEPOSIT,      // Money added to wallet
         WITHDRAWAL,   // Money removed from wallet
         PAYMENT,      // Payment for an order
-        REFUND        // Refund from cancelled order
+        REFUND,       // Refund from cancelled order
+        TRANSFER_OUT, // Sent to another user's wallet
+        TRANSFER_IN;  // Received from another user's wallet
+
+        // Whether the movement adds to the wallet balance
+        public boolean isCredit() {
+            return this == DEPOSIT || this == REFUND || this == TRANSFER_IN;
+        }
     }
 }
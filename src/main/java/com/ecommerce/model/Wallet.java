@@ -28,6 +28,12 @@ public class Wallet {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bumped on every balance change, so a write based on a stale read fails instead of
+    // overwriting a concurrent one
+    @Version
+    @Column(nullable = false)
+    private Long version = 0L;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -88,6 +94,14 @@ public class Wallet {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // Business methods
     public void deposit(Double amount) {
         if (amount <= 0) {
@@ -0,0 +1,7 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.DepositBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DepositBatchRepository extends JpaRepository<DepositBatch, Long> {
+}
@@ -2,6 +2,16 @@ package com.ecommerce.repository;
 
 import com.ecommerce.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    // [productId, units sold] over orders that have been paid and not refunded
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi WHERE oi.order.status IN " +
+           "(com.ecommerce.model.OrderStatus.PAID, com.ecommerce.model.OrderStatus.PROCESSING, " +
+           "com.ecommerce.model.OrderStatus.SHIPPED, com.ecommerce.model.OrderStatus.DELIVERED) " +
+           "GROUP BY oi.product.id")
+    List<Object[]> sumUnitsSoldByProduct();
 }
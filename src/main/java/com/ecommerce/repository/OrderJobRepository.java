@@ -0,0 +1,23 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.OrderJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderJobRepository extends JpaRepository<OrderJob, Long> {
+
+    @Query("SELECT MAX(j.id) FROM OrderJob j WHERE j.status IN :statuses")
+    Long findMaxIdByStatusIn(@Param("statuses") Collection<OrderJob.JobStatus> statuses);
+
+    // Ids of jobs in the given statuses within (afterId, upToId], in id order, a page at a time
+    @Query("SELECT j.id FROM OrderJob j WHERE j.status IN :statuses AND j.id > :afterId AND j.id <= :upToId " +
+           "ORDER BY j.id")
+    List<Long> findIdsByStatusInBetween(@Param("statuses") Collection<OrderJob.JobStatus> statuses,
+                                        @Param("afterId") Long afterId, @Param("upToId") Long upToId,
+                                        Pageable pageable);
+}
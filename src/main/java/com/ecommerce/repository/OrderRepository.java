@@ -1,13 +1,86 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.OrderLineDTO;
 import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderStatus;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+	// Order listings as one row per item, read in a single query instead of loading each
+	// order's items and then each item's product
+	String LINES_SELECT = "SELECT new com.ecommerce.dto.OrderLineDTO(" +
+			"o.id, u.id, o.createdAt, o.paidAt, o.totalPrice, o.status, p.id, p.name, i.price, i.quantity) " +
+			"FROM Order o LEFT JOIN o.user u LEFT JOIN o.orderItems i LEFT JOIN i.product p ";
+
 	List<Order> findByUserId(Long userId);
 
-}
+	// Orders with their user, items and products fetched in the same query
+	@EntityGraph(attributePaths = {"user", "orderItems", "orderItems.product"})
+	Optional<Order> findWithItemsById(Long id);
+
+	@EntityGraph(attributePaths = {"user", "orderItems", "orderItems.product"})
+	List<Order> findWithItemsByUserId(Long userId);
+
+	@EntityGraph(attributePaths = {"user", "orderItems", "orderItems.product"})
+	@Query("SELECT o FROM Order o")
+	List<Order> findAllWithItems();
+
+	@Query(LINES_SELECT + "ORDER BY o.id, i.id")
+	List<OrderLineDTO> findAllLines();
+
+	@Query(LINES_SELECT + "WHERE u.id = :userId ORDER BY o.id, i.id")
+	List<OrderLineDTO> findLinesByUserId(@Param("userId") Long userId);
+
+	@Query(LINES_SELECT + "WHERE o.id IN :ids ORDER BY o.id, i.id")
+	List<OrderLineDTO> findLinesByOrderIds(@Param("ids") Collection<Long> ids);
 
+	// Keyset pages of order ids by (created_at, id), strictly past the cursor. The time range
+	// bound on the far side of the cursor keeps each page inside [from, to).
+	@Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.createdAt >= :from AND " +
+			"(o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) ORDER BY o.createdAt DESC, o.id DESC")
+	List<Long> findIdsByStatusBefore(@Param("status") OrderStatus status, @Param("from") LocalDateTime from,
+			@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+	@Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.createdAt < :to AND " +
+			"(o.createdAt > :createdAt OR (o.createdAt = :createdAt AND o.id > :id)) ORDER BY o.createdAt ASC, o.id ASC")
+	List<Long> findIdsByStatusAfter(@Param("status") OrderStatus status, @Param("to") LocalDateTime to,
+			@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+	@Query("SELECT o.id FROM Order o WHERE o.createdAt >= :from AND " +
+			"(o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) ORDER BY o.createdAt DESC, o.id DESC")
+	List<Long> findIdsBefore(@Param("from") LocalDateTime from, @Param("createdAt") LocalDateTime createdAt,
+			@Param("id") Long id, Pageable pageable);
+
+	@Query("SELECT o.id FROM Order o WHERE o.createdAt < :to AND " +
+			"(o.createdAt > :createdAt OR (o.createdAt = :createdAt AND o.id > :id)) ORDER BY o.createdAt ASC, o.id ASC")
+	List<Long> findIdsAfter(@Param("to") LocalDateTime to, @Param("createdAt") LocalDateTime createdAt,
+			@Param("id") Long id, Pageable pageable);
+
+	// Moves the order only if nobody changed its status since it was read
+	@Modifying
+	@Query("UPDATE Order o SET o.status = :next WHERE o.id = :id AND o.status = :current")
+	int updateStatusIfCurrent(@Param("id") Long id, @Param("current") OrderStatus current, @Param("next") OrderStatus next);
+
+	// Rows of (id, status) for the given orders
+	@Query("SELECT o.id, o.status FROM Order o WHERE o.id IN :ids")
+	List<Object[]> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+	// Set-based form of updateStatusIfCurrent for a chunk of orders
+	@Modifying
+	@Query("UPDATE Order o SET o.status = :next, o.updatedAt = :now WHERE o.id IN :ids AND o.status IN :current")
+	int updateStatusInBulk(@Param("ids") Collection<Long> ids, @Param("current") Collection<OrderStatus> current,
+			@Param("next") OrderStatus next, @Param("now") LocalDateTime now);
+
+}
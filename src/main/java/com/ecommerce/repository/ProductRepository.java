@@ -1,16 +1,63 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.ProductSummaryDTO;
 import com.ecommerce.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId")
-    List<Product> findByCategoryId(Long categoryId);
+    // Listings select only the summary columns instead of hydrating Product and its Category
+    String SUMMARY_SELECT = "SELECT new com.ecommerce.dto.ProductSummaryDTO(" +
+            "p.id, p.name, p.price, p.stock, p.imageUrl, c.id, c.name) " +
+            "FROM Product p LEFT JOIN p.category c ";
+
+    @Query(SUMMARY_SELECT)
+    List<ProductSummaryDTO> findAllSummaries();
+    
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductSummaryDTO> findAllSummaries(Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.id = :categoryId")
+    List<ProductSummaryDTO> findSummariesByCategoryId(@Param("categoryId") Long categoryId);
+    
+    // Category listing with paging and sorting done by the database
+    @Query(value = SUMMARY_SELECT + "WHERE c.id = :categoryId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId")
+    Page<ProductSummaryDTO> findSummariesByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+    
+    // Keyset pagination over a category: rows strictly after the (sort key, id) cursor
+    @Query(SUMMARY_SELECT + "WHERE c.id = :categoryId AND " +
+           "(p.name > :name OR (p.name = :name AND p.id > :id)) ORDER BY p.name ASC, p.id ASC")
+    Slice<ProductSummaryDTO> findByCategoryAfterNameAsc(@Param("categoryId") Long categoryId, @Param("name") String name,
+                                                        @Param("id") Long id, Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.id = :categoryId AND " +
+           "(p.name < :name OR (p.name = :name AND p.id < :id)) ORDER BY p.name DESC, p.id DESC")
+    Slice<ProductSummaryDTO> findByCategoryAfterNameDesc(@Param("categoryId") Long categoryId, @Param("name") String name,
+                                                         @Param("id") Long id, Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.id = :categoryId AND " +
+           "(p.price > :price OR (p.price = :price AND p.id > :id)) ORDER BY p.price ASC, p.id ASC")
+    Slice<ProductSummaryDTO> findByCategoryAfterPriceAsc(@Param("categoryId") Long categoryId, @Param("price") Double price,
+                                                         @Param("id") Long id, Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.id = :categoryId AND " +
+           "(p.price < :price OR (p.price = :price AND p.id < :id)) ORDER BY p.price DESC, p.id DESC")
+    Slice<ProductSummaryDTO> findByCategoryAfterPriceDesc(@Param("categoryId") Long categoryId, @Param("price") Double price,
+                                                          @Param("id") Long id, Pageable pageable);
+    
+    // Batch lookup: the categories come in the same query instead of one select per category
+    @EntityGraph(attributePaths = "category")
+    List<Product> findByIdIn(Collection<Long> ids);
     
     // Search by name (case-insensitive)
     @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
@@ -22,21 +69,24 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> searchByKeyword(@Param("keyword") String keyword);
     
     // Filter by price range
-    @Query("SELECT p FROM Product p WHERE p.price BETWEEN :minPrice AND :maxPrice")
-    List<Product> findByPriceRange(@Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice);
+    @Query(SUMMARY_SELECT + "WHERE p.price BETWEEN :minPrice AND :maxPrice")
+    List<ProductSummaryDTO> findByPriceRange(@Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice);
     
     // Advanced search with multiple criteria
-    @Query("SELECT p FROM Product p WHERE " +
+    @Query(SUMMARY_SELECT + "WHERE " +
            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
-           "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
+           "(:categoryId IS NULL OR c.id = :categoryId) AND " +
            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
            "(:maxPrice IS NULL OR p.price <= :maxPrice)")
-    List<Product> advancedSearch(
+    List<ProductSummaryDTO> advancedSearch(
         @Param("name") String name,
         @Param("categoryId") Long categoryId,
         @Param("minPrice") Double minPrice,
         @Param("maxPrice") Double maxPrice
     );
+    
+    // Walk the catalog in id order, one chunk at a time
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
 
 
@@ -0,0 +1,50 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.ProductStockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShard, Long> {
+
+    @Query("SELECT DISTINCT s.productId FROM ProductStockShard s")
+    List<Long> findShardedProductIds();
+
+    List<ProductStockShard> findByProductIdOrderByShardIndexAsc(Long productId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductStockShard s WHERE s.productId = :productId ORDER BY s.shardIndex")
+    List<ProductStockShard> findByProductIdForUpdate(@Param("productId") Long productId);
+
+    // Guarded decrement of one shard; 0 rows updated means the shard cannot cover the quantity
+    @Modifying
+    @Query("UPDATE ProductStockShard s SET s.stock = s.stock - :quantity " +
+           "WHERE s.productId = :productId AND s.shardIndex = :shardIndex AND s.stock >= :quantity")
+    int takeFromShard(@Param("productId") Long productId, @Param("shardIndex") int shardIndex,
+                      @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE ProductStockShard s SET s.stock = s.stock + :quantity " +
+           "WHERE s.productId = :productId AND s.shardIndex = :shardIndex")
+    int addToShard(@Param("productId") Long productId, @Param("shardIndex") int shardIndex,
+                   @Param("quantity") int quantity);
+
+    @Query("SELECT s.stock FROM ProductStockShard s WHERE s.productId = :productId AND s.shardIndex = :shardIndex")
+    Integer findShardStock(@Param("productId") Long productId, @Param("shardIndex") int shardIndex);
+
+    // Refresh Product.stock with the total of its shards
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = (SELECT COALESCE(SUM(s.stock), 0) FROM ProductStockShard s " +
+           "WHERE s.productId = p.id) WHERE p.id IN :productIds AND p.stockSharded = true")
+    int foldIntoProducts(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("DELETE FROM ProductStockShard s WHERE s.productId = :productId")
+    int deleteByProductIdInBulk(@Param("productId") Long productId);
+}
@@ -1,10 +1,36 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.TransactionHistoryDTO;
 import com.ecommerce.model.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
+    // History rows as DTOs; t.order.id is the order_id column, so no join is needed
+    String HISTORY_SELECT = "SELECT new com.ecommerce.dto.TransactionHistoryDTO(" +
+            "t.id, t.type, t.amount, t.description, t.balanceAfter, t.order.id, t.createdAt) FROM Transaction t ";
+
     List<Transaction> findByUserIdOrderByCreatedAtDesc(Long userId);
     List<Transaction> findByOrderId(Long orderId);
+
+    // Keyset pages of a user's history by (created_at, id), strictly past the cursor, as in
+    // OrderRepository. The type filter is applied to the rows the index range scan returns.
+    @Query(HISTORY_SELECT + "WHERE t.user.id = :userId AND t.type IN :types AND t.createdAt >= :from AND " +
+            "(t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransactionHistoryDTO> findHistoryBefore(@Param("userId") Long userId,
+            @Param("types") Collection<Transaction.TransactionType> types, @Param("from") LocalDateTime from,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query(HISTORY_SELECT + "WHERE t.user.id = :userId AND t.type IN :types AND t.createdAt < :to AND " +
+            "(t.createdAt > :createdAt OR (t.createdAt = :createdAt AND t.id > :id)) ORDER BY t.createdAt ASC, t.id ASC")
+    List<TransactionHistoryDTO> findHistoryAfter(@Param("userId") Long userId,
+            @Param("types") Collection<Transaction.TransactionType> types, @Param("to") LocalDateTime to,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
 }
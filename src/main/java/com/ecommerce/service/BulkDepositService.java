@@ -0,0 +1,403 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.DepositBatchDTO;
+import com.ecommerce.exception.ResourceNotFoundException;
+import com.ecommerce.model.DepositBatch;
+import com.ecommerce.model.Transaction;
+import com.ecommerce.repository.DepositBatchRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+// Credits many wallets from one upload (payroll, cashback). Rows are read from the request
+// stream and applied a chunk at a time: one set-based UPDATE of the wallets in the chunk, one
+// batched insert of their DEPOSIT transactions, and the job's progress, all in one transaction.
+// An upload that breaks off is sent again in full; rows up to the job's lastLine are skipped.
+@Service
+public class BulkDepositService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_DESCRIPTION_LENGTH = 500;
+    private static final String DEFAULT_DESCRIPTION = "Bulk deposit";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO transactions (user_id, type, amount, description, balance_after, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final DepositBatchRepository batchRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletLedger ledger;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public BulkDepositService(DepositBatchRepository batchRepository, JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate, WalletLedger ledger, ObjectMapper objectMapper,
+                              @Value("${wallet.bulk-deposit.chunk-size:1000}") int chunkSize) {
+        this.batchRepository = batchRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.ledger = ledger;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    public DepositBatchDTO createBatch() {
+        return DepositBatchDTO.from(batchRepository.save(new DepositBatch()));
+    }
+
+    public DepositBatchDTO getBatch(Long jobId) {
+        return DepositBatchDTO.from(findBatch(jobId));
+    }
+
+    public DepositBatchDTO upload(Long jobId, Format format, InputStream in) throws IOException {
+        DepositBatch batch = findBatch(jobId);
+        if (batch.getStatus() == DepositBatch.BatchStatus.COMPLETED) {
+            return DepositBatchDTO.from(batch);
+        }
+
+        long resumeAfter = batch.getLastLine();
+        List<DepositBatchDTO.RowError> errors = new ArrayList<>();
+        Chunk chunk = new Chunk(resumeAfter);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowSource source = format == Format.CSV ? new CsvRowSource(reader) : new NdjsonRowSource(reader, objectMapper);
+        try {
+            while (true) {
+                try {
+                    DepositRow row = source.next();
+                    if (row == null) {
+                        break;
+                    }
+                    if (row.line <= resumeAfter) {
+                        continue;
+                    }
+                    String error = validate(row);
+                    if (error != null) {
+                        chunk.reject(row.line, error);
+                    } else {
+                        chunk.add(row);
+                    }
+                } catch (RowParseException e) {
+                    if (e.line <= resumeAfter) {
+                        continue;
+                    }
+                    chunk.reject(e.line, e.getMessage());
+                }
+                if (chunk.size() >= chunkSize) {
+                    apply(jobId, chunk, errors);
+                    chunk = new Chunk(chunk.lastLine);
+                }
+            }
+            apply(jobId, chunk, errors);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    "UPDATE deposit_batches SET status = ?, error = NULL, updated_at = ? WHERE id = ?",
+                    DepositBatch.BatchStatus.COMPLETED.name(), Timestamp.valueOf(LocalDateTime.now()), jobId));
+        } catch (IOException | DataAccessException e) {
+            // Committed chunks stay; the job remains OPEN so the upload can be sent again
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            jdbcTemplate.update("UPDATE deposit_batches SET error = ?, updated_at = ? WHERE id = ?",
+                    message.length() > MAX_DESCRIPTION_LENGTH ? message.substring(0, MAX_DESCRIPTION_LENGTH) : message,
+                    Timestamp.valueOf(LocalDateTime.now()), jobId);
+            if (e instanceof IOException io) {
+                throw io;
+            }
+        }
+
+        DepositBatchDTO result = DepositBatchDTO.from(findBatch(jobId));
+        result.setErrors(errors);
+        return result;
+    }
+
+    private DepositBatch findBatch(Long jobId) {
+        return batchRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Deposit job not found"));
+    }
+
+    private static String validate(DepositRow row) {
+        if (row.userId == null) {
+            return "userId: must not be null";
+        }
+        if (row.amount == null || !(row.amount > 0) || row.amount.isInfinite()) {
+            return "amount: must be a positive number";
+        }
+        if (row.description != null && row.description.length() > MAX_DESCRIPTION_LENGTH) {
+            return "description: at most " + MAX_DESCRIPTION_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    // Writes one chunk and advances the job past it in a single transaction. The job update is
+    // guarded on the position the chunk started from, so two uploads of the same job can never
+    // both apply a row.
+    private void apply(Long jobId, Chunk chunk, List<DepositBatchDTO.RowError> errors) {
+        if (chunk.size() == 0) {
+            return;
+        }
+        List<DepositBatchDTO.RowError> chunkErrors = new ArrayList<>(chunk.errors);
+        double[] total = new double[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Long> wallets = walletOwners(chunk.userIds());
+            List<DepositRow> rows = new ArrayList<>();
+            for (DepositRow row : chunk.rows) {
+                if (wallets.contains(row.userId)) {
+                    rows.add(row);
+                } else {
+                    chunkErrors.add(new DepositBatchDTO.RowError(row.line, "Wallet not found for user " + row.userId));
+                }
+            }
+
+            // Ascending user ids, so concurrent writers lock wallet rows in the same order
+            Map<Long, Double> amounts = new TreeMap<>();
+            rows.forEach(row -> amounts.merge(row.userId, row.amount, Double::sum));
+            Map<Long, Double> balances = credit(amounts);
+
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> inserts = new ArrayList<>(rows.size());
+            for (DepositRow row : rows) {
+                double balanceAfter = balances.merge(row.userId, row.amount, Double::sum);
+                String description = row.description == null ? DEFAULT_DESCRIPTION : row.description;
+                inserts.add(new Object[]{row.userId, Transaction.TransactionType.DEPOSIT.name(), row.amount,
+                        description, balanceAfter, now});
+                total[0] += row.amount;
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            }
+
+            int advanced = jdbcTemplate.update("UPDATE deposit_batches SET last_line = ?, credited = credited + ?, " +
+                            "rejected = rejected + ?, total_amount = total_amount + ?, updated_at = ? " +
+                            "WHERE id = ? AND last_line = ? AND status = ?",
+                    chunk.lastLine, rows.size(), chunkErrors.size(), total[0], now, jobId, chunk.firstLine,
+                    DepositBatch.BatchStatus.OPEN.name());
+            if (advanced == 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Deposit job " + jobId + " is being uploaded by another request");
+            }
+        });
+
+        for (DepositBatchDTO.RowError error : chunkErrors) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+
+    // Adds the amounts to the wallets and returns each wallet's balance before them
+    private Map<Long, Double> credit(Map<Long, Double> amounts) {
+        Map<Long, Double> before = new HashMap<>();
+        if (amounts.isEmpty()) {
+            return before;
+        }
+        if (ledger.isEnabled()) {
+            amounts.keySet().forEach(userId -> before.put(userId, ledger.balanceOf(userId)));
+            ledger.creditAfterCommit(amounts);
+            return before;
+        }
+
+        List<Object> args = new ArrayList<>();
+        amounts.forEach((userId, amount) -> {
+            args.add(userId);
+            args.add(amount);
+        });
+        args.addAll(amounts.keySet());
+        // The version bump makes per-wallet updates that read the old balance retry
+        jdbcTemplate.update("UPDATE wallets SET balance = balance + CASE user_id" + " WHEN ? THEN ?".repeat(amounts.size()) +
+                " END, version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE user_id IN " + placeholders(amounts.size()),
+                args.toArray());
+
+        jdbcTemplate.query("SELECT user_id, balance FROM wallets WHERE user_id IN " + placeholders(amounts.size()),
+                rs -> {
+                    long userId = rs.getLong(1);
+                    before.put(userId, rs.getDouble(2) - amounts.get(userId));
+                }, amounts.keySet().toArray());
+        return before;
+    }
+
+    private Set<Long> walletOwners(Collection<Long> userIds) {
+        Set<Long> owners = new HashSet<>();
+        if (!userIds.isEmpty()) {
+            jdbcTemplate.query("SELECT user_id FROM wallets WHERE user_id IN " + placeholders(userIds.size()),
+                    rs -> {
+                        owners.add(rs.getLong(1));
+                    }, userIds.toArray());
+        }
+        return owners;
+    }
+
+    private static String placeholders(int count) {
+        StringJoiner sql = new StringJoiner(", ", "(", ")");
+        for (int i = 0; i < count; i++) {
+            sql.add("?");
+        }
+        return sql.toString();
+    }
+
+    // Rows read since the last commit, with those rejected while parsing
+    private static final class Chunk {
+        final long firstLine;
+        long lastLine;
+        final List<DepositRow> rows = new ArrayList<>();
+        final List<DepositBatchDTO.RowError> errors = new ArrayList<>();
+
+        Chunk(long firstLine) {
+            this.firstLine = firstLine;
+            this.lastLine = firstLine;
+        }
+
+        void add(DepositRow row) {
+            rows.add(row);
+            lastLine = row.line;
+        }
+
+        void reject(long line, String message) {
+            errors.add(new DepositBatchDTO.RowError(line, message));
+            lastLine = line;
+        }
+
+        int size() {
+            return rows.size() + errors.size();
+        }
+
+        Set<Long> userIds() {
+            Set<Long> userIds = new HashSet<>();
+            rows.forEach(row -> userIds.add(row.userId));
+            return userIds;
+        }
+    }
+
+    private record DepositRow(long line, Long userId, Double amount, String description) {
+    }
+
+    private static final class RowParseException extends RuntimeException {
+        final long line;
+
+        RowParseException(long line, String message) {
+            super(message);
+            this.line = line;
+        }
+    }
+
+    private interface RowSource {
+        // Null at the end of the input
+        DepositRow next() throws IOException;
+    }
+
+    // One JSON object per line: {"userId": 1, "amount": 5.0, "description": "..."}
+    private static final class NdjsonRowSource implements RowSource {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private long line;
+
+        NdjsonRowSource(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public DepositRow next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.isBlank());
+
+            try {
+                JsonNode node = objectMapper.readTree(text);
+                if (!node.isObject()) {
+                    throw new RowParseException(line, "Expected a JSON object");
+                }
+                JsonNode userId = node.get("userId");
+                JsonNode amount = node.get("amount");
+                JsonNode description = node.get("description");
+                // asLong and asDouble would quietly turn "12" or "abc" into a number, 0 for the latter
+                if (isPresent(userId) && !(userId.isIntegralNumber() && userId.canConvertToLong())) {
+                    throw new RowParseException(line, "userId: must be a whole number");
+                }
+                if (isPresent(amount) && !amount.isNumber()) {
+                    throw new RowParseException(line, "amount: must be a number");
+                }
+                if (isPresent(description) && !description.isTextual()) {
+                    throw new RowParseException(line, "description: must be a string");
+                }
+                return new DepositRow(line,
+                        isPresent(userId) ? userId.asLong() : null,
+                        isPresent(amount) ? amount.asDouble() : null,
+                        isPresent(description) ? description.asText() : null);
+            } catch (JsonProcessingException e) {
+                throw new RowParseException(line, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        private static boolean isPresent(JsonNode value) {
+            return value != null && !value.isNull();
+        }
+    }
+
+    // CSV with a header row naming the columns userId, amount and (optionally) description
+    private static final class CsvRowSource implements RowSource {
+        private final CsvReader csv;
+        private Map<String, Integer> columns;
+
+        CsvRowSource(BufferedReader reader) {
+            this.csv = new CsvReader(reader);
+        }
+
+        @Override
+        public DepositRow next() throws IOException {
+            if (columns == null) {
+                columns = csv.readHeader();
+                if (columns == null) {
+                    return null;
+                }
+            }
+
+            List<String> record = csv.readNonBlankRecord();
+            if (record == null) {
+                return null;
+            }
+
+            long recordLine = csv.line();
+            try {
+                String userId = CsvReader.field(columns, record, "userid");
+                String amount = CsvReader.field(columns, record, "amount");
+                return new DepositRow(recordLine,
+                        userId == null ? null : Long.valueOf(userId.trim()),
+                        amount == null ? null : Double.valueOf(amount.trim()),
+                        CsvReader.field(columns, record, "description"));
+            } catch (NumberFormatException e) {
+                throw new RowParseException(recordLine, "Invalid number: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductFacetsDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Columnar in-memory snapshot of the catalog (one primitive array per attribute, one slot per
+// product) so facet counts are a single sequential pass instead of extra SQL queries.
+@Component
+public class CatalogFacetIndex {
+
+    private static final int MAX_PRICE_BUCKETS = 200;
+    private static final int NO_CATEGORY = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Product columns, indexed by slot
+    private long[] productIds = new long[16];
+    private String[] names = new String[16];
+    private int[] categoryOrdinals = new int[16];
+    private double[] prices = new double[16];
+    private int[] stocks = new int[16];
+    private boolean[] live = new boolean[16];
+    private int slots;
+    private int liveCount;
+    private final Map<Long, Integer> slotByProductId = new HashMap<>();
+
+    // Category dictionary, indexed by ordinal
+    private long[] categoryIds = new long[16];
+    private String[] categoryNames = new String[16];
+    private int categoryCount;
+    private final Map<Long, Integer> ordinalByCategoryId = new HashMap<>();
+
+    public void replaceAll(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            slots = 0;
+            liveCount = 0;
+            slotByProductId.clear();
+            categoryCount = 0;
+            ordinalByCategoryId.clear();
+            for (Product product : products) {
+                putInternal(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            putInternal(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByProductId.remove(productId);
+            if (slot != null) {
+                live[slot] = false;
+                names[slot] = null;
+                liveCount--;
+                compactIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeCategory(Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalByCategoryId.get(categoryId);
+            if (ordinal == null) {
+                return;
+            }
+            for (int slot = 0; slot < slots; slot++) {
+                if (live[slot] && categoryOrdinals[slot] == ordinal) {
+                    slotByProductId.remove(productIds[slot]);
+                    live[slot] = false;
+                    names[slot] = null;
+                    liveCount--;
+                }
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void adjustStock(Long productId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByProductId.get(productId);
+            if (slot != null) {
+                stocks[slot] += delta;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Snapshot stock of a product, or null when the product is not in the index
+    public Integer stockOf(Long productId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByProductId.get(productId);
+            return slot == null ? null : stocks[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Same filters as ProductRepository.advancedSearch. Category counts ignore the category
+    // filter so a storefront can show how many hits every other category would give.
+    public ProductFacetsDTO computeFacets(String name, Long categoryId, Double minPrice, Double maxPrice,
+                                         double priceInterval) {
+        if (priceInterval <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Price interval must be positive");
+        }
+        String needle = name == null ? null : name.toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            int categoryFilter = NO_CATEGORY;
+            if (categoryId != null) {
+                Integer ordinal = ordinalByCategoryId.get(categoryId);
+                categoryFilter = ordinal == null ? Integer.MIN_VALUE : ordinal;
+            }
+
+            int[] categoryHits = new int[categoryCount];
+            int[] priceHits = new int[8];
+            int usedBuckets = 0;
+            long matches = 0;
+            long inStock = 0;
+
+            for (int slot = 0; slot < slots; slot++) {
+                if (!live[slot]) {
+                    continue;
+                }
+                double price = prices[slot];
+                if ((minPrice != null && price < minPrice) || (maxPrice != null && price > maxPrice)) {
+                    continue;
+                }
+                if (needle != null && !names[slot].contains(needle)) {
+                    continue;
+                }
+
+                int ordinal = categoryOrdinals[slot];
+                if (ordinal != NO_CATEGORY) {
+                    categoryHits[ordinal]++;
+                }
+                if (categoryId != null && ordinal != categoryFilter) {
+                    continue;
+                }
+
+                matches++;
+                if (stocks[slot] > 0) {
+                    inStock++;
+                }
+
+                int bucket = (int) Math.min(Math.max(price, 0) / priceInterval, MAX_PRICE_BUCKETS - 1);
+                if (bucket >= priceHits.length) {
+                    priceHits = Arrays.copyOf(priceHits, Math.min(Math.max(bucket + 1, priceHits.length * 2), MAX_PRICE_BUCKETS));
+                }
+                priceHits[bucket]++;
+                usedBuckets = Math.max(usedBuckets, bucket + 1);
+            }
+
+            List<ProductFacetsDTO.CategoryFacet> categories = new ArrayList<>();
+            for (int ordinal = 0; ordinal < categoryCount; ordinal++) {
+                if (categoryHits[ordinal] > 0) {
+                    categories.add(new ProductFacetsDTO.CategoryFacet(
+                            categoryIds[ordinal], categoryNames[ordinal], categoryHits[ordinal]));
+                }
+            }
+
+            List<ProductFacetsDTO.PriceBucket> histogram = new ArrayList<>();
+            for (int bucket = 0; bucket < usedBuckets; bucket++) {
+                if (priceHits[bucket] > 0) {
+                    boolean last = bucket == MAX_PRICE_BUCKETS - 1;
+                    histogram.add(new ProductFacetsDTO.PriceBucket(
+                            bucket * priceInterval, last ? null : (bucket + 1) * priceInterval, priceHits[bucket]));
+                }
+            }
+
+            return new ProductFacetsDTO(matches, inStock, matches - inStock, categories, histogram);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putInternal(Product product) {
+        Integer slot = slotByProductId.get(product.getId());
+        if (slot == null) {
+            ensureSlotCapacity(slots + 1);
+            slot = slots++;
+            slotByProductId.put(product.getId(), slot);
+            liveCount++;
+        }
+
+        productIds[slot] = product.getId();
+        names[slot] = product.getName() == null ? "" : product.getName().toLowerCase(Locale.ROOT);
+        categoryOrdinals[slot] = categoryOrdinal(product.getCategory());
+        prices[slot] = product.getPrice() == null ? 0 : product.getPrice();
+        stocks[slot] = product.getStock() == null ? 0 : product.getStock();
+        live[slot] = true;
+    }
+
+    private int categoryOrdinal(Category category) {
+        if (category == null || category.getId() == null) {
+            return NO_CATEGORY;
+        }
+
+        Integer ordinal = ordinalByCategoryId.get(category.getId());
+        if (ordinal == null) {
+            if (categoryCount == categoryIds.length) {
+                categoryIds = Arrays.copyOf(categoryIds, categoryCount * 2);
+                categoryNames = Arrays.copyOf(categoryNames, categoryCount * 2);
+            }
+            ordinal = categoryCount++;
+            categoryIds[ordinal] = category.getId();
+            ordinalByCategoryId.put(category.getId(), ordinal);
+        }
+        // Keep the latest name in case the category was renamed
+        categoryNames[ordinal] = category.getName();
+        return ordinal;
+    }
+
+    private void ensureSlotCapacity(int capacity) {
+        if (capacity <= productIds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, productIds.length * 2);
+        productIds = Arrays.copyOf(productIds, newLength);
+        names = Arrays.copyOf(names, newLength);
+        categoryOrdinals = Arrays.copyOf(categoryOrdinals, newLength);
+        prices = Arrays.copyOf(prices, newLength);
+        stocks = Arrays.copyOf(stocks, newLength);
+        live = Arrays.copyOf(live, newLength);
+    }
+
+    // Squeeze out deleted slots once they make up more than half of the arrays
+    private void compactIfSparse() {
+        if (slots < 64 || liveCount * 2 > slots) {
+            return;
+        }
+
+        int target = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (!live[slot]) {
+                continue;
+            }
+            if (target != slot) {
+                productIds[target] = productIds[slot];
+                names[target] = names[slot];
+                categoryOrdinals[target] = categoryOrdinals[slot];
+                prices[target] = prices[slot];
+                stocks[target] = stocks[slot];
+                live[target] = true;
+                slotByProductId.put(productIds[target], target);
+            }
+            target++;
+        }
+        for (int slot = target; slot < slots; slot++) {
+            live[slot] = false;
+            names[slot] = null;
+        }
+        slots = target;
+    }
+}
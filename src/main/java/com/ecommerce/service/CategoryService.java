@@ -0,0 +1,67 @@
+package com.ecommerce.service;
+
+import com.ecommerce.config.CacheConfig;
+import com.ecommerce.model.Category;
+import com.ecommerce.repository.CategoryRepository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class CategoryService {
+
+    private final CategoryRepository categoryRepository;
+
+    public CategoryService(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    @Cacheable(cacheNames = CacheConfig.CATEGORY_LIST, key = "'all'")
+    public List<Category> getAllCategories() {
+        return categoryRepository.findAll();
+    }
+
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "#id")
+    public Optional<Category> getCategoryById(Long id) {
+        return categoryRepository.findById(id);
+    }
+
+    @Caching(
+        put = @CachePut(cacheNames = CacheConfig.CATEGORIES, key = "#result.id"),
+        evict = @CacheEvict(cacheNames = CacheConfig.CATEGORY_LIST, allEntries = true)
+    )
+    public Category createCategory(Category category) {
+        return categoryRepository.save(category);
+    }
+
+    // Cached products embed their category, so a rename invalidates them too
+    @Caching(
+        put = @CachePut(cacheNames = CacheConfig.CATEGORIES, key = "#id"),
+        evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORY_LIST, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTS, allEntries = true)
+        }
+    )
+    public Category updateCategory(Long id, String name) {
+        Category category = categoryRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Category not found"));
+
+        category.setName(name);
+        return categoryRepository.save(category);
+    }
+
+    // Deleting a category removes its products as well
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.CATEGORIES, key = "#id"),
+        @CacheEvict(cacheNames = CacheConfig.CATEGORY_LIST, allEntries = true),
+        @CacheEvict(cacheNames = CacheConfig.PRODUCTS, allEntries = true)
+    })
+    public void deleteCategory(Long id) {
+        categoryRepository.deleteById(id);
+    }
+}
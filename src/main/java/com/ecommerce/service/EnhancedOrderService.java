@@ -2,36 +2,60 @@ package com.ecommerce.service;
 
 import com.ecommerce.dto.OrderItemDTO;
 import com.ecommerce.dto.OrderRequestDTO;
-import com.ecommerce.exception.InsufficientStockException;
+import com.ecommerce.dto.OrderResponseDTO;
 import com.ecommerce.exception.ResourceNotFoundException;
 import com.ecommerce.model.*;
 import com.ecommerce.repository.*;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class EnhancedOrderService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Open ends of an admin listing's time range, within what a DATETIME column can hold
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 1, 1, 0, 0);
+
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
-    private final WalletRepository walletRepository;
-    private final TransactionRepository transactionRepository;
+    private final WalletService walletService;
+    private final ProductService productService;
+    private final StockService stockService;
+    private final StockReservationService reservationService;
+    private final WalletRetryExecutor walletRetry;
 
     public EnhancedOrderService(OrderRepository orderRepository, 
                                 ProductRepository productRepository, 
                                 UserRepository userRepository,
-                                WalletRepository walletRepository,
-                                TransactionRepository transactionRepository) {
+                                WalletService walletService,
+                                ProductService productService,
+                                StockService stockService,
+                                StockReservationService reservationService,
+                                WalletRetryExecutor walletRetry) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
-        this.walletRepository = walletRepository;
-        this.transactionRepository = transactionRepository;
+        this.walletService = walletService;
+        this.productService = productService;
+        this.stockService = stockService;
+        this.reservationService = reservationService;
+        this.walletRetry = walletRetry;
     }
 
     @Transactional
@@ -47,13 +71,14 @@ public class EnhancedOrderService {
         List<OrderItem> orderItems = new ArrayList<>();
         double totalPrice = 0.0;
 
-        for (OrderItemDTO itemDTO : orderRequestDTO.getOrderItems()) {
-            Product product = productRepository.findById(itemDTO.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        // Stock is only taken at payment, so the products are read without locks
+        Map<Long, Product> products = productService.getProductsForOrder(
+                orderRequestDTO.getOrderItems().stream().map(OrderItemDTO::getProductId).toList());
+        Map<Long, Integer> quantities = new HashMap<>();
 
-            if (product.getStock() < itemDTO.getQuantity()) {
-                throw new InsufficientStockException("Not enough stock for product: " + product.getName());
-            }
+        for (OrderItemDTO itemDTO : orderRequestDTO.getOrderItems()) {
+            Product product = products.get(itemDTO.getProductId());
+            quantities.merge(product.getId(), itemDTO.getQuantity(), Integer::sum);
 
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
@@ -68,11 +93,19 @@ public class EnhancedOrderService {
         order.setOrderItems(orderItems);
         order.setTotalPrice(totalPrice);
 
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        // Holds the units until payment; throws when a product is short, rolling back the order
+        reservationService.reserve(savedOrder.getId(), quantities, products);
+        return savedOrder;
     }
 
-    @Transactional
+    // Payments, refunds and deposits all change the wallet balance, so each runs in a
+    // transaction that WalletRetryExecutor repeats when the wallet's version moved on
     public Order payForOrder(Long orderId, Long userId) {
+        return walletRetry.run(() -> pay(orderId, userId));
+    }
+
+    private Order pay(Long orderId, Long userId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
@@ -84,48 +117,34 @@ public class EnhancedOrderService {
             throw new IllegalArgumentException("Order is not in PENDING status");
         }
 
-        Wallet wallet = walletRepository.findByUserId(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user"));
-
-        if (!wallet.hasSufficientBalance(order.getTotalPrice())) {
-            throw new InsufficientStockException("Insufficient wallet balance. Required: " + 
-                    order.getTotalPrice() + ", Available: " + wallet.getBalance());
+        // Guards against the reservation expiring and cancelling the order in the meantime
+        if (orderRepository.updateStatusIfCurrent(orderId, OrderStatus.PENDING, OrderStatus.PAID) == 0) {
+            throw new IllegalArgumentException("Order is not in PENDING status");
         }
 
-        wallet.withdraw(order.getTotalPrice());
-        walletRepository.save(wallet);
+        // Throws when the balance is short, rolling back the status change
+        walletService.chargeForOrder(order);
 
-        for (OrderItem item : order.getOrderItems()) {
-            Product product = item.getProduct();
-            product.setStock(product.getStock() - item.getQuantity());
-            productRepository.save(product);
-        }
+        reservationService.release(order.getId());
+        stockService.takeStock(quantitiesOf(order));
 
         order.setStatus(OrderStatus.PAID);
         order.setPaidAt(LocalDateTime.now());
-        Order paidOrder = orderRepository.save(order);
-
-        Transaction transaction = new Transaction(
-                order.getUser(),
-                Transaction.TransactionType.PAYMENT,
-                order.getTotalPrice(),
-                "Payment for Order #" + order.getId(),
-                wallet.getBalance()
-        );
-        transaction.setOrder(order);
-        transactionRepository.save(transaction);
-
-        return paidOrder;
+        return orderRepository.save(order);
     }
 
-    @Transactional
     public Order createAndPayOrder(OrderRequestDTO orderRequestDTO) {
-        Order order = createOrder(orderRequestDTO);
-        return payForOrder(order.getId(), orderRequestDTO.getUserId());
+        return walletRetry.run(() -> {
+            Order order = createOrder(orderRequestDTO);
+            return pay(order.getId(), orderRequestDTO.getUserId());
+        });
     }
 
-    @Transactional
     public Order cancelOrder(Long orderId, Long userId) {
+        return walletRetry.run(() -> cancel(orderId, userId));
+    }
+
+    private Order cancel(Long orderId, Long userId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
@@ -133,37 +152,23 @@ public class EnhancedOrderService {
             throw new IllegalArgumentException("Order does not belong to this user");
         }
 
-        if (order.getStatus() == OrderStatus.DELIVERED) {
-            throw new IllegalArgumentException("Cannot cancel delivered order");
+        OrderStatus current = order.getStatus();
+        OrderStatus next = current.cancellationStatus();
+        if (next == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot cancel an order in " + current + " status");
+        }
+        // Guards against the order being paid, shipped or expired in the meantime
+        if (orderRepository.updateStatusIfCurrent(orderId, current, next) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order status changed, retry the cancellation");
         }
 
-        if (order.getStatus() == OrderStatus.PAID || order.getStatus() == OrderStatus.PROCESSING) {
-            Wallet wallet = walletRepository.findByUserId(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Wallet not found"));
-
-            wallet.deposit(order.getTotalPrice());
-            walletRepository.save(wallet);
-
-            for (OrderItem item : order.getOrderItems()) {
-                Product product = item.getProduct();
-                product.setStock(product.getStock() + item.getQuantity());
-                productRepository.save(product);
-            }
-
-            Transaction transaction = new Transaction(
-                    order.getUser(),
-                    Transaction.TransactionType.REFUND,
-                    order.getTotalPrice(),
-                    "Refund for cancelled Order #" + order.getId(),
-                    wallet.getBalance()
-            );
-            transaction.setOrder(order);
-            transactionRepository.save(transaction);
-
-            order.setStatus(OrderStatus.REFUNDED);
+        if (next == OrderStatus.REFUNDED) {
+            walletService.refundOrder(order);
+            stockService.returnStock(quantitiesOf(order));
         } else {
-            order.setStatus(OrderStatus.CANCELLED);
+            reservationService.release(order.getId());
         }
+        order.setStatus(next);
 
         return orderRepository.save(order);
     }
@@ -173,20 +178,82 @@ public class EnhancedOrderService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
+        // Paying, cancelling and refunding move money and stock too, so only fulfillment steps are allowed here
+        if (!order.getStatus().isFulfillmentStep(newStatus)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Order cannot move from " + order.getStatus() + " to " + newStatus);
+        }
         order.setStatus(newStatus);
         return orderRepository.save(order);
     }
 
+    // Units per product id over all lines of the order
+    private static Map<Long, Integer> quantitiesOf(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
     public Order getOrderById(Long orderId) {
-        return orderRepository.findById(orderId)
+        return orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
     }
 
     public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+        return orderRepository.findAllWithItems();
     }
 
     public List<Order> getOrdersByUserId(Long userId) {
-        return orderRepository.findByUserId(userId);
+        return orderRepository.findWithItemsByUserId(userId);
+    }
+
+    // Listings straight into response DTOs, one query each
+    public List<OrderResponseDTO> getAllOrderResponses() {
+        return OrderResponseDTO.fromLines(orderRepository.findAllLines());
+    }
+
+    public List<OrderResponseDTO> getOrderResponsesByUserId(Long userId) {
+        return OrderResponseDTO.fromLines(orderRepository.findLinesByUserId(userId));
+    }
+
+    // One page of an admin listing, optionally limited to a status and to created_at in
+    // [from, to). Newest first unless ascending. Pages seek past the (createdAt, id) of the
+    // previous page's last order, so the hundredth page costs the same as the first.
+    public Slice<OrderResponseDTO> getOrdersPage(OrderStatus status, LocalDateTime from, LocalDateTime to,
+                                                 boolean ascending, LocalDateTime afterCreatedAt, Long afterId,
+                                                 int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        LocalDateTime lower = from == null ? EARLIEST : from;
+        LocalDateTime upper = to == null ? LATEST : to;
+        // Without a cursor, start from the near end of the range (inclusive for from, exclusive for to)
+        LocalDateTime cursorAt = afterCreatedAt != null ? afterCreatedAt : ascending ? lower : upper;
+        Long cursorId = afterCreatedAt != null && afterId != null ? afterId : Long.MIN_VALUE;
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<Long> ids;
+        if (ascending) {
+            ids = status == null
+                    ? orderRepository.findIdsAfter(upper, cursorAt, cursorId, limit)
+                    : orderRepository.findIdsByStatusAfter(status, upper, cursorAt, cursorId, limit);
+        } else {
+            ids = status == null
+                    ? orderRepository.findIdsBefore(lower, cursorAt, cursorId, limit)
+                    : orderRepository.findIdsByStatusBefore(status, lower, cursorAt, cursorId, limit);
+        }
+
+        boolean hasNext = ids.size() > pageSize;
+        if (hasNext) {
+            ids = ids.subList(0, pageSize);
+        }
+        if (ids.isEmpty()) {
+            return new SliceImpl<>(List.of(), PageRequest.of(0, pageSize), false);
+        }
+
+        Map<Long, OrderResponseDTO> byId = OrderResponseDTO.fromLines(orderRepository.findLinesByOrderIds(ids)).stream()
+                .collect(Collectors.toMap(OrderResponseDTO::getOrderId, Function.identity()));
+        List<OrderResponseDTO> content = ids.stream().map(byId::get).toList();
+        return new SliceImpl<>(content, PageRequest.of(0, pageSize), hasNext);
     }
 }
@@ -0,0 +1,268 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.IdempotencyRecord;
+import com.ecommerce.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Makes POST endpoints safe to retry. The first request with a given Idempotency-Key claims it
+// in the database and runs; its response is stored in the same transaction as its changes, and
+// retries get that response back without the service being called again. Recent responses are also kept in a bounded in-memory cache.
+// A key only has to be unique per caller and endpoint. While a request runs, its instance keeps
+// the claim's heartbeat fresh, so however long it takes it is never run a second time; a claim
+// is only taken over once its heartbeat is lock-timeout old, i.e. its instance died.
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final WalletRetryExecutor walletRetry;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final Cache<String, IdempotencyRecord> completed;
+
+    // Scoped keys of the requests running on this instance
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public IdempotencyService(IdempotencyRecordRepository recordRepository, JdbcTemplate jdbcTemplate,
+                              WalletRetryExecutor walletRetry, ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.lock-timeout:60s}") Duration lockTimeout,
+                              @Value("${idempotency.heartbeat-interval-ms:10000}") long heartbeatIntervalMillis,
+                              @Value("${idempotency.cache-size:10000}") long cacheSize) {
+        if (lockTimeout.toMillis() < 3 * heartbeatIntervalMillis) {
+            // A claim must survive a missed heartbeat or two without looking abandoned
+            throw new IllegalArgumentException("idempotency.lock-timeout must be at least three heartbeat intervals");
+        }
+        this.recordRepository = recordRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.walletRetry = walletRetry;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Runs the action once per key, caller and scope (endpoint and path variables). The scope
+    // and the request body make up a fingerprint, so a key reused for a different request is
+    // rejected.
+    public ResponseEntity<?> execute(String key, String scope, Object request, Supplier<? extends ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String fingerprint = digest(scope, toJson(request));
+        String scopedKey = digest(caller(), scope, key);
+
+        IdempotencyRecord cached = completed.getIfPresent(scopedKey);
+        if (cached != null) {
+            return replay(cached, fingerprint);
+        }
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            // Stored exactly, so the claim can be matched on it later
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            try {
+                jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, fingerprint, created_at, expires_at, " +
+                        "heartbeat_at) VALUES (?, ?, ?, ?, ?)", scopedKey, fingerprint, Timestamp.valueOf(now),
+                        Timestamp.valueOf(now.plus(ttl)), Timestamp.valueOf(now));
+            } catch (DuplicateKeyException e) {
+                IdempotencyRecord existing = recordRepository.findById(scopedKey).orElse(null);
+                if (existing == null) {
+                    continue;
+                }
+                if (existing.isCompleted() && existing.getExpiresAt().isAfter(now)) {
+                    completed.put(scopedKey, existing);
+                    return replay(existing, fingerprint);
+                }
+                if (existing.isOutcomeUnknown() && existing.getExpiresAt().isAfter(now)) {
+                    checkFingerprint(existing, fingerprint);
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "The request with this " + HEADER +
+                            " failed and may still have taken effect; check before sending it with a new key");
+                }
+                LocalDateTime heartbeat = existing.getHeartbeatAt() != null ? existing.getHeartbeatAt() : existing.getCreatedAt();
+                if (!existing.isCompleted() && heartbeat.isAfter(now.minus(lockTimeout))) {
+                    checkFingerprint(existing, fingerprint);
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "A request with this " + HEADER + " is still being processed");
+                }
+                // Expired, or claimed by an instance that stopped sending heartbeats: take it
+                // over, unless a heartbeat came in since it was read
+                jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND created_at = ? " +
+                        "AND COALESCE(heartbeat_at, created_at) = ?",
+                        scopedKey, Timestamp.valueOf(existing.getCreatedAt()), Timestamp.valueOf(heartbeat));
+                continue;
+            }
+            return run(scopedKey, fingerprint, now, action);
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT,
+                "A request with this " + HEADER + " is still being processed");
+    }
+
+    // Keeps the claims of the requests running here from looking abandoned
+    @Scheduled(fixedDelayString = "${idempotency.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        List<String> keys = new ArrayList<>(inFlight);
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>(keys.size() + 1);
+        args.add(Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS)));
+        args.addAll(keys);
+        jdbcTemplate.update("UPDATE idempotency_keys SET heartbeat_at = ? WHERE response_status IS NULL " +
+                "AND idempotency_key IN (" + String.join(", ", Collections.nCopies(keys.size(), "?")) + ")",
+                args.toArray());
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        recordRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private ResponseEntity<?> run(String key, String fingerprint, LocalDateTime claimedAt,
+                                  Supplier<? extends ResponseEntity<?>> action) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setKey(key);
+        record.setFingerprint(fingerprint);
+        record.setCreatedAt(claimedAt);
+        record.setExpiresAt(claimedAt.plus(ttl));
+
+        ResponseEntity<?> response;
+        inFlight.add(key);
+        try {
+            // The response commits with the action's changes, so a retry never finds one
+            // without the other. A wallet version conflict repeats the lot.
+            response = walletRetry.run(() -> {
+                ResponseEntity<?> result = action.get();
+                record.setResponseStatus(result.getStatusCode().value());
+                record.setResponseBody(toJson(result.getBody()));
+                URI location = result.getHeaders().getLocation();
+                record.setResponseLocation(location == null ? null : location.toString());
+
+                int stored = jdbcTemplate.update("UPDATE idempotency_keys SET response_status = ?, response_body = ?, " +
+                        "response_location = ? WHERE idempotency_key = ? AND created_at = ?", record.getResponseStatus(),
+                        record.getResponseBody(), record.getResponseLocation(), key, Timestamp.valueOf(claimedAt));
+                if (stored == 0) {
+                    // Taken over as abandoned meanwhile; rolling back keeps the request from running twice
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "A request with this " + HEADER + " is still being processed");
+                }
+                return result;
+            });
+        } catch (RuntimeException e) {
+            if (outcomeUnknown(e)) {
+                // Running it again could apply it twice, so the claim stays until it expires
+                jdbcTemplate.update("UPDATE idempotency_keys SET outcome_unknown = TRUE " +
+                        "WHERE idempotency_key = ? AND created_at = ?", key, Timestamp.valueOf(claimedAt));
+            } else {
+                // Nothing was committed, so the key is freed and a retry runs the request again
+                jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND created_at = ?",
+                        key, Timestamp.valueOf(claimedAt));
+            }
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+
+        completed.put(key, record);
+        return response;
+    }
+
+    // Failures after which the action may have taken effect anyway: a 5xx from a service that
+    // hands work to another thread, or a transaction that timed out or failed to commit
+    private static boolean outcomeUnknown(RuntimeException e) {
+        if (e instanceof ResponseStatusException status) {
+            return status.getStatusCode().is5xxServerError();
+        }
+        return e instanceof TransactionTimedOutException || e instanceof TransactionSystemException
+                || e instanceof QueryTimeoutException;
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord record, String fingerprint) {
+        checkFingerprint(record, fingerprint);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(record.getResponseStatus())
+                .contentType(MediaType.APPLICATION_JSON);
+        if (record.getResponseLocation() != null) {
+            builder.header(HttpHeaders.LOCATION, record.getResponseLocation());
+        }
+        return builder.body(record.getResponseBody());
+    }
+
+    private static void checkFingerprint(IdempotencyRecord record, String fingerprint) {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used for a different request");
+        }
+    }
+
+    // The authenticated user; anonymous requests share one scope
+    private static String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "" : authentication.getName();
+    }
+
+    // SHA-256 over the parts, one per line
+    private static String digest(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response for " + HEADER, e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.BulkStatusUpdateRequestDTO;
+import com.ecommerce.dto.BulkStatusUpdateResultDTO;
+import com.ecommerce.model.OrderStatus;
+import com.ecommerce.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+// Moves orders through fulfillment (PAID -> PROCESSING -> SHIPPED -> DELIVERED) in bulk.
+// Orders are handled in chunks, each checked against the OrderStatus state machine and then
+// changed with one guarded UPDATE in its own transaction, so a large request never holds
+// row locks on more than a chunk at a time.
+@Service
+public class OrderFulfillmentService {
+
+    // Open ends of a filter's time range, as in EnhancedOrderService
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxOrders;
+
+    public OrderFulfillmentService(OrderRepository orderRepository, TransactionTemplate transactionTemplate,
+                                   @Value("${orders.bulk-status.chunk-size:500}") int chunkSize,
+                                   @Value("${orders.bulk-status.max-orders:10000}") int maxOrders) {
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.maxOrders = maxOrders;
+    }
+
+    public BulkStatusUpdateResultDTO updateStatuses(BulkStatusUpdateRequestDTO request) {
+        OrderStatus target = request.getTargetStatus();
+        if (target.fulfillmentPredecessors().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Orders cannot be moved to " + target + " in bulk; use the order's own endpoint");
+        }
+        boolean byIds = request.getOrderIds() != null && !request.getOrderIds().isEmpty();
+        if (byIds == (request.getCurrentStatus() != null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Give either orderIds or currentStatus");
+        }
+
+        BulkStatusUpdateResultDTO result = new BulkStatusUpdateResultDTO(target);
+        if (byIds) {
+            updateListed(request.getOrderIds(), target, result);
+        } else {
+            updateMatching(request.getCurrentStatus(), request.getFrom(), request.getTo(), target, result);
+        }
+        return result;
+    }
+
+    private void updateListed(List<Long> orderIds, OrderStatus target, BulkStatusUpdateResultDTO result) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        if (ids.size() > maxOrders) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxOrders + " orders can be updated per request");
+        }
+        for (int start = 0; start < ids.size(); start += chunkSize) {
+            List<Long> chunk = ids.subList(start, Math.min(start + chunkSize, ids.size()));
+            transactionTemplate.executeWithoutResult(status -> updateChunk(chunk, target, result));
+        }
+    }
+
+    // Takes the oldest matching orders a chunk at a time. Updated orders leave currentStatus,
+    // so every round starts again from the beginning of the range.
+    private void updateMatching(OrderStatus current, LocalDateTime from, LocalDateTime to,
+                                OrderStatus target, BulkStatusUpdateResultDTO result) {
+        if (!current.isFulfillmentStep(target)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Orders cannot move from " + current + " to " + target);
+        }
+        LocalDateTime lower = from == null ? EARLIEST : from;
+        LocalDateTime upper = to == null ? LATEST : to;
+
+        int seen = 0;
+        while (seen < maxOrders) {
+            PageRequest limit = PageRequest.of(0, Math.min(chunkSize, maxOrders - seen));
+            List<Long> chunk = orderRepository.findIdsByStatusAfter(current, upper, lower, Long.MIN_VALUE, limit);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> updateChunk(chunk, target, result));
+            seen += chunk.size();
+        }
+    }
+
+    private void updateChunk(List<Long> ids, OrderStatus target, BulkStatusUpdateResultDTO result) {
+        Map<Long, OrderStatus> statuses = statusesOf(ids);
+        List<Long> eligible = new ArrayList<>();
+        for (Long id : ids) {
+            OrderStatus current = statuses.get(id);
+            if (current == null) {
+                reject(result, id, null, "Order not found");
+            } else if (!current.isFulfillmentStep(target)) {
+                reject(result, id, current, "Cannot move from " + current + " to " + target);
+            } else {
+                eligible.add(id);
+            }
+        }
+        if (eligible.isEmpty()) {
+            return;
+        }
+
+        int updated = orderRepository.updateStatusInBulk(eligible, target.fulfillmentPredecessors(), target,
+                LocalDateTime.now());
+        if (updated < eligible.size()) {
+            // Some orders changed status between the read and the update; find out which
+            Map<Long, OrderStatus> after = statusesOf(eligible);
+            for (Long id : eligible) {
+                OrderStatus now = after.get(id);
+                if (now != target) {
+                    reject(result, id, now, "Status changed while updating");
+                }
+            }
+        }
+        result.setUpdated(result.getUpdated() + updated);
+    }
+
+    private Map<Long, OrderStatus> statusesOf(List<Long> ids) {
+        Map<Long, OrderStatus> statuses = new HashMap<>();
+        for (Object[] row : orderRepository.findStatusesByIdIn(ids)) {
+            statuses.put((Long) row[0], (OrderStatus) row[1]);
+        }
+        return statuses;
+    }
+
+    private static void reject(BulkStatusUpdateResultDTO result, Long id, OrderStatus current, String reason) {
+        result.getRejected().add(new BulkStatusUpdateResultDTO.Rejection(id, current, reason));
+    }
+}
@@ -0,0 +1,222 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderJobDTO;
+import com.ecommerce.dto.OrderRequestDTO;
+import com.ecommerce.exception.ResourceNotFoundException;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderJob;
+import com.ecommerce.repository.OrderJobRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Accepts orders without waiting for the database work. A submitted order is stored as an
+// order_jobs row and handed to a pool of virtual-thread workers that run EnhancedOrderService;
+// clients poll the job for the outcome. When queue-capacity jobs are outstanding, new
+// submissions are turned away with 429 instead of piling up. Jobs left unfinished by a restart
+// count against the same capacity: they are queued a page at a time as workers free up.
+@Service
+public class OrderJobService {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final List<OrderJob.JobStatus> UNFINISHED = List.of(OrderJob.JobStatus.QUEUED, OrderJob.JobStatus.RUNNING);
+
+    private final OrderJobRepository jobRepository;
+    private final EnhancedOrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletRetryExecutor walletRetry;
+    private final ObjectMapper objectMapper;
+    private final int workers;
+    private final int queueCapacity;
+
+    private final BlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+    // Jobs accepted but not finished, including the ones being worked on
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final List<Thread> workerThreads = new ArrayList<>();
+
+    // Jobs interrupted by a restart have ids up to recoverUpToId, and the ones up to recoveredId
+    // have been queued; later ids were submitted since the start. Guarded by this.
+    private volatile boolean recovering;
+    private long recoverUpToId;
+    private long recoveredId;
+
+    public OrderJobService(OrderJobRepository jobRepository, EnhancedOrderService orderService,
+                           TransactionTemplate transactionTemplate, WalletRetryExecutor walletRetry,
+                           ObjectMapper objectMapper,
+                           @Value("${orders.async.workers:32}") int workers,
+                           @Value("${orders.async.queue-capacity:1000}") int queueCapacity) {
+        this.jobRepository = jobRepository;
+        this.orderService = orderService;
+        this.transactionTemplate = transactionTemplate;
+        this.walletRetry = walletRetry;
+        this.objectMapper = objectMapper;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWorkers() {
+        if (!workerThreads.isEmpty()) {
+            return;
+        }
+        // Jobs interrupted by a restart; their order work never committed, so they run again
+        Long lastUnfinished = jobRepository.findMaxIdByStatusIn(UNFINISHED);
+        if (lastUnfinished != null) {
+            synchronized (this) {
+                recoverUpToId = lastUnfinished;
+                recovering = true;
+            }
+            recoverMore();
+        }
+
+        Thread.Builder builder = Thread.ofVirtual().name("order-job-", 0);
+        for (int i = 0; i < workers; i++) {
+            workerThreads.add(builder.start(this::work));
+        }
+    }
+
+    @PreDestroy
+    public void stopWorkers() {
+        workerThreads.forEach(Thread::interrupt);
+    }
+
+    public OrderJobDTO submit(OrderRequestDTO request, boolean pay) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize order request", e);
+        }
+
+        if (outstanding.incrementAndGet() > queueCapacity) {
+            outstanding.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Order queue is full, retry later");
+        }
+        OrderJob job;
+        try {
+            OrderJob.JobType type = pay ? OrderJob.JobType.CREATE_AND_PAY : OrderJob.JobType.CREATE;
+            job = jobRepository.save(new OrderJob(type, payload));
+        } catch (RuntimeException e) {
+            outstanding.decrementAndGet();
+            throw e;
+        }
+        // Within a caller's transaction the workers can only see the job once it commits
+        Long jobId = job.getId();
+        TransactionCallbacks.afterCommit(() -> queue.add(jobId));
+        TransactionCallbacks.afterRollback(outstanding::decrementAndGet);
+        return OrderJobDTO.from(job);
+    }
+
+    public OrderJobDTO getJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .map(OrderJobDTO::from)
+                .orElseThrow(() -> new ResourceNotFoundException("Order job not found"));
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Long jobId;
+            try {
+                jobId = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                run(jobId);
+            } catch (RuntimeException e) {
+                // Bookkeeping failed (database down); the job stays QUEUED/RUNNING for the next start
+            } finally {
+                outstanding.decrementAndGet();
+            }
+            recoverMore();
+        }
+    }
+
+    // Queues as many interrupted jobs as there is capacity for
+    private void recoverMore() {
+        if (!recovering) {
+            return;
+        }
+        synchronized (this) {
+            int slots = claimSlots(queueCapacity);
+            if (slots == 0) {
+                return;
+            }
+            List<Long> jobIds;
+            try {
+                jobIds = jobRepository.findIdsByStatusInBetween(UNFINISHED, recoveredId, recoverUpToId,
+                        PageRequest.of(0, slots));
+            } catch (RuntimeException e) {
+                // Database down; tried again when the next job finishes
+                outstanding.addAndGet(-slots);
+                return;
+            }
+            outstanding.addAndGet(jobIds.size() - slots);
+            queue.addAll(jobIds);
+            if (jobIds.size() < slots) {
+                recovering = false;
+            } else {
+                recoveredId = jobIds.get(jobIds.size() - 1);
+            }
+        }
+    }
+
+    // Takes up to wanted free places in the queue; returns how many it got
+    private int claimSlots(int wanted) {
+        while (true) {
+            int current = outstanding.get();
+            int slots = Math.min(wanted, queueCapacity - current);
+            if (slots <= 0) {
+                return 0;
+            }
+            if (outstanding.compareAndSet(current, current + slots)) {
+                return slots;
+            }
+        }
+    }
+
+    private void run(Long jobId) {
+        OrderJob job = transactionTemplate.execute(status -> {
+            OrderJob running = jobRepository.findById(jobId).orElseThrow();
+            running.setStatus(OrderJob.JobStatus.RUNNING);
+            return jobRepository.save(running);
+        });
+
+        try {
+            OrderRequestDTO request = objectMapper.readValue(job.getRequestPayload(), OrderRequestDTO.class);
+            // The order and the job outcome commit together, so a crash in between re-runs the job
+            // rather than creating the order twice. A wallet version conflict repeats the lot.
+            walletRetry.run(() -> {
+                Order order = orderService.createOrder(request);
+                if (job.getType() == OrderJob.JobType.CREATE_AND_PAY) {
+                    order = orderService.payForOrder(order.getId(), request.getUserId());
+                }
+                job.setStatus(OrderJob.JobStatus.SUCCEEDED);
+                job.setOrderId(order.getId());
+                return jobRepository.save(job);
+            });
+        } catch (JsonProcessingException | RuntimeException e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            transactionTemplate.executeWithoutResult(status -> {
+                OrderJob failed = jobRepository.findById(jobId).orElseThrow();
+                failed.setStatus(OrderJob.JobStatus.FAILED);
+                failed.setError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+                jobRepository.save(failed);
+            });
+        }
+    }
+}
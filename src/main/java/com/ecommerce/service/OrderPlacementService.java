@@ -0,0 +1,425 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderItemDTO;
+import com.ecommerce.dto.OrderRequestDTO;
+import com.ecommerce.exception.InsufficientStockException;
+import com.ecommerce.exception.ResourceNotFoundException;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderItem;
+import com.ecommerce.model.OrderStatus;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Places orders for OrderController. With orders.ingest.enabled, concurrent requests are
+// queued and a writer thread coalesces them into batches (up to max-batch orders or max-wait,
+// whichever comes first) that are written in one transaction with batched inserts, so the
+// commit cost is shared by the whole batch. Each caller still gets its own order or error.
+@Service
+public class OrderPlacementService {
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (total_price, user_id, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_item (quantity, price, order_id, product_id) VALUES (?, ?, ?, ?)";
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final StockReservationService reservationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean ingestEnabled;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final int writers;
+    private final long timeoutNanos;
+    private final BlockingQueue<PendingOrder> queue;
+    private final List<Thread> writerThreads = new ArrayList<>();
+
+    public OrderPlacementService(OrderRepository orderRepository, UserRepository userRepository,
+                                 ProductRepository productRepository, ProductService productService,
+                                 StockReservationService reservationService, JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${orders.ingest.enabled:false}") boolean ingestEnabled,
+                                 @Value("${orders.ingest.max-batch:64}") int maxBatch,
+                                 @Value("${orders.ingest.max-wait:2ms}") Duration maxWait,
+                                 @Value("${orders.ingest.writers:2}") int writers,
+                                 @Value("${orders.ingest.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${orders.ingest.timeout:5s}") Duration timeout) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.reservationService = reservationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.ingestEnabled = ingestEnabled;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.writers = writers;
+        this.timeoutNanos = timeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    private static final class PendingOrder {
+        private static final int WAITING = 0;
+        private static final int ABANDONED = 1;
+        private static final int KEPT = 2;
+
+        final OrderRequestDTO request;
+        final CompletableFuture<Order> future = new CompletableFuture<>();
+        // The caller gives up on the order and the writer commits to it with a CAS each, so
+        // exactly one of them wins: an abandoned order is never left written and reserved
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        Order order;
+        RuntimeException error;
+
+        PendingOrder(OrderRequestDTO request) {
+            this.request = request;
+        }
+
+        boolean abandon() {
+            return state.compareAndSet(WAITING, ABANDONED);
+        }
+
+        // False once the caller has abandoned it
+        boolean keep() {
+            return state.compareAndSet(WAITING, KEPT) || state.get() == KEPT;
+        }
+
+        boolean isAbandoned() {
+            return state.get() == ABANDONED;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWriters() {
+        if (!ingestEnabled || !writerThreads.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < writers; i++) {
+            Thread thread = new Thread(this::drainQueue, "order-ingest-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            writerThreads.add(thread);
+        }
+    }
+
+    @PreDestroy
+    public void stopWriters() {
+        writerThreads.forEach(Thread::interrupt);
+    }
+
+    public Order placeOrder(OrderRequestDTO request) {
+        // A caller's transaction (see IdempotencyService) cannot be shared with a batch, so the
+        // order joins it instead
+        if (!ingestEnabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return placeNow(request);
+        }
+        PendingOrder pending = new PendingOrder(request);
+        // A full queue means the writers are saturated; this caller commits on its own
+        if (!queue.offer(pending)) {
+            return placeNow(request);
+        }
+        boolean interrupted = false;
+        try {
+            return pending.future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } catch (TimeoutException e) {
+            // Handled below
+        }
+
+        if (pending.abandon()) {
+            // Still queued it is dropped; already in a batch the writer leaves it out, or takes
+            // it back out along with its reservation if it was written
+            queue.remove(pending);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order was not placed, retry later");
+            }
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order queue is saturated, retry later");
+        }
+        // The writer has already committed to this order, so its outcome is moments away
+        try {
+            return pending.future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+    }
+
+    // One order in its own transaction
+    public Order placeNow(OrderRequestDTO request) {
+        return transactionTemplate.execute(status -> {
+            User user = userRepository.findById(request.getUserId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            // All products in one query, then one reservation covering every line
+            Map<Long, Product> products = productService.getProductsForOrder(
+                    request.getOrderItems().stream().map(OrderItemDTO::getProductId).toList());
+            Order order = buildOrder(request, user, products);
+
+            Order savedOrder = orderRepository.save(order);
+            // Stock is taken when the order is paid; until then its units are held for it.
+            // Throws when a product is short, rolling back the whole order.
+            reservationService.reserve(savedOrder.getId(), quantitiesOf(order), products);
+            return savedOrder;
+        });
+    }
+
+    private void drainQueue() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatch);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    PendingOrder next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        // Callers still waiting are placed one by one rather than left hanging
+        PendingOrder pending;
+        while ((pending = queue.poll()) != null) {
+            completeAlone(pending);
+        }
+    }
+
+    private void writeBatch(List<PendingOrder> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBatch(batch));
+        } catch (RuntimeException e) {
+            // The batch went down as a whole (a constraint, a lost connection): retry every
+            // order in its own transaction so only the one at fault fails
+            batch.forEach(this::completeAlone);
+            return;
+        }
+        for (PendingOrder pending : batch) {
+            if (pending.isAbandoned()) {
+                continue;
+            }
+            if (pending.error != null) {
+                pending.future.completeExceptionally(pending.error);
+            } else {
+                pending.future.complete(pending.order);
+            }
+        }
+    }
+
+    private void completeAlone(PendingOrder pending) {
+        if (!pending.keep()) {
+            return;
+        }
+        try {
+            pending.future.complete(placeNow(pending.request));
+        } catch (RuntimeException e) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    // Orders that are rejected (unknown user or product, short stock) get their error set and
+    // are left out, as are orders their callers abandoned; the rest are written with one
+    // batched insert per table
+    private void insertBatch(List<PendingOrder> batch) {
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        for (PendingOrder pending : batch) {
+            userIds.add(pending.request.getUserId());
+            pending.request.getOrderItems().forEach(item -> productIds.add(item.getProductId()));
+        }
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, user -> user));
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
+
+        List<PendingOrder> accepted = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch) {
+            pending.order = null;
+            pending.error = null;
+            if (pending.isAbandoned()) {
+                continue;
+            }
+            try {
+                User user = users.get(pending.request.getUserId());
+                if (user == null) {
+                    throw new RuntimeException("User not found");
+                }
+                pending.order = buildOrder(pending.request, user, products);
+                accepted.add(pending);
+            } catch (RuntimeException e) {
+                pending.error = e;
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        insertOrders(accepted);
+
+        Map<Long, Map<Long, Integer>> quantitiesByOrder = new HashMap<>();
+        for (PendingOrder pending : accepted) {
+            quantitiesByOrder.put(pending.order.getId(), quantitiesOf(pending.order));
+        }
+        Map<Long, InsufficientStockException> shortOrders = reservationService.reserveAll(quantitiesByOrder, products);
+
+        List<Order> reserved = new ArrayList<>(accepted.size());
+        List<Object[]> rejectedIds = new ArrayList<>();
+        for (PendingOrder pending : accepted) {
+            InsufficientStockException failure = shortOrders.get(pending.order.getId());
+            if (failure == null && pending.keep()) {
+                reserved.add(pending.order);
+            } else {
+                if (failure == null) {
+                    // Abandoned while the batch was written: its units go back before the commit
+                    reservationService.release(pending.order.getId());
+                }
+                rejectedIds.add(new Object[]{pending.order.getId()});
+                pending.order = null;
+                pending.error = failure;
+            }
+        }
+        if (!rejectedIds.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM orders WHERE id = ?", rejectedIds);
+        }
+        insertItems(reserved);
+    }
+
+    private void insertOrders(List<PendingOrder> accepted) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_ORDER_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Order order = accepted.get(i).order;
+                        Timestamp createdAt = Timestamp.valueOf(order.getCreatedAt());
+                        ps.setDouble(1, order.getTotalPrice());
+                        ps.setLong(2, order.getUser().getId());
+                        ps.setString(3, order.getStatus().name());
+                        ps.setTimestamp(4, createdAt);
+                        ps.setTimestamp(5, createdAt);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return accepted.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        for (int i = 0; i < accepted.size(); i++) {
+            Number id = (Number) keyList.get(i).values().iterator().next();
+            Order order = accepted.get(i).order;
+            order.setId(id.longValue());
+            order.setUpdatedAt(order.getCreatedAt());
+        }
+    }
+
+    private void insertItems(List<Order> orders) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Order order : orders) {
+            for (OrderItem item : order.getOrderItems()) {
+                rows.add(new Object[]{item.getQuantity(), item.getPrice(), order.getId(), item.getProduct().getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, rows);
+    }
+
+    private static Order buildOrder(OrderRequestDTO request, User user, Map<Long, Product> products) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setStatus(OrderStatus.PENDING);
+
+        List<OrderItem> orderItems = new ArrayList<>();
+        double totalPrice = 0.0;
+
+        for (OrderItemDTO itemDTO : request.getOrderItems()) {
+            Product product = products.get(itemDTO.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found: " + itemDTO.getProductId());
+            }
+
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(order);
+            orderItem.setProduct(product);
+            orderItem.setQuantity(itemDTO.getQuantity());
+            orderItem.setPrice(product.getPrice());
+
+            totalPrice += product.getPrice() * itemDTO.getQuantity();
+            orderItems.add(orderItem);
+        }
+
+        order.setOrderItems(orderItems);
+        order.setTotalPrice(totalPrice);
+        return order;
+    }
+
+    // Units per product id over all lines of the order
+    private static Map<Long, Integer> quantitiesOf(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+}
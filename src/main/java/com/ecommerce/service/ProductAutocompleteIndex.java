@@ -0,0 +1,456 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.AutocompleteSuggestionDTO;
+import com.ecommerce.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Compact (radix) trie over normalized product names for typeahead. Every node caches the
+// top suggestions of its subtree, so a lookup is a walk down the prefix plus a copy of at
+// most MAX_SUGGESTIONS entries, independent of catalog size.
+@Component
+public class ProductAutocompleteIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Names are also reachable from the start of their next few words ("case" finds "phone case")
+    private static final int MAX_WORD_STARTS = 4;
+
+    // Most popular first, then by name and id so ties are stable
+    private static int compare(Entry a, Entry b) {
+        if (a.popularity != b.popularity) {
+            return a.popularity > b.popularity ? -1 : 1;
+        }
+        int byName = a.name.compareTo(b.name);
+        return byName != 0 ? byName : Long.compare(a.productId, b.productId);
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node root = new Node("");
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // Bulk load: insert every key first, then compute the cached suggestions in one pass
+    public void replaceAll(Collection<Product> products, Map<Long, Long> popularity) {
+        Node newRoot = new Node("");
+        Map<Long, Entry> newEntries = new HashMap<>(products.size() * 2);
+
+        for (Product product : products) {
+            Entry entry = new Entry(product, popularity.getOrDefault(product.getId(), 0L));
+            newEntries.put(entry.productId, entry);
+            for (String key : keys(product.getName())) {
+                insertKey(newRoot, key, entry);
+            }
+        }
+        recomputeSubtree(newRoot);
+
+        lock.writeLock().lock();
+        try {
+            root = newRoot;
+            entries.clear();
+            entries.putAll(newEntries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(product.getId());
+            long popularity = 0L;
+            if (previous != null) {
+                if (previous.name.equals(product.getName())) {
+                    previous.categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+                    return;
+                }
+                popularity = previous.popularity;
+                removeEntry(previous);
+            }
+
+            Entry entry = new Entry(product, popularity);
+            entries.put(entry.productId, entry);
+            for (String key : keys(entry.name)) {
+                recomputePath(insertKey(root, key, entry));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(productId);
+            if (entry != null) {
+                removeEntry(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeCategory(Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            List<Entry> doomed = new ArrayList<>();
+            for (Entry entry : entries.values()) {
+                if (categoryId.equals(entry.categoryId)) {
+                    doomed.add(entry);
+                }
+            }
+            doomed.forEach(this::removeEntry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addPopularity(Long productId, long delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(productId);
+            if (entry == null || delta == 0) {
+                return;
+            }
+            entry.popularity = Math.max(0, entry.popularity + delta);
+            for (String key : keys(entry.name)) {
+                List<Node> path = findPath(key);
+                if (path != null) {
+                    recomputePath(path);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<AutocompleteSuggestionDTO> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        int max = Math.max(0, Math.min(limit, MAX_SUGGESTIONS));
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < normalized.length()) {
+                Node child = node.child(normalized.charAt(i));
+                if (child == null) {
+                    return List.of();
+                }
+                int common = commonPrefix(child.edge, normalized, i);
+                if (i + common == normalized.length()) {
+                    node = child;
+                    break;
+                }
+                if (common < child.edge.length()) {
+                    return List.of();
+                }
+                node = child;
+                i += common;
+            }
+
+            List<AutocompleteSuggestionDTO> suggestions = new ArrayList<>(Math.min(max, node.top.length));
+            for (int n = 0; n < node.top.length && n < max; n++) {
+                Entry entry = node.top[n];
+                suggestions.add(new AutocompleteSuggestionDTO(entry.productId, entry.name, entry.popularity));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String[] words = text.toLowerCase(Locale.ROOT).trim().split("\\s+");
+        return String.join(" ", words);
+    }
+
+    private static List<String> keys(String name) {
+        String normalized = normalize(name);
+        List<String> keys = new ArrayList<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+
+        keys.add(normalized);
+        int from = 0;
+        for (int w = 1; w < MAX_WORD_STARTS; w++) {
+            int space = normalized.indexOf(' ', from);
+            if (space < 0) {
+                break;
+            }
+            from = space + 1;
+            keys.add(normalized.substring(from));
+        }
+        return keys;
+    }
+
+    private void removeEntry(Entry entry) {
+        entries.remove(entry.productId);
+        for (String key : keys(entry.name)) {
+            List<Node> path = findPath(key);
+            if (path == null) {
+                continue;
+            }
+            Node terminal = path.get(path.size() - 1);
+            terminal.removeTerminal(entry);
+            recomputePath(prune(path));
+        }
+    }
+
+    // Nodes from the root down to the node where the key ends, or null when the key is absent
+    private List<Node> findPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null || !key.startsWith(child.edge, i)) {
+                return null;
+            }
+            node = child;
+            path.add(node);
+            i += child.edge.length();
+        }
+        return path;
+    }
+
+    private static List<Node> insertKey(Node root, String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                Node leaf = new Node(key.substring(i));
+                node.addChild(leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+
+            int common = commonPrefix(child.edge, key, i);
+            if (common < child.edge.length()) {
+                // Split the edge: node -> middle -> child
+                Node middle = new Node(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                node.replaceChild(child, middle);
+                middle.addChild(child);
+                middle.top = child.top;
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+
+        node.addTerminal(entry);
+        return path;
+    }
+
+    // Drop nodes left without entries or children and merge single-child chains back together.
+    // Returns the part of the path that is still attached to the trie.
+    private static List<Node> prune(List<Node> path) {
+        int last = path.size() - 1;
+        while (last > 0) {
+            Node node = path.get(last);
+            Node parent = path.get(last - 1);
+            if (node.terminals.length == 0 && node.children.length == 0) {
+                parent.removeChild(node);
+                last--;
+            } else if (node.terminals.length == 0 && node.children.length == 1) {
+                Node only = node.children[0];
+                only.edge = node.edge + only.edge;
+                parent.replaceChild(node, only);
+                last--;
+                break;
+            } else {
+                break;
+            }
+        }
+        return path.subList(0, last + 1);
+    }
+
+    private static void recomputePath(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).recomputeTop();
+        }
+    }
+
+    private static void recomputeSubtree(Node node) {
+        // Iterative post-order so deep tries cannot overflow the stack
+        List<Node> order = new ArrayList<>();
+        List<Node> stack = new ArrayList<>();
+        stack.add(node);
+        while (!stack.isEmpty()) {
+            Node current = stack.remove(stack.size() - 1);
+            order.add(current);
+            stack.addAll(Arrays.asList(current.children));
+        }
+        for (int i = order.size() - 1; i >= 0; i--) {
+            order.get(i).recomputeTop();
+        }
+    }
+
+    private static int commonPrefix(String edge, String key, int offset) {
+        int max = Math.min(edge.length(), key.length() - offset);
+        int n = 0;
+        while (n < max && edge.charAt(n) == key.charAt(offset + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static final class Entry {
+        final long productId;
+        final String name;
+        Long categoryId;
+        long popularity;
+
+        Entry(Product product, long popularity) {
+            this.productId = product.getId();
+            this.name = product.getName() == null ? "" : product.getName();
+            this.categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+            this.popularity = popularity;
+        }
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        String edge;
+        // Sorted by the first character of their edge
+        Node[] children = NO_CHILDREN;
+        // Entries whose key ends exactly here
+        Entry[] terminals = NO_ENTRIES;
+        // Best entries of the whole subtree, best first
+        Entry[] top = NO_ENTRIES;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+
+        Node child(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].edge.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        void addChild(Node child) {
+            char first = child.edge.charAt(0);
+            int pos = 0;
+            while (pos < children.length && children[pos].edge.charAt(0) < first) {
+                pos++;
+            }
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, pos);
+            grown[pos] = child;
+            System.arraycopy(children, pos, grown, pos + 1, children.length - pos);
+            children = grown;
+        }
+
+        // The replacement's edge starts with the same character, so the order is kept
+        void replaceChild(Node current, Node replacement) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == current) {
+                    children[i] = replacement;
+                    return;
+                }
+            }
+        }
+
+        void removeChild(Node child) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == child) {
+                    Node[] shrunk = new Node[children.length - 1];
+                    System.arraycopy(children, 0, shrunk, 0, i);
+                    System.arraycopy(children, i + 1, shrunk, i, children.length - i - 1);
+                    children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+                    return;
+                }
+            }
+        }
+
+        void addTerminal(Entry entry) {
+            terminals = Arrays.copyOf(terminals, terminals.length + 1);
+            terminals[terminals.length - 1] = entry;
+        }
+
+        void removeTerminal(Entry entry) {
+            for (int i = 0; i < terminals.length; i++) {
+                if (terminals[i] == entry) {
+                    Entry[] shrunk = new Entry[terminals.length - 1];
+                    System.arraycopy(terminals, 0, shrunk, 0, i);
+                    System.arraycopy(terminals, i + 1, shrunk, i, terminals.length - i - 1);
+                    terminals = shrunk.length == 0 ? NO_ENTRIES : shrunk;
+                    return;
+                }
+            }
+        }
+
+        void recomputeTop() {
+            Entry[] best = new Entry[MAX_SUGGESTIONS];
+            int size = 0;
+            for (Entry terminal : terminals) {
+                size = offer(best, size, terminal);
+            }
+            for (Node child : children) {
+                // Child lists are already ordered, so stop at the first entry that cannot make it
+                for (Entry candidate : child.top) {
+                    if (size == best.length && compare(candidate, best[size - 1]) >= 0) {
+                        break;
+                    }
+                    size = offer(best, size, candidate);
+                }
+            }
+            top = size == 0 ? NO_ENTRIES : Arrays.copyOf(best, size);
+        }
+
+        // Insertion into a small sorted buffer. A product reachable through several of its
+        // word starts is the same Entry everywhere, so it is only kept once.
+        private static int offer(Entry[] best, int size, Entry candidate) {
+            for (int i = 0; i < size; i++) {
+                if (best[i] == candidate) {
+                    return size;
+                }
+            }
+            if (size == best.length && compare(candidate, best[size - 1]) >= 0) {
+                return size;
+            }
+
+            int pos = size == best.length ? size - 1 : size++;
+            while (pos > 0 && compare(candidate, best[pos - 1]) < 0) {
+                best[pos] = best[pos - 1];
+                pos--;
+            }
+            best[pos] = candidate;
+            return size;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+// Streams the catalog row by row straight from a forward-only JDBC cursor, so an export
+// holds one row in memory no matter how large the catalog is.
+@Service
+public class ProductExportService {
+
+    private static final String EXPORT_SQL =
+            "SELECT p.id, p.name, p.description, p.price, p.stock, p.image_url, p.created_at, " +
+            "c.id AS category_id, c.name AS category_name " +
+            "FROM products p LEFT JOIN category c ON c.id = p.category_id ORDER BY p.id";
+
+    private static final String CSV_HEADER =
+            "id,name,description,price,stock,imageUrl,createdAt,categoryId,categoryName";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public ProductExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                @Value("${catalog.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    public void export(Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonGenerator json = format == Format.NDJSON ? objectMapper.getFactory().createGenerator(writer) : null;
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, (ResultSet row) -> {
+                try {
+                    if (json != null) {
+                        writeJson(json, row);
+                    } else {
+                        writeCsv(writer, row);
+                    }
+                } catch (IOException e) {
+                    // Usually the client went away; stop reading from the cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (json != null) {
+            json.flush();
+        }
+        writer.flush();
+    }
+
+    private static void writeJson(JsonGenerator json, ResultSet row) throws IOException, SQLException {
+        json.writeStartObject();
+        json.writeNumberField("id", row.getLong("id"));
+        json.writeStringField("name", row.getString("name"));
+        json.writeStringField("description", row.getString("description"));
+        writeNullableNumber(json, "price", row.getObject("price") == null ? null : row.getDouble("price"));
+        writeNullableNumber(json, "stock", row.getObject("stock") == null ? null : row.getInt("stock"));
+        json.writeStringField("imageUrl", row.getString("image_url"));
+        Timestamp createdAt = row.getTimestamp("created_at");
+        json.writeStringField("createdAt", createdAt == null ? null : createdAt.toLocalDateTime().toString());
+        writeNullableNumber(json, "categoryId", row.getObject("category_id") == null ? null : row.getLong("category_id"));
+        json.writeStringField("categoryName", row.getString("category_name"));
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void writeNullableNumber(JsonGenerator json, String field, Number value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else if (value instanceof Double d) {
+            json.writeNumberField(field, d);
+        } else if (value instanceof Integer i) {
+            json.writeNumberField(field, i);
+        } else {
+            json.writeNumberField(field, value.longValue());
+        }
+    }
+
+    private static void writeCsv(Writer writer, ResultSet row) throws IOException, SQLException {
+        Timestamp createdAt = row.getTimestamp("created_at");
+        writer.write(row.getString("id"));
+        writer.write(',');
+        writeCsvField(writer, row.getString("name"));
+        writer.write(',');
+        writeCsvField(writer, row.getString("description"));
+        writer.write(',');
+        writeCsvField(writer, row.getString("price"));
+        writer.write(',');
+        writeCsvField(writer, row.getString("stock"));
+        writer.write(',');
+        writeCsvField(writer, row.getString("image_url"));
+        writer.write(',');
+        writeCsvField(writer, createdAt == null ? null : createdAt.toLocalDateTime().toString());
+        writer.write(',');
+        writeCsvField(writer, row.getString("category_id"));
+        writer.write(',');
+        writeCsvField(writer, row.getString("category_name"));
+        writer.write('\n');
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks and double the quotes
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
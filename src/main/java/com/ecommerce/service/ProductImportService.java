@@ -0,0 +1,342 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductDTO;
+import com.ecommerce.dto.ProductImportResultDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.repository.CategoryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Bulk catalog import. Rows are parsed one at a time from the request stream, validated
+// against the ProductDTO constraints and written with JDBC batches (rewritten into multi-row
+// inserts by the MySQL driver), one transaction per batch. Bad rows are reported and skipped.
+@Service
+public class ProductImportService {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO products (name, description, price, stock, image_url, category_id, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    // Rows carrying an id replace the existing product or create it with that id
+    private static final String UPSERT_SQL =
+            "INSERT INTO products (id, name, description, price, stock, image_url, category_id, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE name = VALUES(name), description = VALUES(description), " +
+            "price = VALUES(price), stock = VALUES(stock), image_url = VALUES(image_url), " +
+            "category_id = VALUES(category_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ProductService productService;
+    private final ProductSearchService productSearchService;
+    private final StockShardService stockShardService;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                CategoryRepository categoryRepository, Validator validator,
+                                ObjectMapper objectMapper, ProductService productService,
+                                ProductSearchService productSearchService, StockShardService stockShardService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.categoryRepository = categoryRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.productService = productService;
+        this.productSearchService = productSearchService;
+        this.stockShardService = stockShardService;
+    }
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    public ProductImportResultDTO importProducts(Format format, InputStream in) throws IOException {
+        // One query up front instead of a findById per row
+        Set<Long> categoryIds = categoryRepository.findAll().stream()
+                .map(Category::getId)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        ProductImportResultDTO result = new ProductImportResultDTO();
+        List<ImportRow> inserts = new ArrayList<>(BATCH_SIZE);
+        List<ImportRow> upserts = new ArrayList<>(BATCH_SIZE);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowSource source = format == Format.CSV ? new CsvRowSource(reader) : new NdjsonRowSource(reader, objectMapper);
+
+        try {
+            ImportRow row;
+            while ((row = nextRow(source, result)) != null) {
+                result.setRowsRead(result.getRowsRead() + 1);
+                String error = validate(row, categoryIds);
+                if (error != null) {
+                    reject(result, row.line, error);
+                    continue;
+                }
+
+                List<ImportRow> pending = row.id == null ? inserts : upserts;
+                pending.add(row);
+                if (pending.size() == BATCH_SIZE) {
+                    flush(pending, row.id == null, result);
+                }
+            }
+            flush(inserts, true, result);
+            flush(upserts, false, result);
+        } finally {
+            // The in-memory indexes and cached products no longer match the table
+            if (result.getInserted() + result.getUpserted() > 0) {
+                productService.evictAllProducts();
+                productSearchService.rebuildIndex();
+            }
+        }
+        return result;
+    }
+
+    // Next parsed row; unparseable rows are reported and skipped
+    private ImportRow nextRow(RowSource source, ProductImportResultDTO result) throws IOException {
+        while (true) {
+            try {
+                return source.next();
+            } catch (RowParseException e) {
+                result.setRowsRead(result.getRowsRead() + 1);
+                reject(result, e.line, e.getMessage());
+            }
+        }
+    }
+
+    private String validate(ImportRow row, Set<Long> categoryIds) {
+        if (row.id != null && row.id <= 0) {
+            return "id: must be positive";
+        }
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(row.product);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (!categoryIds.contains(row.product.getCategoryId())) {
+            return "categoryId: Category " + row.product.getCategoryId() + " not found";
+        }
+        return null;
+    }
+
+    private void flush(List<ImportRow> rows, boolean insert, ProductImportResultDTO result) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String sql = insert ? INSERT_SQL : UPSERT_SQL;
+
+        try {
+            List<Object[]> args = new ArrayList<>(rows.size());
+            for (ImportRow row : rows) {
+                args.add(arguments(row));
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(sql, args);
+                if (!insert) {
+                    resetHotStock(rows);
+                }
+            });
+            count(result, insert, rows.size());
+        } catch (DataAccessException batchFailure) {
+            // Find the offending rows by writing the batch one row at a time
+            for (ImportRow row : rows) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(sql, arguments(row));
+                        if (!insert) {
+                            resetHotStock(List.of(row));
+                        }
+                    });
+                    count(result, insert, 1);
+                } catch (DataAccessException e) {
+                    reject(result, row.line, e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        rows.clear();
+    }
+
+    // The shards hold the sellable units of a hot product and are folded over products.stock,
+    // so the imported level is spread over them as ProductController.updateProduct does
+    private void resetHotStock(List<ImportRow> rows) {
+        List<Long> ids = rows.stream().map(row -> row.id).distinct().toList();
+        Set<Long> hot = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM products WHERE stock_sharded = TRUE AND id IN (" +
+                String.join(", ", Collections.nCopies(ids.size(), "?")) + ")", Long.class, ids.toArray()));
+        for (ImportRow row : rows) {
+            if (hot.contains(row.id)) {
+                stockShardService.resetStock(row.id, row.product.getStock());
+            }
+        }
+    }
+
+    private static Object[] arguments(ImportRow row) {
+        ProductDTO p = row.product;
+        if (row.id == null) {
+            return new Object[] {p.getName(), p.getDescription(), p.getPrice(), p.getStock(), p.getImageUrl(), p.getCategoryId()};
+        }
+        return new Object[] {row.id, p.getName(), p.getDescription(), p.getPrice(), p.getStock(), p.getImageUrl(), p.getCategoryId()};
+    }
+
+    private static void count(ProductImportResultDTO result, boolean insert, int rows) {
+        if (insert) {
+            result.setInserted(result.getInserted() + rows);
+        } else {
+            result.setUpserted(result.getUpserted() + rows);
+        }
+    }
+
+    private static void reject(ProductImportResultDTO result, long line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ProductImportResultDTO.RowError(line, message));
+        }
+    }
+
+    private static final class ImportRow {
+        final long line;
+        final Long id;
+        final ProductDTO product;
+
+        ImportRow(long line, Long id, ProductDTO product) {
+            this.line = line;
+            this.id = id;
+            this.product = product;
+        }
+    }
+
+    private static final class RowParseException extends RuntimeException {
+        final long line;
+
+        RowParseException(long line, String message) {
+            super(message);
+            this.line = line;
+        }
+    }
+
+    private interface RowSource {
+        // Null at the end of the input
+        ImportRow next() throws IOException;
+    }
+
+    // One JSON object per line, using the ProductDTO field names plus an optional id
+    private static final class NdjsonRowSource implements RowSource {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private long line;
+
+        NdjsonRowSource(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.isBlank());
+
+            try {
+                JsonNode node = objectMapper.readTree(text);
+                if (!node.isObject()) {
+                    throw new RowParseException(line, "Expected a JSON object");
+                }
+                JsonNode id = node.get("id");
+                // asLong would turn "abc" or true into 0 and 1.9 into 1, upserting the wrong product
+                if (id != null && !id.isNull() && !(id.isIntegralNumber() && id.canConvertToLong())) {
+                    throw new RowParseException(line, "id: must be a whole number");
+                }
+                Long productId = id == null || id.isNull() ? null : id.asLong();
+                return new ImportRow(line, productId, objectMapper.treeToValue(node, ProductDTO.class));
+            } catch (JsonProcessingException e) {
+                throw new RowParseException(line, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    // RFC 4180 CSV with a header row naming the columns: id (optional), name, description,
+    // price, stock, imageUrl, categoryId. Quoted fields may contain commas and line breaks.
+    private static final class CsvRowSource implements RowSource {
+        private final CsvReader csv;
+        private Map<String, Integer> columns;
+
+        CsvRowSource(BufferedReader reader) {
+            this.csv = new CsvReader(reader);
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            if (columns == null) {
+                columns = csv.readHeader();
+                if (columns == null) {
+                    return null;
+                }
+            }
+
+            List<String> record = csv.readNonBlankRecord();
+            if (record == null) {
+                return null;
+            }
+
+            long recordLine = csv.line();
+            try {
+                ProductDTO product = new ProductDTO();
+                product.setName(field(record, "name"));
+                product.setDescription(field(record, "description"));
+                product.setPrice(parseDouble(field(record, "price")));
+                product.setStock(parseInteger(field(record, "stock")));
+                product.setImageUrl(field(record, "imageurl"));
+                product.setCategoryId(parseLong(field(record, "categoryid")));
+                return new ImportRow(recordLine, parseLong(field(record, "id")), product);
+            } catch (NumberFormatException e) {
+                throw new RowParseException(recordLine, "Invalid number: " + e.getMessage());
+            }
+        }
+
+        private String field(List<String> record, String column) {
+            return CsvReader.field(columns, record, column);
+        }
+
+        private static Double parseDouble(String value) {
+            return value == null ? null : Double.valueOf(value.trim());
+        }
+
+        private static Integer parseInteger(String value) {
+            return value == null ? null : Integer.valueOf(value.trim());
+        }
+
+        private static Long parseLong(String value) {
+            return value == null ? null : Long.valueOf(value.trim());
+        }
+    }
+}
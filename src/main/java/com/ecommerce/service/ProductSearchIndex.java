@@ -0,0 +1,370 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductSummaryDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index (term -> postings sorted by product id) used for keyword search.
+// A snapshot of each product is kept alongside the postings so searches never have to go back
+// to the database.
+@Component
+public class ProductSearchIndex {
+
+    // Immutable copy of the fields search results show. The index never holds on to the entity,
+    // which the caller may go on changing, and a stock change swaps in a new snapshot.
+    public record Document(Long id, String name, String description, Double price, Integer stock, String imageUrl,
+                           Long categoryId, String categoryName) {
+
+        static Document of(Product product) {
+            Category category = product.getCategory();
+            return new Document(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                    product.getStock(), product.getImageUrl(), category == null ? null : category.getId(),
+                    category == null ? null : category.getName());
+        }
+
+        Document withStock(Integer newStock) {
+            return new Document(id, name, description, price, newStock, imageUrl, categoryId, categoryName);
+        }
+
+        public ProductSummaryDTO toSummary() {
+            return new ProductSummaryDTO(id, name, price, stock, imageUrl, categoryId, categoryName);
+        }
+    }
+
+    // A hit in the product name counts more than a hit in the description
+    private static final int NAME_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, Document> documents = new HashMap<>();
+    private TreeMap<String, Postings> postings = new TreeMap<>();
+
+    // Replace the whole index, building the new structures before taking the write lock
+    public void replaceAll(Collection<Product> products) {
+        Map<Long, Document> newDocuments = new HashMap<>(products.size() * 2);
+        TreeMap<String, Postings> newPostings = new TreeMap<>();
+
+        for (Product product : products) {
+            Document document = Document.of(product);
+            newDocuments.put(document.id(), document);
+            addPostings(newPostings, document);
+        }
+
+        lock.writeLock().lock();
+        try {
+            documents = newDocuments;
+            postings = newPostings;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        Document document = Document.of(product);
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.put(document.id(), document);
+            if (previous != null) {
+                removePostings(previous);
+            }
+            addPostings(postings, document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.remove(productId);
+            if (previous != null) {
+                removePostings(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Products of a deleted category are removed from the database by cascade
+    public void removeCategory(Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            List<Long> productIds = new ArrayList<>();
+            for (Document document : documents.values()) {
+                if (categoryId.equals(document.categoryId())) {
+                    productIds.add(document.id());
+                }
+            }
+            for (Long productId : productIds) {
+                removePostings(documents.remove(productId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void adjustStock(Long productId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Document document = documents.get(productId);
+            if (document != null && document.stock() != null) {
+                documents.put(productId, document.withStock(document.stock() + delta));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Document get(Long productId) {
+        lock.readLock().lock();
+        try {
+            return documents.get(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Product ids matching every keyword term, best term-frequency score first.
+    // The last term is treated as a prefix so partially typed words still match.
+    public List<Long> search(String keyword) {
+        List<String> terms = tokenize(keyword);
+
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty()) {
+                List<Long> all = new ArrayList<>(documents.keySet());
+                all.sort(null);
+                return all;
+            }
+
+            ScoredIds result = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean prefix = i == terms.size() - 1;
+                ScoredIds termHits = prefix ? prefixHits(terms.get(i)) : exactHits(terms.get(i));
+                result = result == null ? termHits : result.intersect(termHits);
+                if (result.size == 0) {
+                    return List.of();
+                }
+            }
+
+            return result.rankedIds();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Document> getAll(List<Long> productIds) {
+        lock.readLock().lock();
+        try {
+            List<Document> found = new ArrayList<>(productIds.size());
+            for (Long id : productIds) {
+                Document document = documents.get(id);
+                if (document != null) {
+                    found.add(document);
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lower-cased alphanumeric tokens
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lower.length(); i++) {
+            if (Character.isLetterOrDigit(lower.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(lower.substring(start));
+        }
+        return tokens;
+    }
+
+    private ScoredIds exactHits(String term) {
+        Postings list = postings.get(term);
+        return list == null ? ScoredIds.EMPTY : new ScoredIds(list.ids, list.freqs, list.size);
+    }
+
+    private ScoredIds prefixHits(String prefix) {
+        Map<String, Postings> matching = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (matching.isEmpty()) {
+            return ScoredIds.EMPTY;
+        }
+        if (matching.size() == 1) {
+            Postings list = matching.values().iterator().next();
+            return new ScoredIds(list.ids, list.freqs, list.size);
+        }
+
+        Map<Long, Integer> merged = new HashMap<>();
+        for (Postings list : matching.values()) {
+            for (int i = 0; i < list.size; i++) {
+                merged.merge(list.ids[i], list.freqs[i], Integer::sum);
+            }
+        }
+
+        long[] ids = new long[merged.size()];
+        int n = 0;
+        for (Long id : merged.keySet()) {
+            ids[n++] = id;
+        }
+        Arrays.sort(ids);
+
+        int[] scores = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            scores[i] = merged.get(ids[i]);
+        }
+        return new ScoredIds(ids, scores, ids.length);
+    }
+
+    private static Map<String, Integer> termFrequencies(Document document) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(document.name())) {
+            frequencies.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(document.description())) {
+            frequencies.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private static void addPostings(TreeMap<String, Postings> target, Document document) {
+        termFrequencies(document).forEach((term, frequency) ->
+                target.computeIfAbsent(term, t -> new Postings()).put(document.id(), frequency));
+    }
+
+    private void removePostings(Document document) {
+        for (String term : termFrequencies(document).keySet()) {
+            Postings list = postings.get(term);
+            if (list != null && list.remove(document.id()) && list.size == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    // Product ids kept sorted so multi-term queries can intersect with a linear merge
+    private static class Postings {
+        long[] ids = new long[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void put(long id, int freq) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                freqs[pos] = freq;
+                return;
+            }
+
+            int insertAt = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            System.arraycopy(freqs, insertAt, freqs, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            freqs[insertAt] = freq;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            System.arraycopy(freqs, pos + 1, freqs, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+    }
+
+    // Sorted ids with their accumulated scores for the terms matched so far
+    private static class ScoredIds {
+        static final ScoredIds EMPTY = new ScoredIds(new long[0], new int[0], 0);
+
+        final long[] ids;
+        final int[] scores;
+        final int size;
+
+        ScoredIds(long[] ids, int[] scores, int size) {
+            this.ids = ids;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        ScoredIds intersect(ScoredIds other) {
+            int capacity = Math.min(size, other.size);
+            long[] outIds = new long[capacity];
+            int[] outScores = new int[capacity];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+
+            while (i < size && j < other.size) {
+                if (ids[i] < other.ids[j]) {
+                    i++;
+                } else if (ids[i] > other.ids[j]) {
+                    j++;
+                } else {
+                    outIds[n] = ids[i];
+                    outScores[n] = scores[i] + other.scores[j];
+                    n++;
+                    i++;
+                    j++;
+                }
+            }
+            return new ScoredIds(outIds, outScores, n);
+        }
+
+        List<Long> rankedIds() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+                    ? Integer.compare(scores[b], scores[a])
+                    : Long.compare(ids[a], ids[b]));
+
+            List<Long> ranked = new ArrayList<>(size);
+            for (Integer index : order) {
+                ranked.add(ids[index]);
+            }
+            return ranked;
+        }
+    }
+}
@@ -1,27 +1,123 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.AutocompleteSuggestionDTO;
+import com.ecommerce.dto.ProductFacetsDTO;
+import com.ecommerce.dto.ProductSearchResultDTO;
+import com.ecommerce.dto.ProductSummaryDTO;
 import com.ecommerce.model.Product;
+import com.ecommerce.repository.OrderItemRepository;
 import com.ecommerce.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductSearchService {
 
+    private static final int INDEX_LOAD_CHUNK_SIZE = 1000;
+    private static final int FUZZY_RESULT_LIMIT = 100;
+
     private final ProductRepository productRepository;
+    private final ProductSearchIndex searchIndex;
+    private final CatalogFacetIndex facetIndex;
+    private final ProductAutocompleteIndex autocompleteIndex;
+    private final ProductTrigramIndex trigramIndex;
+    private final OrderItemRepository orderItemRepository;
 
-    public ProductSearchService(ProductRepository productRepository) {
+    public ProductSearchService(ProductRepository productRepository, ProductSearchIndex searchIndex,
+                                CatalogFacetIndex facetIndex, ProductAutocompleteIndex autocompleteIndex,
+                                ProductTrigramIndex trigramIndex, OrderItemRepository orderItemRepository) {
         this.productRepository = productRepository;
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.trigramIndex = trigramIndex;
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    // Load the whole catalog into the in-memory indexes once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        List<Product> products = new ArrayList<>();
+        long lastId = 0L;
+
+        while (true) {
+            List<Product> chunk = productRepository.findByIdGreaterThanOrderByIdAsc(
+                    lastId, PageRequest.of(0, INDEX_LOAD_CHUNK_SIZE));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            products.addAll(chunk);
+            lastId = chunk.get(chunk.size() - 1).getId();
+        }
+
+        // Autocomplete ranks by units sold
+        Map<Long, Long> popularity = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumUnitsSoldByProduct()) {
+            popularity.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        searchIndex.replaceAll(products);
+        facetIndex.replaceAll(products);
+        autocompleteIndex.replaceAll(products, popularity);
+        trigramIndex.replaceAll(products);
+    }
+
+    // Called after a product has been created or updated
+    public void indexProduct(Product product) {
+        searchIndex.index(product);
+        facetIndex.put(product);
+        autocompleteIndex.put(product);
+        trigramIndex.index(product);
+    }
+
+    // Called after a product has been deleted
+    public void removeProduct(Long productId) {
+        searchIndex.remove(productId);
+        facetIndex.remove(productId);
+        autocompleteIndex.remove(productId);
+        trigramIndex.remove(productId);
+    }
+
+    // Called after a category, and with it its products, has been deleted
+    public void removeCategory(Long categoryId) {
+        searchIndex.removeCategory(categoryId);
+        facetIndex.removeCategory(categoryId);
+        autocompleteIndex.removeCategory(categoryId);
+        trigramIndex.removeCategory(categoryId);
+    }
+
+    // Called by order processing with the stock change per product id; applied once the
+    // surrounding transaction commits. Stock leaving through orders is also what makes a
+    // product popular for autocomplete, and refunds take it back.
+    public void onStockChanged(Map<Long, Integer> stockDeltas) {
+        TransactionCallbacks.afterCommit(() -> stockDeltas.forEach((productId, delta) -> {
+            searchIndex.adjustStock(productId, delta);
+            facetIndex.adjustStock(productId, delta);
+            autocompleteIndex.addPopularity(productId, -delta);
+        }));
     }
 
-    public List<Product> searchProducts(String name, Long categoryId, Double minPrice, 
-                                       Double maxPrice, String sortBy, String sortOrder) {
+    // Top completions of a typed prefix, most sold first
+    public List<AutocompleteSuggestionDTO> autocomplete(String prefix, int limit) {
+        return autocompleteIndex.suggest(prefix, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductSummaryDTO> searchProducts(String name, Long categoryId, Double minPrice, 
+                                                  Double maxPrice, String sortBy, String sortOrder) {
         
         // Get filtered products
-        List<Product> products = productRepository.advancedSearch(name, categoryId, minPrice, maxPrice);
+        List<ProductSummaryDTO> products = productRepository.advancedSearch(name, categoryId, minPrice, maxPrice);
         
         // Apply sorting
         if (sortBy != null && !sortBy.isEmpty()) {
@@ -31,26 +127,66 @@ public class ProductSearchService {
         return products;
     }
 
-    public List<Product> quickSearch(String keyword) {
-        return productRepository.searchByKeyword(keyword);
+    // Results plus facet counts, the facets coming from one pass over the columnar snapshot
+    public ProductSearchResultDTO searchProductsWithFacets(String name, Long categoryId, Double minPrice,
+                                                           Double maxPrice, String sortBy, String sortOrder,
+                                                           double priceInterval) {
+        List<ProductSummaryDTO> products = searchProducts(name, categoryId, minPrice, maxPrice, sortBy, sortOrder);
+        ProductFacetsDTO facets = facetIndex.computeFacets(name, categoryId, minPrice, maxPrice, priceInterval);
+        return new ProductSearchResultDTO(products, facets);
     }
 
-    public List<Product> getProductsByPriceRange(Double minPrice, Double maxPrice) {
+    // Answered from the in-memory index, ranked by term frequency
+    public List<ProductSummaryDTO> quickSearch(String keyword) {
+        return toSummaries(searchIndex.getAll(searchIndex.search(keyword)));
+    }
+
+    // Tolerates typos such as "iphnoe" or "wireles", closest matches first
+    public List<ProductSummaryDTO> fuzzySearch(String keyword) {
+        return toSummaries(searchIndex.getAll(trigramIndex.search(keyword, FUZZY_RESULT_LIMIT)));
+    }
+
+    // Exact keyword search, falling back to the typo-tolerant index when nothing matches
+    public List<ProductSummaryDTO> search(String keyword, boolean fuzzy) {
+        List<ProductSummaryDTO> products = fuzzy ? fuzzySearch(keyword) : quickSearch(keyword);
+        if (products.isEmpty() && !fuzzy) {
+            products = fuzzySearch(keyword);
+        }
+        return products;
+    }
+
+    // Ranked ids only, so callers can page before resolving products
+    public List<Long> quickSearchIds(String keyword) {
+        return searchIndex.search(keyword);
+    }
+
+    public List<ProductSummaryDTO> getIndexedProducts(List<Long> productIds) {
+        return toSummaries(searchIndex.getAll(productIds));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductSummaryDTO> getProductsByPriceRange(Double minPrice, Double maxPrice) {
         return productRepository.findByPriceRange(minPrice, maxPrice);
     }
 
-    private List<Product> sortProducts(List<Product> products, String sortBy, String sortOrder) {
-        Comparator<Product> comparator;
+    private static List<ProductSummaryDTO> toSummaries(List<ProductSearchIndex.Document> documents) {
+        return documents.stream()
+                .map(ProductSearchIndex.Document::toSummary)
+                .collect(Collectors.toList());
+    }
+
+    private List<ProductSummaryDTO> sortProducts(List<ProductSummaryDTO> products, String sortBy, String sortOrder) {
+        Comparator<ProductSummaryDTO> comparator;
         
         switch (sortBy.toLowerCase()) {
             case "price":
-                comparator = Comparator.comparing(Product::getPrice);
+                comparator = Comparator.comparing(ProductSummaryDTO::getPrice);
                 break;
             case "name":
-                comparator = Comparator.comparing(Product::getName);
+                comparator = Comparator.comparing(ProductSummaryDTO::getName);
                 break;
             case "stock":
-                comparator = Comparator.comparing(Product::getStock);
+                comparator = Comparator.comparing(ProductSummaryDTO::getStock);
                 break;
             default:
                 return products; // No sorting
@@ -1,32 +1,181 @@
 package com.ecommerce.service;
 
+import com.ecommerce.config.CacheConfig;
+import com.ecommerce.dto.ProductBatchDTO;
+import com.ecommerce.dto.ProductSummaryDTO;
+import com.ecommerce.exception.ResourceNotFoundException;
 import com.ecommerce.model.Product;
 import com.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ProductService {
 
+    public static final int MAX_BATCH_SIZE = 200;
+
     @Autowired
     private ProductRepository productRepository;
 
-    // Get all products
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Listings below return summary projections in read-only transactions, so Hibernate
+    // neither hydrates entities nor keeps dirty-checking snapshots for them
+
+    // Get all products. Not cached: one entry holding the whole catalog would be evicted by
+    // every product write, and the entries in PRODUCTS already cover single-product reads.
+    @Transactional(readOnly = true)
+    public List<ProductSummaryDTO> getAllProducts() {
+        return productRepository.findAllSummaries();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductSummaryDTO> getProductsPage(Pageable pageable) {
+        return productRepository.findAllSummaries(pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductSummaryDTO> getProductsByCategory(Long categoryId) {
+        return productRepository.findSummariesByCategoryId(categoryId);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductSummaryDTO> getProductsByCategory(Long categoryId, Pageable pageable) {
+        return productRepository.findSummariesByCategoryId(categoryId, pageable);
+    }
+
+    // Keyset page of a category: the products sorted after the (sort key, id) cursor
+    @Transactional(readOnly = true)
+    public Slice<ProductSummaryDTO> getProductsByCategoryAfter(Long categoryId, boolean byPrice, boolean descending,
+                                                               String sortKey, Long lastId, int size) {
+        Pageable limit = PageRequest.of(0, size);
+        if (byPrice) {
+            Double lastPrice = Double.valueOf(sortKey);
+            return descending
+                ? productRepository.findByCategoryAfterPriceDesc(categoryId, lastPrice, lastId, limit)
+                : productRepository.findByCategoryAfterPriceAsc(categoryId, lastPrice, lastId, limit);
+        }
+        return descending
+            ? productRepository.findByCategoryAfterNameDesc(categoryId, sortKey, lastId, limit)
+            : productRepository.findByCategoryAfterNameAsc(categoryId, sortKey, lastId, limit);
     }
 
     // Get product by ID
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     public Optional<Product> getProductById(Long id) {
         return productRepository.findById(id);
     }
 
-    // Add a new product
-    public Product addProduct(Product product) {
+    // Get several products at once, in the requested order. Cached products are served
+    // directly and the rest come from one IN query; ids that do not exist are reported back.
+    public ProductBatchDTO getProductsByIds(List<Long> ids) {
+        Collection<Long> uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BATCH_SIZE + " products can be requested at once");
+        }
+
+        Map<Long, Product> found = new HashMap<>();
+        List<Long> uncached = new ArrayList<>();
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTS);
+        for (Long id : uniqueIds) {
+            Cache.ValueWrapper cached = cache == null ? null : cache.get(id);
+            if (cached != null && cached.get() instanceof Product product) {
+                found.put(id, product);
+            } else {
+                uncached.add(id);
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            for (Product product : productRepository.findByIdIn(uncached)) {
+                found.put(product.getId(), product);
+                if (cache != null) {
+                    cache.put(product.getId(), product);
+                }
+            }
+        }
+
+        List<Product> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new ProductBatchDTO(products, missingIds);
+    }
+
+    // Products referenced by an order, loaded with one query and without row locks;
+    // stock is taken separately with a guarded update (StockService)
+    public Map<Long, Product> getProductsForOrder(Collection<Long> productIds) {
+        Collection<Long> uniqueIds = new LinkedHashSet<>(productIds);
+        List<Product> products = productRepository.findAllById(uniqueIds);
+
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : products) {
+            byId.put(product.getId(), product);
+        }
+        for (Long productId : uniqueIds) {
+            if (!byId.containsKey(productId)) {
+                throw new ResourceNotFoundException("Product not found: " + productId);
+            }
+        }
+        return byId;
+    }
+
+    // Create or update a product
+    @CachePut(cacheNames = CacheConfig.PRODUCTS, key = "#result.id")
+    public Product saveProduct(Product product) {
         return productRepository.save(product);
     }
-}
 
+    // Delete a product
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, key = "#id")
+    public void deleteProduct(Long id) {
+        productRepository.deleteById(id);
+    }
+
+    // After a bulk write that bypassed this service
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, allEntries = true)
+    public void evictAllProducts() {
+    }
+
+    // Drop cached copies of products whose stock changed outside this service.
+    // Inside a transaction the eviction waits for the commit, so a concurrent read
+    // cannot put the old row back into the cache.
+    public void evictProducts(Collection<Long> productIds) {
+        TransactionCallbacks.afterCommit(() -> doEvict(productIds));
+    }
+
+    private void doEvict(Collection<Long> productIds) {
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS);
+        if (products != null) {
+            productIds.forEach(products::evict);
+        }
+    }
+}
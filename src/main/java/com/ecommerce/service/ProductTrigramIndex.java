@@ -0,0 +1,488 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Character trigram index over product name and description tokens for typo-tolerant search.
+// Documents get dense int ordinals and every trigram maps to a growable int[] of ordinals, so
+// postings stay primitive. Candidates sharing enough trigrams with a query term are confirmed
+// with a bounded edit distance.
+@Component
+public class ProductTrigramIndex {
+
+    private static final char BOUNDARY = '$';
+    private static final long NO_CATEGORY = -1L;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Per-document data, indexed by ordinal; an update retires the old ordinal
+    private long[] docProductIds = new long[16];
+    private long[] docCategoryIds = new long[16];
+    private String[][] docTerms = new String[16][];
+    private boolean[] docLive = new boolean[16];
+    private int docCount;
+    private int liveDocs;
+    private final Map<Long, Integer> docByProductId = new HashMap<>();
+
+    private TrigramPostings postings = new TrigramPostings();
+
+    public void replaceAll(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Product product : products) {
+                addDocument(product.getId(), categoryId(product), terms(product));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            retire(product.getId());
+            addDocument(product.getId(), categoryId(product), terms(product));
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            retire(productId);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Products of a deleted category are removed from the database by cascade
+    public void removeCategory(Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            for (int doc = 0; doc < docCount; doc++) {
+                if (docLive[doc] && docCategoryIds[doc] == categoryId) {
+                    retire(docProductIds[doc]);
+                }
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Product ids whose text matches every query term within the allowed edit distance,
+    // closest matches first
+    public List<Long> search(String keyword, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(ProductSearchIndex.tokenize(keyword)));
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Score per document matching every term so far; only these stay candidates
+            DocCounts survivors = null;
+
+            for (String term : queryTerms) {
+                int maxEdits = maxEdits(term);
+                long[] grams = trigrams(term);
+                int required = Math.max(1, grams.length - 3 * maxEdits);
+
+                // Count shared trigrams per document, in a map sized to the documents touched
+                int expected = 0;
+                if (survivors == null) {
+                    for (long gram : grams) {
+                        expected += postings.size(gram);
+                    }
+                }
+                DocCounts gramHits = new DocCounts(survivors == null ? Math.min(expected, docCount) : survivors.size());
+                for (long gram : grams) {
+                    int[] list = postings.get(gram);
+                    int size = postings.size(gram);
+                    for (int i = 0; i < size; i++) {
+                        int doc = list[i];
+                        if (survivors == null || survivors.contains(doc)) {
+                            gramHits.add(doc, 1);
+                        }
+                    }
+                }
+
+                DocCounts matched = new DocCounts(gramHits.size());
+                for (int slot = 0; slot < gramHits.capacity(); slot++) {
+                    int doc = gramHits.keyAt(slot);
+                    if (doc == DocCounts.EMPTY || gramHits.valueAt(slot) < required || !docLive[doc]) {
+                        continue;
+                    }
+                    int distance = bestDistance(term, docTerms[doc], maxEdits);
+                    if (distance <= maxEdits) {
+                        int score = survivors == null ? 0 : survivors.get(doc);
+                        matched.add(doc, score + maxEdits + 1 - distance);
+                    }
+                }
+
+                survivors = matched;
+                if (survivors.size() == 0) {
+                    return List.of();
+                }
+            }
+
+            List<int[]> ranked = new ArrayList<>(survivors.size());
+            for (int slot = 0; slot < survivors.capacity(); slot++) {
+                int doc = survivors.keyAt(slot);
+                if (doc != DocCounts.EMPTY) {
+                    ranked.add(new int[] {doc, survivors.valueAt(slot)});
+                }
+            }
+            ranked.sort((a, b) -> a[1] != b[1]
+                    ? Integer.compare(b[1], a[1])
+                    : Long.compare(docProductIds[a[0]], docProductIds[b[0]]));
+
+            List<Long> productIds = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                productIds.add(docProductIds[ranked.get(i)[0]]);
+            }
+            return productIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Short words tolerate fewer typos, and one- or two-letter words must match exactly
+    static int maxEdits(String term) {
+        if (term.length() <= 2) {
+            return 0;
+        }
+        return term.length() <= 5 ? 1 : 2;
+    }
+
+    // Levenshtein distance to the closest document term, or maxEdits + 1 when none is close enough
+    static int bestDistance(String term, String[] candidates, int maxEdits) {
+        int best = maxEdits + 1;
+        for (String candidate : candidates) {
+            if (Math.abs(candidate.length() - term.length()) >= best) {
+                continue;
+            }
+            best = Math.min(best, boundedDistance(term, candidate, best - 1));
+            if (best == 0) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    // Edit distance limited to a band of width maxDistance; returns maxDistance + 1 once exceeded
+    static int boundedDistance(String a, String b, int maxDistance) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maxDistance) {
+            return maxDistance + 1;
+        }
+
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(m, i + maxDistance);
+            current[0] = i;
+            if (from > 1) {
+                current[from - 1] = maxDistance + 1;
+            }
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+
+            for (int j = from; j <= to; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (to < m) {
+                current[to + 1] = maxDistance + 1;
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[m], maxDistance + 1);
+    }
+
+    // Distinct trigrams of the term padded with a boundary marker on both sides
+    static long[] trigrams(String term) {
+        String padded = BOUNDARY + term + BOUNDARY;
+        long[] grams = new long[padded.length() - 2];
+        int n = 0;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            long gram = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+            boolean duplicate = false;
+            for (int j = 0; j < n; j++) {
+                if (grams[j] == gram) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                grams[n++] = gram;
+            }
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    private static String[] terms(Product product) {
+        Set<String> terms = new LinkedHashSet<>(ProductSearchIndex.tokenize(product.getName()));
+        terms.addAll(ProductSearchIndex.tokenize(product.getDescription()));
+        return terms.toArray(new String[0]);
+    }
+
+    private static long categoryId(Product product) {
+        return product.getCategory() == null || product.getCategory().getId() == null
+                ? NO_CATEGORY : product.getCategory().getId();
+    }
+
+    private void addDocument(long productId, long categoryId, String[] terms) {
+        if (docCount == docProductIds.length) {
+            int newLength = docCount * 2;
+            docProductIds = Arrays.copyOf(docProductIds, newLength);
+            docCategoryIds = Arrays.copyOf(docCategoryIds, newLength);
+            docTerms = Arrays.copyOf(docTerms, newLength);
+            docLive = Arrays.copyOf(docLive, newLength);
+        }
+
+        int doc = docCount++;
+        docProductIds[doc] = productId;
+        docCategoryIds[doc] = categoryId;
+        docTerms[doc] = terms;
+        docLive[doc] = true;
+        docByProductId.put(productId, doc);
+        liveDocs++;
+
+        // Ordinals only grow, so appending keeps every postings list sorted
+        Set<Long> seen = new HashSet<>();
+        for (String term : terms) {
+            for (long gram : trigrams(term)) {
+                if (seen.add(gram)) {
+                    postings.append(gram, doc);
+                }
+            }
+        }
+    }
+
+    private void retire(Long productId) {
+        Integer doc = docByProductId.remove(productId);
+        if (doc != null) {
+            docLive[doc] = false;
+            docTerms[doc] = null;
+            liveDocs--;
+        }
+    }
+
+    // Rebuild from the live documents once retired ones make up more than half of the index
+    private void compactIfSparse() {
+        if (docCount < 64 || liveDocs * 2 > docCount) {
+            return;
+        }
+
+        long[] oldIds = docProductIds;
+        long[] oldCategoryIds = docCategoryIds;
+        String[][] oldTerms = docTerms;
+        boolean[] oldLive = docLive;
+        int oldCount = docCount;
+
+        clear();
+        for (int doc = 0; doc < oldCount; doc++) {
+            if (oldLive[doc]) {
+                addDocument(oldIds[doc], oldCategoryIds[doc], oldTerms[doc]);
+            }
+        }
+    }
+
+    private void clear() {
+        docProductIds = new long[16];
+        docCategoryIds = new long[16];
+        docTerms = new String[16][];
+        docLive = new boolean[16];
+        docCount = 0;
+        liveDocs = 0;
+        docByProductId.clear();
+        postings = new TrigramPostings();
+    }
+
+    // Open-addressing map from a document ordinal to a count, allocated per query and sized to
+    // the documents it touches rather than to the whole index
+    private static final class DocCounts {
+        static final int EMPTY = -1;
+
+        private int[] keys;
+        private int[] values;
+        private int size;
+
+        DocCounts(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(8, expected * 2 - 1)) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        void add(int doc, int amount) {
+            int slot = find(doc);
+            if (keys[slot] == EMPTY) {
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                    slot = find(doc);
+                }
+                keys[slot] = doc;
+                size++;
+            }
+            values[slot] += amount;
+        }
+
+        boolean contains(int doc) {
+            return keys[find(doc)] != EMPTY;
+        }
+
+        int get(int doc) {
+            int slot = find(doc);
+            return keys[slot] == EMPTY ? 0 : values[slot];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        int keyAt(int slot) {
+            return keys[slot];
+        }
+
+        int valueAt(int slot) {
+            return values[slot];
+        }
+
+        private int find(int doc) {
+            int mask = keys.length - 1;
+            int slot = (doc * 0x9E3779B9 >>> 7) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != doc) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    // Open-addressing map from an encoded trigram to its postings list
+    private static final class TrigramPostings {
+        private static final long EMPTY = -1L;
+        private static final int[] NO_POSTINGS = new int[0];
+
+        private long[] keys = newKeys(1024);
+        private int[][] lists = new int[1024][];
+        private int[] sizes = new int[1024];
+        private int used;
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        int[] get(long gram) {
+            int slot = find(gram);
+            return keys[slot] == EMPTY ? NO_POSTINGS : lists[slot];
+        }
+
+        int size(long gram) {
+            int slot = find(gram);
+            return keys[slot] == EMPTY ? 0 : sizes[slot];
+        }
+
+        void append(long gram, int doc) {
+            int slot = find(gram);
+            if (keys[slot] == EMPTY) {
+                if ((used + 1) * 2 > keys.length) {
+                    grow();
+                    slot = find(gram);
+                }
+                keys[slot] = gram;
+                lists[slot] = new int[4];
+                used++;
+            }
+            if (sizes[slot] == lists[slot].length) {
+                lists[slot] = Arrays.copyOf(lists[slot], sizes[slot] * 2);
+            }
+            lists[slot][sizes[slot]++] = doc;
+        }
+
+        private int find(long gram) {
+            int mask = keys.length - 1;
+            int slot = (int) (mix(gram) & mask);
+            while (keys[slot] != EMPTY && keys[slot] != gram) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[][] oldLists = lists;
+            int[] oldSizes = sizes;
+
+            keys = newKeys(oldKeys.length * 2);
+            lists = new int[oldKeys.length * 2][];
+            sizes = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    lists[slot] = oldLists[i];
+                    sizes[slot] = oldSizes[i];
+                }
+            }
+        }
+
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
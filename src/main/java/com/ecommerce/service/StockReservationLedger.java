@@ -0,0 +1,203 @@
+package com.ecommerce.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-memory ledger of the units held by PENDING orders. Per-product totals are striped, so
+// orders for different products rarely share a lock, and deadlines sit in a hashed timing
+// wheel that is swept once per tick instead of running one timer per order.
+@Component
+public class StockReservationLedger {
+
+    static final long TICK_MILLIS = 1000;
+    private static final int STRIPES = 64;
+    private static final int WHEEL_SLOTS = 4096;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final List<Map<Long, Integer>> reservedByStripe = new ArrayList<>(STRIPES);
+    private final Map<Long, Reservation> reservationsByOrder = new ConcurrentHashMap<>();
+
+    // Wheel slot -> reservations due on a tick that maps to it; guarded by wheelLock.
+    // Released reservations are left in place and skipped when their slot is swept.
+    private final List<List<Reservation>> wheel = new ArrayList<>(WHEEL_SLOTS);
+    private final Object wheelLock = new Object();
+    private long sweptTick = System.currentTimeMillis() / TICK_MILLIS;
+
+    private record Reservation(long orderId, Map<Long, Integer> quantities, long deadlineTick) {
+    }
+
+    public StockReservationLedger() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+            reservedByStripe.add(new HashMap<>());
+        }
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel.add(new ArrayList<>());
+        }
+    }
+
+    // Holds the quantities for the order if every product still has them available once the
+    // other live reservations are taken off its stock. Returns the id of the first product
+    // that falls short, or null when the whole order was reserved.
+    public Long reserve(long orderId, Map<Long, Integer> quantities, Map<Long, Integer> stock, long deadlineMillis) {
+        int[] stripes = stripesOf(quantities.keySet());
+        lock(stripes);
+        try {
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                int available = stock.getOrDefault(entry.getKey(), 0) - reservedLocked(entry.getKey());
+                if (available < entry.getValue()) {
+                    return entry.getKey();
+                }
+            }
+            add(quantities, 1);
+        } finally {
+            unlock(stripes);
+        }
+        track(orderId, quantities, deadlineMillis);
+        return null;
+    }
+
+    // Puts back a reservation loaded from the database without checking stock
+    public void restore(long orderId, Map<Long, Integer> quantities, long deadlineMillis) {
+        int[] stripes = stripesOf(quantities.keySet());
+        lock(stripes);
+        try {
+            add(quantities, 1);
+        } finally {
+            unlock(stripes);
+        }
+        track(orderId, quantities, deadlineMillis);
+    }
+
+    // Drops the order's reservation; false when it had none (already released or expired)
+    public boolean release(long orderId) {
+        Reservation reservation = reservationsByOrder.remove(orderId);
+        if (reservation == null) {
+            return false;
+        }
+        int[] stripes = stripesOf(reservation.quantities().keySet());
+        lock(stripes);
+        try {
+            add(reservation.quantities(), -1);
+        } finally {
+            unlock(stripes);
+        }
+        return true;
+    }
+
+    public boolean isReserved(long orderId) {
+        return reservationsByOrder.containsKey(orderId);
+    }
+
+    public int reserved(long productId) {
+        ReentrantLock lock = locks[stripeOf(productId)];
+        lock.lock();
+        try {
+            return reservedLocked(productId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int activeReservations() {
+        return reservationsByOrder.size();
+    }
+
+    // Advances the wheel to the given time and returns the orders whose reservations are due.
+    // They stay held until the caller releases them, so a failed expiry can be retried.
+    public List<Long> dueOrders(long nowMillis) {
+        long nowTick = nowMillis / TICK_MILLIS;
+        List<Long> due = new ArrayList<>();
+        synchronized (wheelLock) {
+            // One full turn visits every slot, however long the sweeper was away
+            long fromTick = Math.max(sweptTick + 1, nowTick - WHEEL_SLOTS + 1);
+            for (long tick = fromTick; tick <= nowTick; tick++) {
+                Iterator<Reservation> slot = wheel.get(slotOf(tick)).iterator();
+                while (slot.hasNext()) {
+                    Reservation reservation = slot.next();
+                    if (reservation.deadlineTick() > nowTick) {
+                        continue;
+                    }
+                    slot.remove();
+                    if (reservationsByOrder.get(reservation.orderId()) == reservation) {
+                        due.add(reservation.orderId());
+                    }
+                }
+            }
+            sweptTick = Math.max(sweptTick, nowTick);
+        }
+        return due;
+    }
+
+    // Puts a due reservation back on the wheel for the next tick
+    public void retryLater(long orderId) {
+        Reservation reservation = reservationsByOrder.get(orderId);
+        if (reservation != null) {
+            schedule(reservation);
+        }
+    }
+
+    private void track(long orderId, Map<Long, Integer> quantities, long deadlineMillis) {
+        long deadlineTick = (deadlineMillis + TICK_MILLIS - 1) / TICK_MILLIS;
+        Reservation reservation = new Reservation(orderId, Map.copyOf(quantities), deadlineTick);
+        reservationsByOrder.put(orderId, reservation);
+        schedule(reservation);
+    }
+
+    private void schedule(Reservation reservation) {
+        synchronized (wheelLock) {
+            // Deadlines already swept past go into the next slot to be visited
+            long tick = Math.max(reservation.deadlineTick(), sweptTick + 1);
+            wheel.get(slotOf(tick)).add(reservation);
+        }
+    }
+
+    // Caller holds the stripe locks of every product in quantities
+    private void add(Map<Long, Integer> quantities, int sign) {
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Map<Long, Integer> reserved = reservedByStripe.get(stripeOf(entry.getKey()));
+            reserved.merge(entry.getKey(), sign * entry.getValue(), (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private int reservedLocked(long productId) {
+        return reservedByStripe.get(stripeOf(productId)).getOrDefault(productId, 0);
+    }
+
+    // Distinct stripes in ascending order, so two orders never lock them in opposite orders
+    private static int[] stripesOf(Iterable<Long> productIds) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (Long productId : productIds) {
+            stripes.add(stripeOf(productId));
+        }
+        return stripes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void lock(int[] stripes) {
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+    }
+
+    private void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    private static int stripeOf(long productId) {
+        return (Long.hashCode(productId) * 0x9E3779B9 >>> 26) & (STRIPES - 1);
+    }
+
+    private static int slotOf(long tick) {
+        return (int) (tick % WHEEL_SLOTS);
+    }
+}
@@ -0,0 +1,171 @@
+package com.ecommerce.service;
+
+import com.ecommerce.exception.InsufficientStockException;
+import com.ecommerce.exception.ResourceNotFoundException;
+import com.ecommerce.model.OrderStatus;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.StockReservation;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Holds stock for PENDING orders. The units stay in products.stock until the order is paid;
+// meanwhile the ledger keeps other orders from claiming them, and they are handed back when
+// the order is cancelled or its reservation times out.
+@Service
+public class StockReservationService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO stock_reservations (order_id, product_id, quantity, expires_at) VALUES (?, ?, ?, ?)";
+
+    private final StockReservationLedger ledger;
+    private final StockReservationRepository reservationRepository;
+    private final OrderRepository orderRepository;
+    private final CatalogFacetIndex facetIndex;
+    private final StockShardService stockShardService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+
+    public StockReservationService(StockReservationLedger ledger, StockReservationRepository reservationRepository,
+                                   OrderRepository orderRepository, CatalogFacetIndex facetIndex,
+                                   StockShardService stockShardService, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                   @Value("${stock.reservations.ttl:15m}") Duration ttl) {
+        this.ledger = ledger;
+        this.reservationRepository = reservationRepository;
+        this.orderRepository = orderRepository;
+        this.facetIndex = facetIndex;
+        this.stockShardService = stockShardService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadReservations() {
+        Map<Long, Map<Long, Integer>> quantitiesByOrder = new LinkedHashMap<>();
+        Map<Long, LocalDateTime> expiryByOrder = new HashMap<>();
+        for (StockReservation reservation : reservationRepository.findAll()) {
+            quantitiesByOrder.computeIfAbsent(reservation.getOrderId(), id -> new HashMap<>())
+                    .merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+            expiryByOrder.put(reservation.getOrderId(), reservation.getExpiresAt());
+        }
+        // Reservations that lapsed while the application was down expire on the first sweep
+        quantitiesByOrder.forEach((orderId, quantities) ->
+                ledger.restore(orderId, quantities, toEpochMillis(expiryByOrder.get(orderId))));
+    }
+
+    // Reserves the order's units against the stock of the loaded products, or throws when a
+    // product is short. Must run inside the transaction that saved the order.
+    public void reserve(Long orderId, Map<Long, Integer> quantities, Map<Long, Product> products) {
+        InsufficientStockException failure = reserveAll(Map.of(orderId, quantities), products).get(orderId);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Reserves several orders in one go, writing all their rows in a single batch. Orders
+    // that cannot be covered get nothing and are returned with the reason.
+    public Map<Long, InsufficientStockException> reserveAll(Map<Long, Map<Long, Integer>> quantitiesByOrder,
+                                                            Map<Long, Product> products) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        Timestamp expiry = Timestamp.from(expiresAt);
+        Map<Long, InsufficientStockException> failures = new HashMap<>();
+        List<Object[]> rows = new ArrayList<>();
+        // Stock per product, read once for the whole batch. The row of a hot product lags its
+        // shards by up to a fold, so the shards are summed instead, as in getAvailability.
+        Map<Long, Integer> sellable = new HashMap<>();
+
+        quantitiesByOrder.forEach((orderId, quantities) -> {
+            Map<Long, Integer> stock = new HashMap<>();
+            for (Long productId : quantities.keySet()) {
+                stock.put(productId, sellable.computeIfAbsent(productId, id -> stockShardService.isHot(id)
+                        ? stockShardService.getStock(id)
+                        : products.get(id).getStock()));
+            }
+
+            Long shortProductId = ledger.reserve(orderId, quantities, stock, expiresAt.toEpochMilli());
+            if (shortProductId != null) {
+                failures.put(orderId, new InsufficientStockException(
+                        "Not enough stock for product: " + products.get(shortProductId).getName()));
+                return;
+            }
+            TransactionCallbacks.afterRollback(() -> ledger.release(orderId));
+            quantities.forEach((productId, quantity) -> rows.add(new Object[]{orderId, productId, quantity, expiry}));
+        });
+
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+        return failures;
+    }
+
+    // Hands the order's units back to the pool once the surrounding transaction commits.
+    // Used when the order is paid (the units are then taken from stock) or cancelled.
+    public void release(Long orderId) {
+        reservationRepository.deleteByOrderIdInBulk(orderId);
+        TransactionCallbacks.afterCommit(() -> ledger.release(orderId));
+    }
+
+    public int getReserved(Long productId) {
+        return ledger.reserved(productId);
+    }
+
+    // Stock that can still be promised to new orders, from the catalog snapshot and the ledger.
+    // The snapshot of a hot product lags its shards, so those are read instead.
+    public Map<String, Object> getAvailability(Long productId) {
+        Integer stock = facetIndex.stockOf(productId);
+        if (stock == null) {
+            throw new ResourceNotFoundException("Product not found: " + productId);
+        }
+        if (stockShardService.isHot(productId)) {
+            stock = stockShardService.getStock(productId);
+        }
+        int reserved = ledger.reserved(productId);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("productId", productId);
+        response.put("stock", stock);
+        response.put("reserved", reserved);
+        response.put("available", Math.max(0, stock - reserved));
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${stock.reservations.sweep-interval-ms:1000}")
+    public void expireReservations() {
+        for (Long orderId : ledger.dueOrders(System.currentTimeMillis())) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> expire(orderId));
+            } catch (RuntimeException e) {
+                ledger.retryLater(orderId);
+            }
+        }
+    }
+
+    // Cancels the order if it is still unpaid and frees its units
+    private void expire(Long orderId) {
+        orderRepository.updateStatusIfCurrent(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED);
+        release(orderId);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
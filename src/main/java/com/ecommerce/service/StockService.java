@@ -0,0 +1,175 @@
+package com.ecommerce.service;
+
+import com.ecommerce.exception.InsufficientStockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+// Stock changes as single set-based statements. Taking stock is one guarded UPDATE for all
+// products of an order; the database checks the quantities while it updates the rows, so no
+// row is locked ahead of time and concurrent checkouts cannot oversell. (The plain read just
+// before the UPDATE only serves to name the short products if it fails.)
+// Products in hot-SKU mode are taken from their stock shards instead (StockShardService); the
+// statements skip rows flagged stock_sharded, so a product turning hot mid-checkout is never
+// sold from both its row and its shards.
+@Service
+public class StockService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockShardService stockShardService;
+    private final ProductService productService;
+    private final ProductSearchService productSearchService;
+
+    public StockService(JdbcTemplate jdbcTemplate, StockShardService stockShardService,
+                        ProductService productService, ProductSearchService productSearchService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockShardService = stockShardService;
+        this.productService = productService;
+        this.productSearchService = productSearchService;
+    }
+
+    // Take the given units (product id -> quantity) or none at all. Must run inside the
+    // caller's transaction: when a product is short the exception rolls back any rows the
+    // statement did update.
+    public void takeStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // Ascending ids so concurrent statements touch rows in the same order, and product rows
+        // before shard rows
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        Map<Long, Integer> rows = new TreeMap<>();
+        Map<Long, Integer> hot = new TreeMap<>();
+        sorted.forEach((productId, quantity) ->
+                (stockShardService.isHot(productId) ? hot : rows).put(productId, quantity));
+
+        if (!rows.isEmpty()) {
+            String quantityCase = quantityCase(rows.size());
+            String sql = "UPDATE products SET stock = stock - " + quantityCase +
+                    " WHERE id IN " + idList(rows.size()) + " AND stock >= " + quantityCase +
+                    " AND stock_sharded = FALSE";
+
+            List<Object> args = new ArrayList<>();
+            bindQuantities(rows, args);
+            args.addAll(rows.keySet());
+            bindQuantities(rows, args);
+
+            // Read before the UPDATE: afterwards the rows it did change would show their lowered
+            // stock and could look short themselves
+            Map<Long, ProductStock> before = stockOf(rows.keySet());
+            int updated = jdbcTemplate.update(sql, args.toArray());
+            if (updated != rows.size()) {
+                // Products enabled for hot-SKU mode since isHot was checked were skipped: their
+                // units are in the shards now. Any other row missing from the count was short.
+                Map<Long, Integer> sharded = stockShardService.lockShards(rows.keySet());
+                if (updated != rows.size() - sharded.size()) {
+                    rows.keySet().removeAll(sharded.keySet());
+                    throw new InsufficientStockException("Not enough stock for product: " + shortProducts(rows, before));
+                }
+                sharded.forEach((productId, shards) ->
+                        requireTaken(stockShardService.take(productId, shards, rows.get(productId)), productId));
+            }
+        }
+        hot.forEach((productId, quantity) -> requireTaken(stockShardService.take(productId, quantity), productId));
+        stockChanged(sorted, -1);
+    }
+
+    // Put units back, e.g. for a refunded order
+    public void returnStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        Map<Long, Integer> rows = new TreeMap<>();
+        Map<Long, Integer> hot = new TreeMap<>();
+        sorted.forEach((productId, quantity) ->
+                (stockShardService.isHot(productId) ? hot : rows).put(productId, quantity));
+
+        if (!rows.isEmpty()) {
+            String sql = "UPDATE products SET stock = stock + " + quantityCase(rows.size()) +
+                    " WHERE id IN " + idList(rows.size()) + " AND stock_sharded = FALSE";
+
+            List<Object> args = new ArrayList<>();
+            bindQuantities(rows, args);
+            args.addAll(rows.keySet());
+
+            if (jdbcTemplate.update(sql, args.toArray()) != rows.size()) {
+                // Turned hot since isHot was checked
+                stockShardService.lockShards(rows.keySet())
+                        .forEach((productId, shards) -> stockShardService.give(productId, shards, rows.get(productId)));
+            }
+        }
+        hot.forEach(stockShardService::give);
+        stockChanged(sorted, 1);
+    }
+
+    // CASE id WHEN ? THEN ? ... END, one (id, quantity) pair per product
+    private static String quantityCase(int products) {
+        return "CASE id" + " WHEN ? THEN ?".repeat(products) + " END";
+    }
+
+    private static void bindQuantities(Map<Long, Integer> quantities, List<Object> args) {
+        quantities.forEach((productId, quantity) -> {
+            args.add(productId);
+            args.add(quantity);
+        });
+    }
+
+    private static String idList(int products) {
+        StringJoiner sql = new StringJoiner(", ", "(", ")");
+        for (int i = 0; i < products; i++) {
+            sql.add("?");
+        }
+        return sql.toString();
+    }
+
+    private record ProductStock(String name, int stock) {
+    }
+
+    private Map<Long, ProductStock> stockOf(Collection<Long> productIds) {
+        Map<Long, ProductStock> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, stock FROM products WHERE id IN " + idList(productIds.size()), row -> {
+            stock.put(row.getLong("id"), new ProductStock(row.getString("name"), row.getInt("stock")));
+        }, productIds.toArray());
+        return stock;
+    }
+
+    // Names of the products that could not cover their quantity, for the error message. The
+    // stock was read just before the UPDATE, so a checkout that took the last units in between
+    // can leave nothing to name.
+    private static String shortProducts(Map<Long, Integer> quantities, Map<Long, ProductStock> before) {
+        List<String> names = new ArrayList<>();
+        quantities.forEach((productId, wanted) -> {
+            ProductStock product = before.get(productId);
+            if (product != null && product.stock() < wanted) {
+                names.add(product.name());
+            }
+        });
+        return names.isEmpty() ? "unknown" : String.join(", ", names);
+    }
+
+    private void requireTaken(boolean taken, Long productId) {
+        if (!taken) {
+            throw new InsufficientStockException("Not enough stock for product: " + productName(productId));
+        }
+    }
+
+    private String productName(Long productId) {
+        List<String> names = jdbcTemplate.queryForList("SELECT name FROM products WHERE id = ?", String.class, productId);
+        return names.isEmpty() ? String.valueOf(productId) : names.get(0);
+    }
+
+    private void stockChanged(Map<Long, Integer> quantities, int sign) {
+        Map<Long, Integer> stockDeltas = new HashMap<>();
+        quantities.forEach((productId, quantity) -> stockDeltas.put(productId, sign * quantity));
+        productService.evictProducts(stockDeltas.keySet());
+        productSearchService.onStockChanged(stockDeltas);
+    }
+}
@@ -0,0 +1,206 @@
+package com.ecommerce.service;
+
+import com.ecommerce.exception.ResourceNotFoundException;
+import com.ecommerce.model.ProductStockShard;
+import com.ecommerce.repository.ProductStockShardRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Opt-in "hot SKU" mode for flash sales. The stock of a hot product is split across N shard
+// rows and every checkout takes its units from a random shard, so concurrent buyers wait on
+// N different row locks instead of all queueing on the single product row.
+@Service
+public class StockShardService {
+
+    public static final int MAX_SHARDS = 256;
+
+    private final ProductStockShardRepository shardRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Hot product id -> number of shards
+    private final Map<Long, Integer> shardCounts = new ConcurrentHashMap<>();
+
+    public StockShardService(ProductStockShardRepository shardRepository, JdbcTemplate jdbcTemplate) {
+        this.shardRepository = shardRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadHotProducts() {
+        // Products sharded before the products row carried the flag
+        jdbcTemplate.update("UPDATE products SET stock_sharded = TRUE WHERE stock_sharded = FALSE " +
+                "AND id IN (SELECT product_id FROM product_stock_shards)");
+        shardCounts.clear();
+        for (Long productId : shardRepository.findShardedProductIds()) {
+            shardCounts.put(productId, shardRepository.findByProductIdOrderByShardIndexAsc(productId).size());
+        }
+    }
+
+    public boolean isHot(Long productId) {
+        return shardCounts.containsKey(productId);
+    }
+
+    public Map<Long, Integer> getHotProducts() {
+        return new TreeMap<>(shardCounts);
+    }
+
+    public List<ProductStockShard> getShards(Long productId) {
+        return shardRepository.findByProductIdOrderByShardIndexAsc(productId);
+    }
+
+    // Units left in the shards of a hot product; Product.stock only catches up on the next fold
+    public int getStock(Long productId) {
+        return getShards(productId).stream().mapToInt(ProductStockShard::getStock).sum();
+    }
+
+    // Split the product's current stock evenly across the given number of shards
+    @Transactional
+    public List<ProductStockShard> enable(Long productId, int shards) {
+        if (shards < 2 || shards > MAX_SHARDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Shard count must be between 2 and " + MAX_SHARDS);
+        }
+        ProductRow product = lockProduct(productId);
+        if (product.sharded()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product " + productId + " is already in hot-SKU mode");
+        }
+
+        List<ProductStockShard> created = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            int share = product.stock() / shards + (shard < product.stock() % shards ? 1 : 0);
+            created.add(new ProductStockShard(productId, shard, share));
+        }
+        List<ProductStockShard> saved = shardRepository.saveAll(created);
+        // The stock statements skip the product row from the commit on: a checkout that still
+        // sees the product as cold waits for the row lock taken above, finds the flag set and
+        // moves to the shards (StockService.takeStock). Published only once the shards exist.
+        jdbcTemplate.update("UPDATE products SET stock_sharded = TRUE WHERE id = ?", productId);
+        TransactionCallbacks.afterCommit(() -> shardCounts.put(productId, shards));
+        return saved;
+    }
+
+    // Fold the shards back into Product.stock and route checkouts to the product row again
+    @Transactional
+    public int disable(Long productId) {
+        if (!lockProduct(productId).sharded()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product " + productId + " is not in hot-SKU mode");
+        }
+        Integer shards = shardCounts.remove(productId);
+        TransactionCallbacks.afterRollback(() -> {
+            if (shards != null) {
+                shardCounts.put(productId, shards);
+            }
+        });
+
+        // Wait for checkouts still holding a shard
+        int stock = shardRepository.findByProductIdForUpdate(productId).stream()
+                .mapToInt(ProductStockShard::getStock)
+                .sum();
+        jdbcTemplate.update("UPDATE products SET stock = ?, stock_sharded = FALSE WHERE id = ?", stock, productId);
+        shardRepository.deleteByProductIdInBulk(productId);
+        return stock;
+    }
+
+    // The given products that have shard rows, with their shard counts. A locking read, so it
+    // sees the latest committed enable or disable whatever the caller's snapshot; rows are
+    // always locked product first, then shards, so callers may hold product rows.
+    Map<Long, Integer> lockShards(Collection<Long> productIds) {
+        Map<Long, Integer> shards = new TreeMap<>();
+        jdbcTemplate.query("SELECT product_id FROM product_stock_shards WHERE product_id IN (" +
+                String.join(", ", Collections.nCopies(productIds.size(), "?")) + ") FOR UPDATE",
+                row -> {
+                    shards.merge(row.getLong("product_id"), 1, Integer::sum);
+                }, productIds.toArray());
+        return shards;
+    }
+
+    // A new stock level set while the product is hot is spread over its shards
+    @Transactional
+    public void resetStock(Long productId, int stock) {
+        List<ProductStockShard> shards = shardRepository.findByProductIdForUpdate(productId);
+        for (ProductStockShard shard : shards) {
+            int index = shard.getShardIndex();
+            shard.setStock(stock / shards.size() + (index < stock % shards.size() ? 1 : 0));
+        }
+        shardRepository.saveAll(shards);
+    }
+
+    // Take units inside the caller's transaction. A random shard is tried first, then its
+    // neighbours; only when no single shard can cover the quantity is it collected from
+    // several. Returns false when all shards together are short, in which case the caller
+    // must roll back whatever was taken.
+    boolean take(Long productId, int quantity) {
+        return take(productId, shardCounts.getOrDefault(productId, 0), quantity);
+    }
+
+    boolean take(Long productId, int shards, int quantity) {
+        if (shards == 0) {
+            return false;
+        }
+        int start = ThreadLocalRandom.current().nextInt(shards);
+
+        for (int i = 0; i < shards; i++) {
+            if (shardRepository.takeFromShard(productId, (start + i) % shards, quantity) == 1) {
+                return true;
+            }
+        }
+
+        int remaining = quantity;
+        for (int i = 0; i < shards && remaining > 0; i++) {
+            int shard = (start + i) % shards;
+            Integer available = shardRepository.findShardStock(productId, shard);
+            int portion = available == null ? 0 : Math.min(available, remaining);
+            if (portion > 0 && shardRepository.takeFromShard(productId, shard, portion) == 1) {
+                remaining -= portion;
+            }
+        }
+        return remaining == 0;
+    }
+
+    // Put units back into a random shard
+    void give(Long productId, int quantity) {
+        give(productId, shardCounts.getOrDefault(productId, 0), quantity);
+    }
+
+    void give(Long productId, int shards, int quantity) {
+        if (shards > 0) {
+            shardRepository.addToShard(productId, ThreadLocalRandom.current().nextInt(shards), quantity);
+        }
+    }
+
+    // Keep Product.stock close to the shard totals for listings and reports
+    @Scheduled(fixedDelayString = "${stock.shards.fold-interval-ms:1000}")
+    @Transactional
+    public void foldShards() {
+        if (!shardCounts.isEmpty()) {
+            shardRepository.foldIntoProducts(new ArrayList<>(shardCounts.keySet()));
+        }
+    }
+
+    private record ProductRow(int stock, boolean sharded) {
+    }
+
+    private ProductRow lockProduct(Long productId) {
+        try {
+            return jdbcTemplate.queryForObject("SELECT stock, stock_sharded FROM products WHERE id = ? FOR UPDATE",
+                    (row, rowNum) -> new ProductRow(row.getInt("stock"), row.getBoolean("stock_sharded")), productId);
+        } catch (EmptyResultDataAccessException e) {
+            throw new ResourceNotFoundException("Product not found");
+        }
+    }
+}
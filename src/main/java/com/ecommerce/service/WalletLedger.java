@@ -0,0 +1,195 @@
+package com.ecommerce.service;
+
+import com.ecommerce.exception.InsufficientStockException;
+import com.ecommerce.exception.ResourceNotFoundException;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Transaction;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Ledger mode for wallets (wallet.ledger.enabled). Every movement is a single insert into
+// transactions and the wallets row is left alone, so payments from one wallet no longer queue
+// on its row. A balance is its wallet_snapshots row plus the signed transactions after it;
+// the result is kept as a running total in memory, and the snapshots are rolled forward in
+// the background so a restart only has to sum a short tail. Balances live in this instance's
+// memory, so ledger mode runs on a single instance and every ledger writer passes through here.
+@Service
+public class WalletLedger {
+
+    // transactions.amount with the sign it has on the balance
+    private static final String SIGNED_AMOUNT = "CASE WHEN t.type IN (" +
+            Arrays.stream(Transaction.TransactionType.values())
+                    .filter(Transaction.TransactionType::isCredit)
+                    .map(type -> "'" + type.name() + "'")
+                    .collect(Collectors.joining(", ")) +
+            ") THEN t.amount ELSE -t.amount END";
+
+    private final TransactionRepository transactionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    // User id -> balance. Debits come off as soon as they are recorded (and go back on rollback);
+    // credits are only added once committed, so an uncommitted deposit can never be spent.
+    private final Map<Long, Double> balances = new ConcurrentHashMap<>();
+
+    // Database transactions that may still insert into transactions, each with a floor its ids
+    // will be above: the highest id known to be taken when it started writing. Compaction stays
+    // at or below the lowest floor, since ids are handed out in order but committed in any order.
+    private final Map<Object, Long> openWriters = new ConcurrentHashMap<>();
+    private final AtomicLong lastKnownId = new AtomicLong();
+
+    public WalletLedger(TransactionRepository transactionRepository, JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${wallet.ledger.enabled:false}") boolean enabled) {
+        this.transactionRepository = transactionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadBalances() {
+        if (!enabled) {
+            return;
+        }
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM transactions", Long.class);
+        lastKnownId.accumulateAndGet(maxId == null ? 0 : maxId, Math::max);
+
+        // Wallets seen for the first time in ledger mode start from their wallets.balance
+        jdbcTemplate.update("INSERT INTO wallet_snapshots (user_id, balance, last_transaction_id, updated_at) " +
+                "SELECT w.user_id, w.balance, COALESCE((SELECT MAX(t.id) FROM transactions t WHERE t.user_id = w.user_id), 0), ? " +
+                "FROM wallets w WHERE NOT EXISTS (SELECT 1 FROM wallet_snapshots s WHERE s.user_id = w.user_id)",
+                Timestamp.valueOf(LocalDateTime.now()));
+
+        jdbcTemplate.query("SELECT s.user_id, s.balance + COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) " +
+                        "FROM wallet_snapshots s LEFT JOIN transactions t ON t.user_id = s.user_id AND t.id > s.last_transaction_id " +
+                        "GROUP BY s.user_id, s.balance",
+                rs -> {
+                    balances.put(rs.getLong(1), rs.getDouble(2));
+                });
+    }
+
+    // Starts the ledger of a new wallet. Its initial deposit, if any, is part of the tail.
+    public void open(Long userId, double initialBalance) {
+        holdCompaction();
+        jdbcTemplate.update("INSERT INTO wallet_snapshots (user_id, balance, last_transaction_id, updated_at) VALUES (?, 0, 0, ?)",
+                userId, Timestamp.valueOf(LocalDateTime.now()));
+        TransactionCallbacks.afterCommit(() -> balances.put(userId, initialBalance));
+    }
+
+    // Appends a movement to the user's ledger. Debits fail with InsufficientStockException when
+    // the balance does not cover them. Must run inside the caller's transaction.
+    public Transaction record(User user, Transaction.TransactionType type, double amount,
+                              String description, Order order) {
+        Long userId = user.getId();
+        holdCompaction();
+        double balanceAfter;
+        if (type.isCredit()) {
+            balanceAfter = balanceOf(userId) + amount;
+            TransactionCallbacks.afterCommit(() -> balances.merge(userId, amount, Double::sum));
+        } else {
+            balanceAfter = balances.compute(userId, (id, balance) -> {
+                if (balance == null) {
+                    throw new ResourceNotFoundException("Wallet not found for user");
+                }
+                if (balance < amount) {
+                    throw new InsufficientStockException("Insufficient wallet balance. Required: " +
+                            amount + ", Available: " + balance);
+                }
+                return balance - amount;
+            });
+            TransactionCallbacks.afterRollback(() -> balances.merge(userId, amount, Double::sum));
+        }
+
+        Transaction transaction = new Transaction(user, type, amount, description, balanceAfter);
+        transaction.setOrder(order);
+        Transaction saved = transactionRepository.save(transaction);
+        lastKnownId.accumulateAndGet(saved.getId(), Math::max);
+        return saved;
+    }
+
+    // Credits already written to transactions by the caller (bulk deposits), applied to the
+    // running balances once the surrounding transaction commits
+    public void creditAfterCommit(Map<Long, Double> amounts) {
+        holdCompaction();
+        TransactionCallbacks.afterCommit(() -> amounts.forEach((userId, amount) -> balances.merge(userId, amount, Double::sum)));
+    }
+
+    public double balanceOf(Long userId) {
+        Double balance = balances.get(userId);
+        if (balance == null) {
+            throw new ResourceNotFoundException("Wallet not found for user");
+        }
+        return balance;
+    }
+
+    // Keeps compaction below whatever the surrounding transaction inserts, until it ends
+    private void holdCompaction() {
+        Object writer = new Object();
+        openWriters.put(writer, lastKnownId.get());
+        TransactionCallbacks.afterCompletion(() -> openWriters.remove(writer));
+    }
+
+    // Folds each wallet's tail into its snapshot, and copies the result to wallets.balance so
+    // that row stays close to the truth. Only transactions up to a committed high-water mark are
+    // folded: one still uncommitted may hold a lower id than rows already visible, and folding
+    // past it would leave it out of the balance for good.
+    @Scheduled(fixedDelayString = "${wallet.ledger.snapshot-interval-ms:60000}")
+    public void compactSnapshots() {
+        if (!enabled) {
+            return;
+        }
+        // Read before looking at the open writers: any writer that starts later gets a higher id.
+        // The fold below runs in a transaction of its own, so it sees every writer that ended.
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM transactions", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        lastKnownId.accumulateAndGet(maxId, Math::max);
+        long upToId = Math.min(maxId, openWriters.values().stream().mapToLong(Long::longValue).min().orElse(maxId));
+        LocalDateTime now = LocalDateTime.now();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> snapshots = new ArrayList<>();
+            List<Object[]> wallets = new ArrayList<>();
+            jdbcTemplate.query("SELECT s.user_id, s.balance + SUM(" + SIGNED_AMOUNT + "), MAX(t.id), s.last_transaction_id " +
+                            "FROM wallet_snapshots s JOIN transactions t ON t.user_id = s.user_id AND t.id > s.last_transaction_id " +
+                            "WHERE t.id <= ? GROUP BY s.user_id, s.balance, s.last_transaction_id",
+                    rs -> {
+                        long userId = rs.getLong(1);
+                        double balance = rs.getDouble(2);
+                        snapshots.add(new Object[]{balance, rs.getLong(3), Timestamp.valueOf(now), userId, rs.getLong(4)});
+                        wallets.add(new Object[]{balance, userId});
+                    }, upToId);
+
+            if (!snapshots.isEmpty()) {
+                // Guarded on the old position, in case another compaction ran in the meantime
+                jdbcTemplate.batchUpdate("UPDATE wallet_snapshots SET balance = ?, last_transaction_id = ?, updated_at = ? " +
+                        "WHERE user_id = ? AND last_transaction_id = ?", snapshots);
+                jdbcTemplate.batchUpdate("UPDATE wallets SET balance = ?, version = version + 1 WHERE user_id = ?", wallets);
+            }
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.ecommerce.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Runs wallet changes in their own transaction and runs them again when the wallet's @Version
+// shows another transaction got there first. Attempts back off exponentially with full jitter,
+// so writers that collided once do not collide again on the next round.
+@Component
+public class WalletRetryExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public WalletRetryExecutor(TransactionTemplate transactionTemplate,
+                               @Value("${wallet.retry.max-attempts:8}") int maxAttempts,
+                               @Value("${wallet.retry.backoff:2ms}") Duration backoff,
+                               @Value("${wallet.retry.max-backoff:100ms}") Duration maxBackoff) {
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = backoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    public <T> T run(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // A conflict has to roll back the caller's transaction too, so retrying is up to the
+            // caller (see OrderJobService); here it is run once as part of that transaction
+            return work.get();
+        }
+        operations.increment();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Wallet is being updated concurrently, retry later");
+                }
+                retries.increment();
+                if (!pause(attempt)) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Interrupted while retrying wallet update");
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long total = operations.sum();
+        long retried = retries.sum();
+        long failed = exhausted.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("operations", total);
+        stats.put("retries", retried);
+        stats.put("conflicts", failed);
+        stats.put("retryRate", total == 0 ? 0.0 : (double) retried / total);
+        stats.put("conflictRate", total == 0 ? 0.0 : (double) failed / total);
+        stats.put("maxAttempts", maxAttempts);
+        return stats;
+    }
+
+    // Sleeps a random time up to base * 2^(attempt - 1), capped; false when interrupted
+    private boolean pause(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(attempt - 1, 20));
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        return !Thread.currentThread().isInterrupted();
+    }
+}
@@ -1,7 +1,10 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.TransactionHistoryDTO;
+import com.ecommerce.dto.TransferResultDTO;
 import com.ecommerce.exception.InsufficientStockException;
 import com.ecommerce.exception.ResourceNotFoundException;
+import com.ecommerce.model.Order;
 import com.ecommerce.model.Transaction;
 import com.ecommerce.model.User;
 import com.ecommerce.model.Wallet;
@@ -9,21 +12,38 @@ import com.ecommerce.repository.TransactionRepository;
 import com.ecommerce.repository.UserRepository;
 import com.ecommerce.repository.WalletRepository;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 
 @Service
 public class WalletService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Open ends of a history's time range, within what a DATETIME column can hold
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 1, 1, 0, 0);
+
     private final WalletRepository walletRepository;
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
+    private final WalletRetryExecutor walletRetry;
+    private final WalletLedger ledger;
 
-    public WalletService(WalletRepository walletRepository, UserRepository userRepository, TransactionRepository transactionRepository) {
+    public WalletService(WalletRepository walletRepository, UserRepository userRepository, TransactionRepository transactionRepository,
+                         WalletRetryExecutor walletRetry, WalletLedger ledger) {
         this.walletRepository = walletRepository;
         this.userRepository = userRepository;
         this.transactionRepository = transactionRepository;
+        this.walletRetry = walletRetry;
+        this.ledger = ledger;
     }
 
     @Transactional
@@ -37,6 +57,9 @@ public class WalletService {
 
         Wallet wallet = new Wallet(user, initialBalance);
         Wallet savedWallet = walletRepository.save(wallet);
+        if (ledger.isEnabled()) {
+            ledger.open(userId, initialBalance);
+        }
 
         if (initialBalance > 0) {
             Transaction transaction = new Transaction(
@@ -53,73 +76,174 @@ public class WalletService {
     }
 
     public Wallet getWalletByUserId(Long userId) {
-        return walletRepository.findByUserId(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user"));
+        Wallet wallet = findWallet(userId);
+        return ledger.isEnabled() ? withBalance(wallet, ledger.balanceOf(userId)) : wallet;
     }
 
-    @Transactional
+    // Runs in its own transaction, again if a concurrent change to the wallet commits first
     public Wallet deposit(Long userId, Double amount) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Deposit amount must be positive");
         }
 
-        Wallet wallet = getWalletByUserId(userId);
-        wallet.deposit(amount);
-        Wallet updatedWallet = walletRepository.save(wallet);
-
-        Transaction transaction = new Transaction(
-                wallet.getUser(),
-                Transaction.TransactionType.DEPOSIT,
-                amount,
-                "Deposit to wallet",
-                updatedWallet.getBalance()
-        );
-        transactionRepository.save(transaction);
-
-        return updatedWallet;
+        return walletRetry.run(() -> move(userId, Transaction.TransactionType.DEPOSIT, amount, "Deposit to wallet", null));
     }
 
-    @Transactional
     public Wallet withdraw(Long userId, Double amount) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Withdrawal amount must be positive");
         }
 
-        Wallet wallet = getWalletByUserId(userId);
-        
-        if (!wallet.hasSufficientBalance(amount)) {
-            throw new InsufficientStockException("Insufficient wallet balance");
+        return walletRetry.run(() -> move(userId, Transaction.TransactionType.WITHDRAWAL, amount, "Withdrawal from wallet", null));
+    }
+
+    // Moves money between two wallets in one transaction, writing a TRANSFER_OUT row for the
+    // sender and a TRANSFER_IN row for the recipient. Both wallet rows are locked in ascending
+    // user id order whichever way the money goes, so transfers in opposite directions (or round
+    // a cycle of users) queue on the same first row instead of deadlocking.
+    public TransferResultDTO transfer(Long fromUserId, Long toUserId, Double amount) {
+        if (amount == null || amount <= 0) {
+            throw new IllegalArgumentException("Transfer amount must be positive");
+        }
+        if (fromUserId.equals(toUserId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same wallet");
+        }
+
+        return walletRetry.run(() -> {
+            Transaction debit;
+            Transaction credit;
+            if (ledger.isEnabled()) {
+                // Ledger movements only insert rows, so there is nothing to lock; the debit is
+                // checked against the in-memory balance
+                User sender = findWallet(fromUserId).getUser();
+                User recipient = findWallet(toUserId).getUser();
+                debit = ledger.record(sender, Transaction.TransactionType.TRANSFER_OUT,
+                        amount, "Transfer to user " + toUserId, null);
+                credit = ledger.record(recipient, Transaction.TransactionType.TRANSFER_IN,
+                        amount, "Transfer from user " + fromUserId, null);
+            } else {
+                Wallet first = lockWallet(Math.min(fromUserId, toUserId));
+                Wallet second = lockWallet(Math.max(fromUserId, toUserId));
+                Wallet from = fromUserId < toUserId ? first : second;
+                Wallet to = fromUserId < toUserId ? second : first;
+
+                if (!from.hasSufficientBalance(amount)) {
+                    throw new InsufficientStockException("Insufficient wallet balance. Required: " +
+                            amount + ", Available: " + from.getBalance());
+                }
+                from.withdraw(amount);
+                to.deposit(amount);
+                walletRepository.save(from);
+                walletRepository.save(to);
+
+                debit = transactionRepository.save(new Transaction(from.getUser(), Transaction.TransactionType.TRANSFER_OUT,
+                        amount, "Transfer to user " + toUserId, from.getBalance()));
+                credit = transactionRepository.save(new Transaction(to.getUser(), Transaction.TransactionType.TRANSFER_IN,
+                        amount, "Transfer from user " + fromUserId, to.getBalance()));
+            }
+            return new TransferResultDTO(fromUserId, toUserId, amount, debit.getId(), credit.getId(),
+                    debit.getBalanceAfter(), credit.getBalanceAfter());
+        });
+    }
+
+    // Takes the order's total from its user's wallet, or throws when the balance is short.
+    // Runs inside the caller's transaction.
+    public void chargeForOrder(Order order) {
+        move(order.getUser().getId(), Transaction.TransactionType.PAYMENT, order.getTotalPrice(),
+                "Payment for Order #" + order.getId(), order);
+    }
+
+    public void refundOrder(Order order) {
+        move(order.getUser().getId(), Transaction.TransactionType.REFUND, order.getTotalPrice(),
+                "Refund for cancelled Order #" + order.getId(), order);
+    }
+
+    public Double getBalance(Long userId) {
+        if (ledger.isEnabled()) {
+            return ledger.balanceOf(userId);
+        }
+        Wallet wallet = findWallet(userId);
+        return wallet.getBalance();
+    }
+
+    // One page of a user's history, optionally limited to some types and to created_at in
+    // [from, to). Newest first unless ascending. Like EnhancedOrderService.getOrdersPage, pages
+    // seek past the (createdAt, id) of the previous page's last row, in one query each.
+    public Slice<TransactionHistoryDTO> getTransactionHistory(Long userId, Collection<Transaction.TransactionType> types,
+                                                              LocalDateTime from, LocalDateTime to, boolean ascending,
+                                                              LocalDateTime afterCreatedAt, Long afterId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Collection<Transaction.TransactionType> typeFilter = types == null || types.isEmpty()
+                ? EnumSet.allOf(Transaction.TransactionType.class) : types;
+        LocalDateTime lower = from == null ? EARLIEST : from;
+        LocalDateTime upper = to == null ? LATEST : to;
+        // Without a cursor, start from the near end of the range (inclusive for from, exclusive for to)
+        LocalDateTime cursorAt = afterCreatedAt != null ? afterCreatedAt : ascending ? lower : upper;
+        Long cursorId = afterCreatedAt != null && afterId != null ? afterId : Long.MIN_VALUE;
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<TransactionHistoryDTO> rows = ascending
+                ? transactionRepository.findHistoryAfter(userId, typeFilter, upper, cursorAt, cursorId, limit)
+                : transactionRepository.findHistoryBefore(userId, typeFilter, lower, cursorAt, cursorId, limit);
+
+        boolean hasNext = rows.size() > pageSize;
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageSize) : rows, PageRequest.of(0, pageSize), hasNext);
+    }
+
+    public boolean hasSufficientBalance(Long userId, Double amount) {
+        return getBalance(userId) >= amount;
+    }
+
+    // One balance movement and its history row. In ledger mode only the row is written.
+    private Wallet move(Long userId, Transaction.TransactionType type, double amount, String description, Order order) {
+        Wallet wallet = findWallet(userId);
+        if (ledger.isEnabled()) {
+            Transaction transaction = ledger.record(wallet.getUser(), type, amount, description, order);
+            return withBalance(wallet, transaction.getBalanceAfter());
         }
 
-        wallet.withdraw(amount);
+        if (type.isCredit()) {
+            wallet.deposit(amount);
+        } else {
+            if (!wallet.hasSufficientBalance(amount)) {
+                throw new InsufficientStockException("Insufficient wallet balance. Required: " +
+                        amount + ", Available: " + wallet.getBalance());
+            }
+            wallet.withdraw(amount);
+        }
         Wallet updatedWallet = walletRepository.save(wallet);
 
         Transaction transaction = new Transaction(
                 wallet.getUser(),
-                Transaction.TransactionType.WITHDRAWAL,
+                type,
                 amount,
-                "Withdrawal from wallet",
+                description,
                 updatedWallet.getBalance()
         );
+        transaction.setOrder(order);
         transactionRepository.save(transaction);
 
         return updatedWallet;
     }
 
-    public Double getBalance(Long userId) {
-        Wallet wallet = getWalletByUserId(userId);
-        return wallet.getBalance();
+    private Wallet findWallet(Long userId) {
+        return walletRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user"));
     }
 
-    public List<Transaction> getTransactionHistory(Long userId) {
-        userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        return transactionRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    private Wallet lockWallet(Long userId) {
+        return walletRepository.findByUserIdForUpdate(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user " + userId));
     }
 
-    public boolean hasSufficientBalance(Long userId, Double amount) {
-        Wallet wallet = getWalletByUserId(userId);
-        return wallet.hasSufficientBalance(amount);
+    // Detached copy carrying the ledger balance, which the wallets row only catches up with
+    // when snapshots are compacted
+    private static Wallet withBalance(Wallet wallet, double balance) {
+        Wallet view = new Wallet(wallet.getUser(), balance);
+        view.setId(wallet.getId());
+        view.setCreatedAt(wallet.getCreatedAt());
+        view.setUpdatedAt(wallet.getUpdatedAt());
+        view.setVersion(wallet.getVersion());
+        return view;
     }
 }
@@ -0,0 +1,92 @@
+package com.ecommerce;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Records every statement the test thread sends to the database, at the JDBC level, so
+// Hibernate and JdbcTemplate are both seen. A batch counts once, as the round trip it is.
+// Picked up by component scanning in every test context.
+@Component
+public class StatementCounter implements BeanPostProcessor {
+
+    private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private static final ThreadLocal<List<String>> RECORDING = new ThreadLocal<>();
+
+    // Starts recording the statements of the current thread
+    public static void start() {
+        RECORDING.set(new ArrayList<>());
+    }
+
+    // Stops recording and returns the SQL executed since start(), lower case, in order
+    public static List<String> stop() {
+        List<String> statements = RECORDING.get();
+        RECORDING.remove();
+        return statements == null ? List.of() : statements;
+    }
+
+    // How many of the statements start with the given SQL, e.g. "insert into order_item"
+    public static long count(List<String> statements, String prefix) {
+        return statements.stream().filter(sql -> sql.startsWith(prefix)).count();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, null);
+        }
+        return bean;
+    }
+
+    private static Object proxy(Class<?> type, Object target, String sql) {
+        return Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (EXECUTE.contains(method.getName())) {
+                        record(args != null && args.length > 0 && args[0] instanceof String text ? text : sql);
+                    }
+                    Object result = invoke(method, target, args);
+                    if (result instanceof Connection connection && method.getName().equals("getConnection")) {
+                        return proxy(Connection.class, connection, null);
+                    }
+                    if (result instanceof CallableStatement statement) {
+                        return proxy(CallableStatement.class, statement, (String) args[0]);
+                    }
+                    if (result instanceof PreparedStatement statement) {
+                        return proxy(PreparedStatement.class, statement, (String) args[0]);
+                    }
+                    if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                        return proxy(Statement.class, statement, null);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void record(String sql) {
+        List<String> statements = RECORDING.get();
+        if (statements != null) {
+            statements.add(sql == null ? "" : sql.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ecommerce.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    @Test
+    void cursorOfARowParsesBackToItsKeyAndId() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000);
+        KeysetCursor cursor = KeysetCursor.parse(KeysetCursor.of(createdAt, 42L), "createdAt");
+
+        assertEquals(createdAt, cursor.createdAt());
+        assertEquals(42L, cursor.id());
+        // Only the last comma separates the id
+        KeysetCursor named = KeysetCursor.parse("Red, large,7", "sortKey");
+        assertEquals("Red, large", named.sortKey());
+        assertEquals(7L, named.id());
+    }
+
+    @Test
+    void missingCursorAsksForTheFirstPage() {
+        assertNull(KeysetCursor.parse(null, "createdAt"));
+        assertNull(KeysetCursor.parse(" ", "createdAt"));
+    }
+
+    @Test
+    void malformedCursorsAreBadRequests() {
+        assertBadRequest(() -> KeysetCursor.parse("2024-05-01T12:30", "createdAt"));
+        assertBadRequest(() -> KeysetCursor.parse("2024-05-01T12:30,abc", "createdAt"));
+        assertBadRequest(() -> KeysetCursor.parse("yesterday,5", "createdAt").createdAt());
+        assertBadRequest(() -> KeysetCursor.parse("cheap,5", "sortKey").number());
+    }
+
+    private static void assertBadRequest(Runnable parse) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, parse::run);
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+}
@@ -0,0 +1,101 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.StatementCounter;
+import com.ecommerce.dto.OrderItemDTO;
+import com.ecommerce.dto.OrderRequestDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.UserRepository;
+import com.ecommerce.service.StockReservationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class OrderControllerTest {
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    private User user;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("buyer" + System.nanoTime() + "@example.com", "secret", "buyer", "CUSTOMER"));
+        Category category = categoryRepository.save(new Category("Orders " + System.nanoTime()));
+
+        products = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Product product = new Product();
+            product.setName("Item " + i);
+            product.setDescription("Line item product " + i);
+            product.setPrice(10.0 + i);
+            product.setStock(100);
+            product.setCategory(category);
+            products.add(productRepository.save(product));
+        }
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithLineItems() {
+        List<String> oneLine = statementsFor(1);
+        List<String> fortyLines = statementsFor(40);
+
+        // Order items have IDENTITY keys, so Hibernate inserts them one at a time; every other
+        // statement (product lookup, stock and reservation writes) is the same for both orders
+        assertEquals(1, StatementCounter.count(oneLine, "insert into order_item"));
+        assertEquals(40, StatementCounter.count(fortyLines, "insert into order_item"));
+        assertEquals(oneLine.size() - 1, fortyLines.size() - 40);
+    }
+
+    @Test
+    void stockIsReservedForEveryLine() {
+        statementsFor(40);
+
+        // Units stay in stock until the order is paid, but are held for it
+        for (Product product : products) {
+            assertEquals(100, productRepository.findById(product.getId()).orElseThrow().getStock());
+            assertEquals(1, reservationService.getReserved(product.getId()));
+        }
+    }
+
+    // Statements sent to the database for an order of the given size, batches counted once
+    private List<String> statementsFor(int lines) {
+        OrderRequestDTO request = new OrderRequestDTO();
+        request.setUserId(user.getId());
+        List<OrderItemDTO> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            OrderItemDTO item = new OrderItemDTO();
+            item.setProductId(products.get(i).getId());
+            item.setQuantity(1);
+            items.add(item);
+        }
+        request.setOrderItems(items);
+
+        StatementCounter.start();
+        orderController.createOrder(null, request);
+        return StatementCounter.stop();
+    }
+}
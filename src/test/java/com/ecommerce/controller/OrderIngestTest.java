@@ -0,0 +1,248 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.OrderItemDTO;
+import com.ecommerce.dto.OrderRequestDTO;
+import com.ecommerce.exception.ResourceNotFoundException;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.UserRepository;
+import com.ecommerce.service.OrderPlacementService;
+import com.ecommerce.service.ProductService;
+import com.ecommerce.service.StockReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Group commit for POST /orders, on placement services built with ingest enabled so the
+// shared test context keeps placing orders directly
+@SpringBootTest
+class OrderIngestTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger transactions = new AtomicInteger();
+    private final AtomicInteger transactionsDone = new AtomicInteger();
+    private final AtomicInteger failingTransactions = new AtomicInteger();
+    private final List<OrderPlacementService> services = new ArrayList<>();
+    private final ExecutorService callers = Executors.newFixedThreadPool(20);
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("batched" + System.nanoTime() + "@example.com", "secret", "batched", "CUSTOMER"));
+        Category category = categoryRepository.save(new Category("Ingest " + System.nanoTime()));
+        product = new Product();
+        product.setName("Batched item");
+        product.setDescription("Group commit product");
+        product.setPrice(10.0);
+        product.setStock(1000);
+        product.setCategory(category);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(OrderPlacementService::stopWriters);
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentOrdersShareOneTransaction() throws Exception {
+        // Long enough for every caller to arrive before the writer commits
+        OrderPlacementService service = service(64, Duration.ofSeconds(1), 10000, Duration.ofSeconds(30));
+        service.startWriters();
+
+        List<Future<Order>> placed = placeConcurrently(service, 19, request(product.getId()));
+        Future<Order> unknown = callers.submit(() -> service.placeOrder(request(-1L)));
+
+        for (Future<Order> order : placed) {
+            assertNotNull(orderRepository.findById(order.get().getId()).orElse(null));
+        }
+        // An order that fails on its own is rejected without taking the batch down
+        ExecutionException e = assertThrows(ExecutionException.class, unknown::get);
+        assertInstanceOf(ResourceNotFoundException.class, e.getCause());
+        assertEquals(1, transactions.get());
+        assertEquals(19, reservationService.getReserved(product.getId()));
+    }
+
+    @Test
+    void failedBatchIsRetriedOrderByOrder() throws Exception {
+        OrderPlacementService service = service(64, Duration.ofSeconds(1), 10000, Duration.ofSeconds(30));
+        service.startWriters();
+        failingTransactions.set(1);
+
+        List<Future<Order>> placed = placeConcurrently(service, 5, request(product.getId()));
+
+        for (Future<Order> order : placed) {
+            assertNotNull(orderRepository.findById(order.get().getId()).orElse(null));
+        }
+        // The batch that went down, then one placeNow per order
+        assertEquals(1 + 5, transactions.get());
+        assertEquals(5, reservationService.getReserved(product.getId()));
+    }
+
+    @Test
+    void fullQueueFallsBackToPlacingDirectly() throws Exception {
+        // No writers: the one queued order waits until it times out
+        OrderPlacementService service = service(64, Duration.ofMillis(2), 1, Duration.ofMillis(500));
+
+        Future<Order> queued = callers.submit(() -> service.placeOrder(request(product.getId())));
+        Thread.sleep(100);
+        Order direct = service.placeOrder(request(product.getId()));
+
+        assertNotNull(orderRepository.findById(direct.getId()).orElse(null));
+        ExecutionException e = assertThrows(ExecutionException.class, queued::get);
+        ResponseStatusException timeout = assertInstanceOf(ResponseStatusException.class, e.getCause());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, timeout.getStatusCode());
+        // The timed-out order was taken off the queue, never written
+        assertEquals(1, reservationService.getReserved(product.getId()));
+    }
+
+    @Test
+    void orderAbandonedWhileItsBatchIsWrittenIsTakenBackOut() throws Exception {
+        // The writer stalls after inserting the order, past the caller's timeout
+        OrderPlacementService service = service(64, Duration.ofMillis(2), 10000, Duration.ofMillis(300),
+                Duration.ofMillis(900));
+        service.startWriters();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                service.placeOrder(request(product.getId())));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+
+        // Once the batch commits, neither the order nor its reservation is left behind
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (transactionsDone.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, transactionsDone.get());
+        assertEquals(0, ordersOf(user));
+        assertEquals(0, reservationService.getReserved(product.getId()));
+    }
+
+    private OrderPlacementService service(int maxBatch, Duration maxWait, int queueCapacity, Duration timeout) {
+        return service(maxBatch, maxWait, queueCapacity, timeout, Duration.ZERO);
+    }
+
+    private OrderPlacementService service(int maxBatch, Duration maxWait, int queueCapacity, Duration timeout,
+                                          Duration stallAfterOrderInsert) {
+        TransactionTemplate counting = new TransactionTemplate(transactionManager) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                transactions.incrementAndGet();
+                if (failingTransactions.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    throw new IllegalStateException("Connection lost");
+                }
+                try {
+                    return super.execute(action);
+                } finally {
+                    transactionsDone.incrementAndGet();
+                }
+            }
+        };
+        JdbcTemplate stalling = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder keys) {
+                int[] counts = super.batchUpdate(psc, pss, keys);
+                sleep(stallAfterOrderInsert);
+                return counts;
+            }
+        };
+        OrderPlacementService service = new OrderPlacementService(orderRepository, userRepository, productRepository,
+                productService, reservationService, stalling, counting, true, maxBatch, maxWait, 1,
+                queueCapacity, timeout);
+        services.add(service);
+        return service;
+    }
+
+    private List<Future<Order>> placeConcurrently(OrderPlacementService service, int orders, OrderRequestDTO request) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Order>> placed = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            placed.add(callers.submit(() -> {
+                start.await();
+                return service.placeOrder(request);
+            }));
+        }
+        start.countDown();
+        return placed;
+    }
+
+    private int ordersOf(User owner) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?", Integer.class,
+                owner.getId());
+        return count == null ? 0 : count;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private OrderRequestDTO request(Long productId) {
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(1);
+        OrderRequestDTO request = new OrderRequestDTO();
+        request.setUserId(user.getId());
+        request.setOrderItems(List.of(item));
+        return request;
+    }
+}
@@ -0,0 +1,160 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.OrderItemDTO;
+import com.ecommerce.dto.OrderRequestDTO;
+import com.ecommerce.dto.OrderResponseDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderStatus;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.UserRepository;
+import com.ecommerce.service.EnhancedOrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class OrderListingQueryTest {
+
+    private static final int ORDERS = 25;
+    private static final int LINES_PER_ORDER = 4;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private EnhancedOrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Long firstOrderId;
+    private LocalDateTime startedAt;
+
+    @BeforeEach
+    void setUp() {
+        startedAt = LocalDateTime.now();
+        user = userRepository.save(new User("lister" + System.nanoTime() + "@example.com", "secret", "lister", "CUSTOMER"));
+        Category category = categoryRepository.save(new Category("Listings " + System.nanoTime()));
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < LINES_PER_ORDER; i++) {
+            Product product = new Product();
+            product.setName("Listed " + i);
+            product.setDescription("Listed product " + i);
+            product.setPrice(5.0 + i);
+            product.setStock(1000);
+            product.setCategory(category);
+            products.add(productRepository.save(product));
+        }
+
+        for (int n = 0; n < ORDERS; n++) {
+            OrderRequestDTO request = new OrderRequestDTO();
+            request.setUserId(user.getId());
+            List<OrderItemDTO> items = new ArrayList<>();
+            for (Product product : products) {
+                OrderItemDTO item = new OrderItemDTO();
+                item.setProductId(product.getId());
+                item.setQuantity(1);
+                items.add(item);
+            }
+            request.setOrderItems(items);
+            Order order = orderService.createOrder(request);
+            if (firstOrderId == null) {
+                firstOrderId = order.getId();
+            }
+        }
+    }
+
+    @Test
+    void userListingIsOneQuery() {
+        List<OrderResponseDTO> orders = withinBudget(1,
+                () -> orderController.getOrdersByUser(user.getId()).getBody());
+
+        assertEquals(ORDERS, orders.size());
+        orders.forEach(order -> assertEquals(LINES_PER_ORDER, order.getOrderItems().size()));
+        assertEquals("Listed 0", orders.get(0).getOrderItems().get(0).getProductName());
+    }
+
+    @Test
+    void fullListingIsOneQuery() {
+        List<OrderResponseDTO> orders = withinBudget(1, () -> orderController.getAllOrders().getBody());
+
+        assertTrue(orders.size() >= ORDERS);
+    }
+
+    @Test
+    void keysetPagesWalkTheRangeInTwoQueriesEach() {
+        Set<Long> seen = new HashSet<>();
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        boolean hasNext = true;
+        while (hasNext) {
+            LocalDateTime cursorAt = afterCreatedAt;
+            Long cursorId = afterId;
+            // One query for the page of ids, one for their lines
+            Slice<OrderResponseDTO> page = withinBudget(2, () -> orderService.getOrdersPage(
+                    OrderStatus.PENDING, startedAt, null, false, cursorAt, cursorId, 10));
+            for (OrderResponseDTO order : page.getContent()) {
+                assertEquals(OrderStatus.PENDING, order.getStatus());
+                assertEquals(LINES_PER_ORDER, order.getOrderItems().size());
+                assertTrue(seen.add(order.getOrderId()));
+            }
+            OrderResponseDTO last = page.getContent().get(page.getContent().size() - 1);
+            afterCreatedAt = last.getCreatedAt();
+            afterId = last.getOrderId();
+            hasNext = page.hasNext();
+        }
+
+        assertEquals(ORDERS, seen.size());
+    }
+
+    @Test
+    void entityGraphLoadsItemsAndProductsWithTheOrders() {
+        List<OrderResponseDTO> orders = withinBudget(1,
+                () -> orderService.getOrdersByUserId(user.getId()).stream().map(OrderResponseDTO::from).toList());
+        assertEquals(ORDERS, orders.size());
+
+        OrderResponseDTO order = withinBudget(1, () -> orderController.getOrderById(firstOrderId).getBody());
+        assertEquals(LINES_PER_ORDER, order.getOrderItems().size());
+    }
+
+    // Runs the listing and fails if it took more statements than allowed, however many
+    // orders and items it returned
+    private <T> T withinBudget(long maxStatements, Supplier<T> listing) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        T result = listing.get();
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= maxStatements, "expected at most " + maxStatements + " statements but got " + statements);
+        return result;
+    }
+}
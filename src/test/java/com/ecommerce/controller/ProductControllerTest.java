@@ -0,0 +1,205 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.StatementCounter;
+import com.ecommerce.dto.ProductBatchDTO;
+import com.ecommerce.dto.ProductSummaryDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class ProductControllerTest {
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Category category;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category("Paged " + System.nanoTime()));
+
+        // Repeated prices and names, and a comma in a name, so the id tie-break and cursor parsing matter
+        String[] names = {"Cable", "Adapter", "Cable", "Hub, 4 port", "Adapter", "Dock", "Cable"};
+        double[] prices = {5.0, 3.0, 5.0, 1.0, 3.0, 5.0, 2.5};
+        products = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            Product product = new Product();
+            product.setName(names[i]);
+            product.setDescription("Paged product " + i);
+            product.setPrice(prices[i]);
+            product.setStock(10);
+            product.setCategory(category);
+            products.add(productRepository.save(product));
+        }
+    }
+
+    @Test
+    void keysetPagesWalkTheSameOrderAsOffsetPages() {
+        for (String sortBy : List.of("name", "price")) {
+            for (String sortOrder : List.of("asc", "desc")) {
+                List<Long> offsetOrder = ids(page(sortBy, sortOrder, 0, 100, null));
+
+                List<Long> keysetOrder = new ArrayList<>();
+                String after = null;
+                int pages = 0;
+                do {
+                    Map<String, Object> response = page(sortBy, sortOrder, 0, 3, after);
+                    keysetOrder.addAll(ids(response));
+                    after = (String) response.get("nextCursor");
+                    pages++;
+                } while (after != null);
+
+                assertEquals(products.size(), offsetOrder.size());
+                assertEquals(offsetOrder, keysetOrder, sortBy + " " + sortOrder);
+                assertEquals(3, pages);
+            }
+        }
+    }
+
+    @Test
+    void ordersByTheSortKeyThenTheId() {
+        List<Long> byPrice = ids(page("price", "asc", 0, 100, null));
+        assertEquals(List.of(idOf(3), idOf(6), idOf(1), idOf(4), idOf(0), idOf(2), idOf(5)), byPrice);
+
+        List<Long> byNameDesc = ids(page("name", "desc", 0, 100, null));
+        assertEquals(List.of(idOf(3), idOf(5), idOf(6), idOf(2), idOf(0), idOf(4), idOf(1)), byNameDesc);
+    }
+
+    @Test
+    void lastKeysetPageHasNoCursor() {
+        Map<String, Object> response = page("price", "asc", 0, 3, "5.0," + idOf(2));
+
+        assertEquals(List.of(idOf(5)), ids(response));
+        assertFalse((Boolean) response.get("hasNext"));
+        assertNull(response.get("nextCursor"));
+        // Keyset pages do not count the category
+        assertNull(response.get("totalItems"));
+    }
+
+    @Test
+    void malformedCursorIsBadRequest() {
+        for (String after : List.of("5.0", "5.0,abc", "cheap," + idOf(0))) {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                    page("price", "asc", 0, 3, after));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+    }
+
+    @Test
+    void listingsAreSummariesReadInOneQuery() {
+        List<ProductSummaryDTO> listed = new ArrayList<>();
+        List<String> statements = recording(() -> listed.addAll(productController.getProductsByCategory(category.getId()).getBody()));
+
+        assertEquals(products.size(), listed.size());
+        ProductSummaryDTO hub = listed.stream().filter(p -> p.getId().equals(idOf(3))).findFirst().orElseThrow();
+        assertEquals("Hub, 4 port", hub.getName());
+        assertEquals(1.0, hub.getPrice());
+        assertEquals(10, hub.getStock());
+        assertEquals(category.getId(), hub.getCategoryId());
+        assertEquals(category.getName(), hub.getCategoryName());
+        // The category name comes from the join, not from loading Category entities
+        assertEquals(1, StatementCounter.count(statements, "select"));
+    }
+
+    @Test
+    void productsWithoutACategoryAreStillListed() {
+        Product loose = new Product();
+        loose.setName("Uncategorized");
+        loose.setDescription("No category");
+        loose.setPrice(98765.25);
+        loose.setStock(1);
+        loose = productRepository.save(loose);
+
+        List<ProductSummaryDTO> listed = productController.getProductsByPriceRange(98765.0, 98765.5).getBody();
+
+        assertEquals(List.of(loose.getId()), listed.stream().map(ProductSummaryDTO::getId).toList());
+        assertNull(listed.get(0).getCategoryId());
+        assertNull(listed.get(0).getCategoryName());
+    }
+
+    @Test
+    void batchKeepsTheRequestedOrderAndReportsUnknownIds() {
+        Long unknown = idOf(6) + 1_000_000;
+        List<Long> requested = List.of(idOf(2), unknown, idOf(0), idOf(2));
+
+        List<String> statements = recording(() -> productController.getProductsBatch(requested).getBody());
+        ProductBatchDTO batch = productController.getProductsBatchFromBody(requested).getBody();
+
+        assertEquals(List.of(idOf(2), idOf(0)), batch.getProducts().stream().map(Product::getId).toList());
+        assertEquals(List.of(unknown), batch.getMissingIds());
+        // One IN query, categories included, for everything that was not cached
+        assertEquals(1, StatementCounter.count(statements, "select"));
+    }
+
+    @Test
+    void cachedProductsAreServedWithoutAQuery() {
+        List<Long> requested = List.of(idOf(0), idOf(1));
+        productController.getProductsBatch(requested);
+
+        List<String> statements = recording(() -> productController.getProductsBatch(requested).getBody());
+
+        assertEquals(0, StatementCounter.count(statements, "select"));
+    }
+
+    @Test
+    void oversizedBatchIsBadRequest() {
+        List<Long> requested = new ArrayList<>();
+        for (long id = 1; id <= ProductService.MAX_BATCH_SIZE + 1; id++) {
+            requested.add(id);
+        }
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                productController.getProductsBatch(requested));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+
+        // Repeated ids count once
+        List<Long> repeated = new ArrayList<>(requested.subList(0, ProductService.MAX_BATCH_SIZE));
+        repeated.add(1L);
+        ProductBatchDTO batch = productController.getProductsBatch(repeated).getBody();
+        assertEquals(ProductService.MAX_BATCH_SIZE, batch.getProducts().size() + batch.getMissingIds().size());
+    }
+
+    private static List<String> recording(Supplier<?> action) {
+        StatementCounter.start();
+        action.get();
+        return StatementCounter.stop();
+    }
+
+    private Map<String, Object> page(String sortBy, String sortOrder, int page, int size, String after) {
+        return productController.getProductsByCategoryPaginated(category.getId(), page, size, sortBy, sortOrder, after).getBody();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> ids(Map<String, Object> response) {
+        return ((List<ProductSummaryDTO>) response.get("content")).stream().map(ProductSummaryDTO::getId).toList();
+    }
+
+    private Long idOf(int index) {
+        return products.get(index).getId();
+    }
+}
@@ -0,0 +1,128 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.TransactionHistoryDTO;
+import com.ecommerce.model.Transaction;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.TransactionRepository;
+import com.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class WalletControllerTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Autowired
+    private WalletController walletController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("history" + System.nanoTime() + "@example.com", "secret", "history", "CUSTOMER"));
+
+        // Three rows share a timestamp, so pages have to break the tie on the id
+        Transaction.TransactionType[] types = {
+                Transaction.TransactionType.DEPOSIT, Transaction.TransactionType.PAYMENT,
+                Transaction.TransactionType.DEPOSIT, Transaction.TransactionType.REFUND,
+                Transaction.TransactionType.WITHDRAWAL, Transaction.TransactionType.PAYMENT};
+        int[] minutes = {0, 1, 1, 1, 2, 3};
+        ids = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            Transaction transaction = transactionRepository.save(
+                    new Transaction(user, types[i], 10.0 + i, "History " + i, 100.0 + i));
+            // Creation time is set on insert, so it is moved to the wanted minute afterwards
+            jdbcTemplate.update("UPDATE transactions SET created_at = ? WHERE id = ?",
+                    Timestamp.valueOf(START.plusMinutes(minutes[i])), transaction.getId());
+            ids.add(transaction.getId());
+        }
+    }
+
+    @Test
+    void pagesFollowTheCursorInBothDirections() {
+        assertEquals(List.of(ids.get(5), ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0)),
+                walk("desc", null, null, null));
+        assertEquals(ids, walk("asc", null, null, null));
+    }
+
+    @Test
+    void filtersKeepFromInclusiveAndToExclusive() {
+        List<Transaction.TransactionType> types = List.of(Transaction.TransactionType.DEPOSIT, Transaction.TransactionType.PAYMENT);
+
+        assertEquals(List.of(ids.get(2), ids.get(1)), walk("desc", types, START.plusMinutes(1), START.plusMinutes(3)));
+        assertEquals(List.of(ids.get(1), ids.get(2)), walk("asc", types, START.plusMinutes(1), START.plusMinutes(3)));
+        assertEquals(List.of(ids.get(4), ids.get(5)), walk("asc", null, START.plusMinutes(2), null));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        Map<String, Object> response = page("desc", null, null, null, 10, null);
+
+        assertEquals(6, content(response).size());
+        assertFalse((Boolean) response.get("hasNext"));
+        assertNull(response.get("nextCursor"));
+
+        TransactionHistoryDTO newest = content(response).get(0);
+        assertEquals(Transaction.TransactionType.PAYMENT, newest.getType());
+        assertEquals(15.0, newest.getAmount());
+        assertEquals(START.plusMinutes(3), newest.getCreatedAt());
+    }
+
+    @Test
+    void malformedCursorIsBadRequest() {
+        for (String after : List.of("yesterday," + ids.get(0), START + ",abc", String.valueOf(ids.get(0)))) {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                    page("desc", null, null, null, 2, after));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+    }
+
+    // Follows nextCursor two rows at a time and collects the ids in the order they came
+    private List<Long> walk(String sortOrder, List<Transaction.TransactionType> types, LocalDateTime from, LocalDateTime to) {
+        List<Long> seen = new ArrayList<>();
+        String after = null;
+        do {
+            Map<String, Object> response = page(sortOrder, types, from, to, 2, after);
+            content(response).forEach(row -> seen.add(row.getId()));
+            after = (String) response.get("nextCursor");
+        } while (after != null);
+        return seen;
+    }
+
+    private Map<String, Object> page(String sortOrder, List<Transaction.TransactionType> types,
+                                     LocalDateTime from, LocalDateTime to, int size, String after) {
+        return walletController.getTransactionHistory(user.getId(), types, from, to, size, sortOrder, after).getBody();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TransactionHistoryDTO> content(Map<String, Object> response) {
+        return (List<TransactionHistoryDTO>) response.get("content");
+    }
+}
@@ -0,0 +1,61 @@
+package com.ecommerce.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static com.ecommerce.model.OrderStatus.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderStatusTest {
+
+    @Test
+    void ordersMoveOnlyAlongTheStateMachine() {
+        assertEquals(EnumSet.of(PAID, CANCELLED), PENDING.nextStatuses());
+        assertEquals(EnumSet.of(PROCESSING, REFUNDED), PAID.nextStatuses());
+        assertEquals(EnumSet.of(SHIPPED, REFUNDED), PROCESSING.nextStatuses());
+        assertEquals(EnumSet.of(DELIVERED), SHIPPED.nextStatuses());
+        assertEquals(EnumSet.of(REFUNDED), DELIVERED.nextStatuses());
+        assertTrue(CANCELLED.nextStatuses().isEmpty());
+        assertTrue(REFUNDED.nextStatuses().isEmpty());
+        assertFalse(PENDING.canMoveTo(SHIPPED));
+        assertFalse(SHIPPED.canMoveTo(PAID));
+    }
+
+    @Test
+    void fulfillmentStepsLeaveMoneyAndStockAlone() {
+        assertTrue(PAID.isFulfillmentStep(PROCESSING));
+        assertTrue(PROCESSING.isFulfillmentStep(SHIPPED));
+        assertTrue(SHIPPED.isFulfillmentStep(DELIVERED));
+
+        // Allowed by the state machine, but only through the order's own endpoints
+        assertFalse(PENDING.isFulfillmentStep(PAID));
+        assertFalse(PENDING.isFulfillmentStep(CANCELLED));
+        assertFalse(PAID.isFulfillmentStep(REFUNDED));
+        assertFalse(DELIVERED.isFulfillmentStep(REFUNDED));
+    }
+
+    @Test
+    void onlyOrdersThatHaveNotShippedCanBeCancelled() {
+        assertEquals(CANCELLED, PENDING.cancellationStatus());
+        assertEquals(REFUNDED, PAID.cancellationStatus());
+        assertEquals(REFUNDED, PROCESSING.cancellationStatus());
+        for (OrderStatus status : EnumSet.of(SHIPPED, DELIVERED, CANCELLED, REFUNDED)) {
+            assertNull(status.cancellationStatus(), status.name());
+        }
+    }
+
+    @Test
+    void onlyFulfillmentStatusesHavePredecessors() {
+        assertEquals(Set.of(PAID), PROCESSING.fulfillmentPredecessors());
+        assertEquals(Set.of(PROCESSING), SHIPPED.fulfillmentPredecessors());
+        assertEquals(Set.of(SHIPPED), DELIVERED.fulfillmentPredecessors());
+        for (OrderStatus status : EnumSet.of(PENDING, PAID, CANCELLED, REFUNDED)) {
+            assertTrue(status.fulfillmentPredecessors().isEmpty(), status.name());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.ecommerce.service;
+
+import com.ecommerce.controller.AdminWalletController;
+import com.ecommerce.dto.DepositBatchDTO;
+import com.ecommerce.model.DepositBatch;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.DepositBatchRepository;
+import com.ecommerce.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class BulkDepositServiceTest {
+
+    @Autowired
+    private BulkDepositService bulkDepositService;
+
+    @Autowired
+    private AdminWalletController adminWalletController;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletLedger ledger;
+
+    @Autowired
+    private DepositBatchRepository batchRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ExecutorService uploads = Executors.newSingleThreadExecutor();
+
+    private Long first;
+    private Long second;
+
+    @BeforeEach
+    void setUp() {
+        first = walletOwner();
+        second = walletOwner();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        uploads.shutdownNow();
+    }
+
+    @Test
+    void rowsWithBadValuesAreRejected() throws IOException {
+        Long jobId = bulkDepositService.createBatch().getJobId();
+        String rows = String.join("\n",
+                "{\"userId\": " + first + ", \"amount\": 10.5, \"description\": \"Payroll\"}",
+                "{\"userId\": \"" + first + "\", \"amount\": 1}",
+                "{\"userId\": " + first + ", \"amount\": \"abc\"}",
+                "{\"userId\": 1.5, \"amount\": 1}",
+                "{\"userId\": " + first + ", \"amount\": -5}",
+                "{\"userId\": " + first + ", \"amount\": 1, \"description\": {\"text\": \"x\"}}",
+                "{\"userId\": -1, \"amount\": 1}",
+                "not json",
+                "{\"userId\": " + second + ", \"amount\": 2}") + "\n";
+
+        DepositBatchDTO result = bulkDepositService.upload(jobId, BulkDepositService.Format.NDJSON, input(rows));
+
+        assertEquals(DepositBatch.BatchStatus.COMPLETED, result.getStatus());
+        assertEquals(2, result.getCredited());
+        assertEquals(7, result.getRejected());
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L, 8L),
+                result.getErrors().stream().map(DepositBatchDTO.RowError::getLine).sorted().toList());
+        assertEquals("userId: must be a whole number", errorAt(result, 2));
+        assertEquals("amount: must be a number", errorAt(result, 3));
+        assertEquals("userId: must be a whole number", errorAt(result, 4));
+        assertEquals("amount: must be a positive number", errorAt(result, 5));
+        assertEquals("description: must be a string", errorAt(result, 6));
+        assertEquals(10.5, walletService.getBalance(first));
+        assertEquals(2.0, walletService.getBalance(second));
+    }
+
+    @Test
+    void interruptedUploadResumesAfterTheLastCommittedLine() throws IOException {
+        BulkDepositService service = service(2);
+        Long jobId = service.createBatch().getJobId();
+        String rows = deposits(5);
+
+        // The connection drops after the first chunk of two rows
+        IOException dropped = assertThrows(IOException.class, () ->
+                service.upload(jobId, BulkDepositService.Format.NDJSON, new PausingInput(rows, lineEnd(rows, 2), null)));
+        assertEquals("Connection reset", dropped.getMessage());
+        DepositBatchDTO broken = service.getBatch(jobId);
+        assertEquals(DepositBatch.BatchStatus.OPEN, broken.getStatus());
+        assertEquals(2, broken.getLastLine());
+        assertEquals("Connection reset", broken.getError());
+
+        DepositBatchDTO resumed = service.upload(jobId, BulkDepositService.Format.NDJSON, input(rows));
+
+        assertEquals(DepositBatch.BatchStatus.COMPLETED, resumed.getStatus());
+        assertEquals(5, resumed.getCredited());
+        assertEquals(5, resumed.getLastLine());
+        // Every row credited once: 1 + 3 + 5 to the first wallet, 2 + 4 to the second
+        assertEquals(9.0, walletService.getBalance(first));
+        assertEquals(6.0, walletService.getBalance(second));
+    }
+
+    @Test
+    void secondUploadOfTheSameJobGetsConflict() throws Exception {
+        BulkDepositService service = service(2);
+        Long jobId = service.createBatch().getJobId();
+        String rows = deposits(5);
+
+        // The first upload stalls after its first chunk while the same file is sent again
+        CountDownLatch resume = new CountDownLatch(1);
+        Future<DepositBatchDTO> stalled = uploads.submit(() ->
+                service.upload(jobId, BulkDepositService.Format.NDJSON, new PausingInput(rows, lineEnd(rows, 2), resume)));
+        awaitLastLine(service, jobId, 2);
+
+        DepositBatchDTO retried = service.upload(jobId, BulkDepositService.Format.NDJSON, input(rows));
+        assertEquals(DepositBatch.BatchStatus.COMPLETED, retried.getStatus());
+        resume.countDown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, stalled::get);
+        ResponseStatusException conflict = assertInstanceOf(ResponseStatusException.class, e.getCause());
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        assertEquals(5, service.getBatch(jobId).getCredited());
+        assertEquals(9.0, walletService.getBalance(first));
+        assertEquals(6.0, walletService.getBalance(second));
+    }
+
+    @Test
+    void unknownFormatIsBadRequest() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("admin", null, "ROLE_ADMIN"));
+        Long jobId = bulkDepositService.createBatch().getJobId();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                adminWalletController.uploadDeposits(jobId, "xml", input("")));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    private BulkDepositService service(int chunkSize) {
+        return new BulkDepositService(batchRepository, jdbcTemplate, transactionTemplate, ledger, objectMapper, chunkSize);
+    }
+
+    private Long walletOwner() {
+        User user = userRepository.save(new User("payee" + System.nanoTime() + "@example.com", "secret", "payee", "CUSTOMER"));
+        walletService.createWallet(user.getId(), 0.0);
+        return user.getId();
+    }
+
+    // Row n deposits n, alternating between the two wallets
+    private String deposits(int count) {
+        StringBuilder rows = new StringBuilder();
+        for (int n = 1; n <= count; n++) {
+            Long userId = n % 2 == 1 ? first : second;
+            rows.append("{\"userId\": ").append(userId).append(", \"amount\": ").append(n).append("}\n");
+        }
+        return rows.toString();
+    }
+
+    private void awaitLastLine(BulkDepositService service, Long jobId, long line) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (service.getBatch(jobId).getLastLine() < line && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(service.getBatch(jobId).getLastLine() >= line);
+    }
+
+    private static String errorAt(DepositBatchDTO result, long line) {
+        return result.getErrors().stream()
+                .filter(error -> error.getLine() == line)
+                .map(DepositBatchDTO.RowError::getMessage)
+                .findFirst().orElseThrow();
+    }
+
+    // Offset just past the newline that ends the given line
+    private static int lineEnd(String rows, int line) {
+        int end = -1;
+        for (int i = 0; i < line; i++) {
+            end = rows.indexOf('\n', end + 1);
+        }
+        return end + 1;
+    }
+
+    private static InputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Hands out the bytes up to pauseAt, then waits for resume before the rest; without a
+    // resume latch the connection drops there instead
+    private static final class PausingInput extends InputStream {
+        private final byte[] bytes;
+        private final int pauseAt;
+        private final CountDownLatch resume;
+        private int position;
+
+        PausingInput(String text, int pauseAt, CountDownLatch resume) {
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+            this.pauseAt = pauseAt;
+            this.resume = resume;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position == pauseAt) {
+                if (resume == null) {
+                    throw new IOException("Connection reset");
+                }
+                try {
+                    resume.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", e);
+                }
+            }
+            if (position >= bytes.length) {
+                return -1;
+            }
+            int end = position < pauseAt ? pauseAt : bytes.length;
+            int count = Math.min(length, end - position);
+            System.arraycopy(bytes, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductFacetsDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogFacetIndexTest {
+
+    private final CatalogFacetIndex index = new CatalogFacetIndex();
+    private final Category audio = category(1L, "Audio");
+    private final Category cables = category(2L, "Cables");
+
+    @BeforeEach
+    void setUp() {
+        index.replaceAll(List.of(
+                product(1L, "Wireless Headphones", 120.0, 5, audio),
+                product(2L, "Wired Headphones", 35.0, 0, audio),
+                product(3L, "Speaker", 80.0, 2, audio),
+                product(4L, "Headphone Cable", 9.5, 40, cables),
+                product(5L, "USB Cable", 4.0, 0, cables)));
+    }
+
+    @Test
+    void facetsCountEveryMatch() {
+        ProductFacetsDTO facets = index.computeFacets(null, null, null, null, 50);
+
+        assertEquals(5, facets.getTotalMatches());
+        assertEquals(3, facets.getInStock());
+        assertEquals(2, facets.getOutOfStock());
+        assertEquals(List.of("Audio=3", "Cables=2"), categories(facets));
+        assertEquals(List.of("0.0-50.0:3", "50.0-100.0:1", "100.0-150.0:1"), buckets(facets));
+    }
+
+    @Test
+    void categoryCountsIgnoreTheCategoryFilter() {
+        ProductFacetsDTO facets = index.computeFacets("HEADPHONE", cables.getId(), null, null, 10);
+
+        // Only the cable matches, but the other category still shows what it would give
+        assertEquals(1, facets.getTotalMatches());
+        assertEquals(List.of("Audio=2", "Cables=1"), categories(facets));
+        assertEquals(List.of("0.0-10.0:1"), buckets(facets));
+    }
+
+    @Test
+    void priceFiltersAreInclusive() {
+        ProductFacetsDTO facets = index.computeFacets(null, null, 9.5, 80.0, 50);
+
+        assertEquals(3, facets.getTotalMatches());
+        assertEquals(List.of("0.0-50.0:2", "50.0-100.0:1"), buckets(facets));
+    }
+
+    @Test
+    void pricesPastTheLastBucketShareAnOpenEndedOne() {
+        ProductFacetsDTO facets = index.computeFacets(null, audio.getId(), null, null, 0.5);
+
+        // 200 buckets of 0.5 stop at 100, so 120 is counted in the open-ended last one
+        assertEquals(List.of("35.0-35.5:1", "80.0-80.5:1", "99.5-:1"), buckets(facets));
+    }
+
+    @Test
+    void updatesAndStockChangesShowInTheFacets() {
+        index.put(product(2L, "Wired Headphones", 35.0, 7, cables));
+        index.adjustStock(1L, -5);
+        index.remove(3L);
+
+        ProductFacetsDTO facets = index.computeFacets(null, null, null, null, 50);
+        assertEquals(4, facets.getTotalMatches());
+        assertEquals(2, facets.getInStock());
+        assertEquals(List.of("Audio=1", "Cables=3"), categories(facets));
+        assertEquals(0, index.stockOf(1L));
+        assertNull(index.stockOf(3L));
+
+        index.removeCategory(cables.getId());
+        assertEquals(1, index.computeFacets(null, null, null, null, 50).getTotalMatches());
+    }
+
+    @Test
+    void nonPositiveIntervalIsBadRequest() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                index.computeFacets(null, null, null, null, 0));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    private static List<String> categories(ProductFacetsDTO facets) {
+        return facets.getCategories().stream()
+                .map(facet -> facet.getCategoryName() + "=" + facet.getCount())
+                .toList();
+    }
+
+    private static List<String> buckets(ProductFacetsDTO facets) {
+        return facets.getPriceHistogram().stream()
+                .map(bucket -> bucket.getFrom() + "-" + (bucket.getTo() == null ? "" : bucket.getTo()) + ":" + bucket.getCount())
+                .toList();
+    }
+
+    private static Product product(Long id, String name, double price, int stock, Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(price);
+        product.setStock(stock);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name);
+        category.setId(id);
+        return category;
+    }
+}
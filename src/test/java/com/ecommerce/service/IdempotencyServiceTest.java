@@ -0,0 +1,258 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Category;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WalletRetryExecutor walletRetry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+    private final String key = UUID.randomUUID().toString();
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        pool.shutdownNow();
+    }
+
+    @Test
+    void retryGetsTheStoredResponse() {
+        ResponseEntity<?> first = idempotencyService.execute(key, "POST /orders", Map.of("item", 1), this::created);
+        ResponseEntity<?> retry = idempotencyService.execute(key, "POST /orders", Map.of("item", 1), this::created);
+
+        assertEquals(1, runs.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals("{\"run\":1}", retry.getBody());
+        assertEquals(first.getHeaders().getLocation(), retry.getHeaders().getLocation());
+    }
+
+    @Test
+    void storedResponseOutlivesTheMemoryCache() {
+        IdempotencyService other = service(Duration.ofHours(1), Duration.ofSeconds(60), 10_000);
+        idempotencyService.execute(key, "POST /orders", Map.of("item", 1), this::created);
+
+        // Another instance only has the database row
+        ResponseEntity<?> retry = other.execute(key, "POST /orders", Map.of("item", 1), this::created);
+
+        assertEquals(1, runs.get());
+        assertEquals("{\"run\":1}", retry.getBody());
+    }
+
+    @Test
+    void keyReusedForAnotherBodyIsRejected() {
+        idempotencyService.execute(key, "POST /orders", Map.of("item", 1), this::created);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                idempotencyService.execute(key, "POST /orders", Map.of("item", 2), this::created));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keysAreScopedByCallerAndEndpoint() {
+        idempotencyService.execute(key, "POST /orders", Map.of("item", 1), this::created);
+        idempotencyService.execute(key, "POST /wallets/transfer", Map.of("item", 1), this::created);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("alice", null));
+        idempotencyService.execute(key, "POST /orders", Map.of("item", 1), this::created);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("bob", null));
+        idempotencyService.execute(key, "POST /orders", Map.of("item", 1), this::created);
+
+        assertEquals(4, runs.get());
+    }
+
+    @Test
+    void responseCommitsTogetherWithTheAction() {
+        String name = "Idempotent " + key;
+
+        // The category is written, then the response cannot be stored: neither may survive
+        assertThrows(IllegalStateException.class, () ->
+                idempotencyService.execute(key, "POST /categories", Map.of("name", name), () -> {
+                    categoryRepository.save(new Category(name));
+                    return ResponseEntity.ok(new Unserializable());
+                }));
+        assertEquals(0, categoryRepository.findAll().stream().filter(c -> c.getName().equals(name)).count());
+
+        // The key was freed, so the retry runs
+        ResponseEntity<?> retry = idempotencyService.execute(key, "POST /categories", Map.of("name", name), this::created);
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void serverErrorKeepsTheClaimWithAnUnknownOutcome() throws Exception {
+        IdempotencyService service = service(Duration.ofHours(1), Duration.ofMillis(300), 0);
+        ResponseStatusException failed = assertThrows(ResponseStatusException.class, () ->
+                service.execute(key, "POST /orders", Map.of("item", 1), () -> {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order queue is saturated");
+                }));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, failed.getStatusCode());
+
+        // Well past the lock timeout, the claim is neither run again nor taken over
+        Thread.sleep(500);
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                service.execute(key, "POST /orders", Map.of("item", 1), this::created));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void duplicateWhileRunningGetsConflict() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Future<ResponseEntity<?>> first = pool.submit(() ->
+                idempotencyService.execute(key, "POST /orders", Map.of("item", 1), () -> {
+                    running.countDown();
+                    await(finish);
+                    return created();
+                }));
+        running.await();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                idempotencyService.execute(key, "POST /orders", Map.of("item", 1), this::created));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+
+        finish.countDown();
+        assertEquals(HttpStatus.CREATED, first.get().getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void requestRunningPastTheLockTimeoutKeepsItsClaim() throws Exception {
+        IdempotencyService service = service(Duration.ofHours(1), Duration.ofMillis(300), 0);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Future<ResponseEntity<?>> slow = pool.submit(() ->
+                service.execute(key, "POST /orders", Map.of("item", 1), () -> {
+                    running.countDown();
+                    await(finish);
+                    return created();
+                }));
+        running.await();
+
+        // Three lock timeouts, heartbeat as the scheduler would
+        for (int i = 0; i < 9; i++) {
+            Thread.sleep(100);
+            service.heartbeat();
+        }
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                service.execute(key, "POST /orders", Map.of("item", 1), this::created));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+
+        finish.countDown();
+        slow.get();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void claimWithoutHeartbeatIsTakenOver() throws Exception {
+        IdempotencyService crashed = service(Duration.ofHours(1), Duration.ofMillis(300), 0);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        // Its instance never sends a heartbeat, as if it had died mid-request
+        pool.submit(() -> crashed.execute(key, "POST /orders", Map.of("item", 1), () -> {
+            running.countDown();
+            await(finish);
+            throw new IllegalStateException("Instance died");
+        }));
+        running.await();
+        Thread.sleep(500);
+
+        IdempotencyService survivor = service(Duration.ofHours(1), Duration.ofMillis(300), 0);
+        ResponseEntity<?> response = survivor.execute(key, "POST /orders", Map.of("item", 1), this::created);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(1, runs.get());
+        finish.countDown();
+    }
+
+    @Test
+    void expiredKeyRunsAgain() throws Exception {
+        IdempotencyService service = service(Duration.ofMillis(200), Duration.ofSeconds(60), 0);
+        service.execute(key, "POST /orders", Map.of("item", 1), this::created);
+        Thread.sleep(300);
+
+        ResponseEntity<?> again = service.execute(key, "POST /orders", Map.of("item", 1), this::created);
+        assertEquals(Map.of("run", 2), again.getBody());
+
+        Thread.sleep(300);
+        service.purgeExpired();
+        assertEquals(0, countExpired());
+    }
+
+    // Fails when serialized for storage
+    private static final class Unserializable {
+        public String getValue() {
+            throw new IllegalStateException("Not serializable");
+        }
+    }
+
+    private ResponseEntity<?> created() {
+        int run = runs.incrementAndGet();
+        return ResponseEntity.created(URI.create("/orders/" + run)).body(Map.of("run", run));
+    }
+
+    // A service with its own settings over the same table, and no heartbeat unless the test sends one
+    private IdempotencyService service(Duration ttl, Duration lockTimeout, long cacheSize) {
+        return new IdempotencyService(recordRepository, jdbcTemplate, walletRetry, objectMapper, ttl, lockTimeout,
+                lockTimeout.toMillis() / 3, cacheSize);
+    }
+
+    private int countExpired() {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM idempotency_keys WHERE expires_at < CURRENT_TIMESTAMP", Integer.class);
+        return rows == null ? 0 : rows;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.BulkStatusUpdateRequestDTO;
+import com.ecommerce.dto.BulkStatusUpdateResultDTO;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderStatus;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class OrderFulfillmentServiceTest {
+
+    @Autowired
+    private OrderFulfillmentService fulfillmentService;
+
+    @Autowired
+    private EnhancedOrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("shipper" + System.nanoTime() + "@example.com", "secret", "shipper", "CUSTOMER"));
+    }
+
+    @Test
+    void singleUpdateTakesFulfillmentStepsOnly() {
+        Order paid = order(OrderStatus.PAID);
+        assertEquals(OrderStatus.PROCESSING, orderService.updateOrderStatus(paid.getId(), OrderStatus.PROCESSING).getStatus());
+
+        // Each of these would skip the refund, the stock or the reservation
+        assertRejected(order(OrderStatus.PENDING), OrderStatus.PAID);
+        assertRejected(order(OrderStatus.PENDING), OrderStatus.CANCELLED);
+        assertRejected(order(OrderStatus.PAID), OrderStatus.REFUNDED);
+        assertRejected(order(OrderStatus.DELIVERED), OrderStatus.REFUNDED);
+        assertRejected(order(OrderStatus.PAID), OrderStatus.SHIPPED);
+    }
+
+    @Test
+    void bulkUpdateRejectsStatusesOutsideFulfillment() {
+        for (OrderStatus target : List.of(OrderStatus.PAID, OrderStatus.CANCELLED, OrderStatus.REFUNDED)) {
+            BulkStatusUpdateRequestDTO request = request(target);
+            request.setOrderIds(List.of(order(OrderStatus.PENDING).getId()));
+
+            ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                    fulfillmentService.updateStatuses(request));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+
+        BulkStatusUpdateRequestDTO skipping = request(OrderStatus.SHIPPED);
+        skipping.setCurrentStatus(OrderStatus.PAID);
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                fulfillmentService.updateStatuses(skipping));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    @Test
+    void listedOrdersThatCannotMoveAreReportedAndLeftAlone() {
+        // A chunk size of 2 splits the five orders over three transactions
+        OrderFulfillmentService chunked = new OrderFulfillmentService(orderRepository, transactionTemplate, 2, 100);
+        Order first = order(OrderStatus.PAID);
+        Order pending = order(OrderStatus.PENDING);
+        Order second = order(OrderStatus.PAID);
+        Order shipped = order(OrderStatus.SHIPPED);
+        Order third = order(OrderStatus.PAID);
+
+        BulkStatusUpdateRequestDTO request = request(OrderStatus.PROCESSING);
+        request.setOrderIds(List.of(first.getId(), pending.getId(), second.getId(), shipped.getId(), third.getId(), -1L));
+        BulkStatusUpdateResultDTO result = chunked.updateStatuses(request);
+
+        assertEquals(3, result.getUpdated());
+        List<BulkStatusUpdateResultDTO.Rejection> rejected = result.getRejected();
+        assertEquals(List.of(pending.getId(), shipped.getId(), -1L),
+                rejected.stream().map(BulkStatusUpdateResultDTO.Rejection::getOrderId).toList());
+        assertEquals(Arrays.asList(OrderStatus.PENDING, OrderStatus.SHIPPED, null),
+                rejected.stream().map(BulkStatusUpdateResultDTO.Rejection::getCurrentStatus).toList());
+        assertEquals(OrderStatus.PROCESSING, statusOf(first));
+        assertEquals(OrderStatus.PROCESSING, statusOf(third));
+        assertEquals(OrderStatus.PENDING, statusOf(pending));
+        assertEquals(OrderStatus.SHIPPED, statusOf(shipped));
+    }
+
+    @Test
+    void matchingOrdersMoveInChunksUpToTheLimit() {
+        LocalDateTime from = LocalDateTime.now();
+        List<Order> paid = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            paid.add(order(OrderStatus.PAID));
+        }
+        Order pending = order(OrderStatus.PENDING);
+
+        // Stops after four of the five, oldest first
+        OrderFulfillmentService limited = new OrderFulfillmentService(orderRepository, transactionTemplate, 2, 4);
+        BulkStatusUpdateRequestDTO request = request(OrderStatus.PROCESSING);
+        request.setCurrentStatus(OrderStatus.PAID);
+        request.setFrom(from);
+        BulkStatusUpdateResultDTO result = limited.updateStatuses(request);
+
+        assertEquals(4, result.getUpdated());
+        assertEquals(List.of(), result.getRejected());
+        for (Order order : paid.subList(0, 4)) {
+            assertEquals(OrderStatus.PROCESSING, statusOf(order));
+        }
+        assertEquals(OrderStatus.PAID, statusOf(paid.get(4)));
+        assertEquals(OrderStatus.PENDING, statusOf(pending));
+    }
+
+    @Test
+    void cancellingFollowsTheStateMachine() {
+        Order pending = order(OrderStatus.PENDING);
+        assertEquals(OrderStatus.CANCELLED, orderService.cancelOrder(pending.getId(), user.getId()).getStatus());
+        assertEquals(OrderStatus.CANCELLED, statusOf(pending));
+
+        for (OrderStatus status : List.of(OrderStatus.SHIPPED, OrderStatus.DELIVERED, OrderStatus.CANCELLED, OrderStatus.REFUNDED)) {
+            Order order = order(status);
+            ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                    orderService.cancelOrder(order.getId(), user.getId()));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+            assertEquals(status, statusOf(order));
+        }
+    }
+
+    private void assertRejected(Order order, OrderStatus target) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                orderService.updateOrderStatus(order.getId(), target));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertEquals(order.getStatus(), statusOf(order));
+    }
+
+    private OrderStatus statusOf(Order order) {
+        return orderRepository.findById(order.getId()).orElseThrow().getStatus();
+    }
+
+    private Order order(OrderStatus status) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setTotalPrice(5.0);
+        order.setStatus(status);
+        return orderRepository.save(order);
+    }
+
+    private static BulkStatusUpdateRequestDTO request(OrderStatus target) {
+        BulkStatusUpdateRequestDTO request = new BulkStatusUpdateRequestDTO();
+        request.setTargetStatus(target);
+        return request;
+    }
+}
@@ -0,0 +1,196 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderItemDTO;
+import com.ecommerce.dto.OrderJobDTO;
+import com.ecommerce.dto.OrderRequestDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.OrderJob;
+import com.ecommerce.model.OrderStatus;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.OrderJobRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class OrderJobServiceTest {
+
+    @Autowired
+    private OrderJobService orderJobService;
+
+    @Autowired
+    private OrderJobRepository jobRepository;
+
+    @Autowired
+    private EnhancedOrderService orderService;
+
+    @Autowired
+    private WalletRetryExecutor walletRetry;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<OrderJobService> restarted = new ArrayList<>();
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("queued" + System.nanoTime() + "@example.com", "secret", "queued", "CUSTOMER"));
+        Category category = categoryRepository.save(new Category("Jobs " + System.nanoTime()));
+        product = new Product();
+        product.setName("Queued item");
+        product.setDescription("Async order product");
+        product.setPrice(10.0);
+        product.setStock(100);
+        product.setCategory(category);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        restarted.forEach(OrderJobService::stopWorkers);
+    }
+
+    @Test
+    void submittedJobCreatesTheOrder() throws Exception {
+        OrderJobDTO submitted = orderJobService.submit(request(product.getId()), false);
+        assertEquals(OrderJob.JobStatus.QUEUED, submitted.getStatus());
+
+        OrderJobDTO done = awaitDone(submitted.getJobId());
+        assertEquals(OrderJob.JobStatus.SUCCEEDED, done.getStatus());
+        assertNotNull(done.getOrderId());
+        assertEquals(OrderStatus.PENDING, orderRepository.findById(done.getOrderId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void failedJobRecordsTheError() throws Exception {
+        OrderJobDTO submitted = orderJobService.submit(request(-1L), false);
+
+        OrderJobDTO done = awaitDone(submitted.getJobId());
+        assertEquals(OrderJob.JobStatus.FAILED, done.getStatus());
+        assertNotNull(done.getError());
+        assertNull(done.getOrderId());
+    }
+
+    @Test
+    void fullQueueTurnsSubmissionsAway() {
+        // No workers, so nothing leaves the queue
+        OrderJobService service = service(0, 2);
+        service.submit(request(product.getId()), false);
+        service.submit(request(product.getId()), false);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                service.submit(request(product.getId()), false));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatusCode());
+    }
+
+    @Test
+    void interruptedJobsCountAgainstTheCapacity() {
+        interruptedJobs(3);
+        OrderJobService service = service(0, 2);
+        service.startWorkers();
+
+        // Two of the interrupted jobs are queued again, which fills the queue
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                service.submit(request(product.getId()), false));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatusCode());
+    }
+
+    @Test
+    void interruptedJobsResumeAfterRestart() throws Exception {
+        List<Long> interrupted = interruptedJobs(5);
+        OrderJobService service = service(2, 2);
+        service.startWorkers();
+
+        // More jobs than fit in the queue: the rest are fetched as workers free up
+        for (Long jobId : interrupted) {
+            assertEquals(OrderJob.JobStatus.SUCCEEDED, awaitDone(jobId).getStatus());
+        }
+        OrderJobDTO submitted = service.submit(request(product.getId()), false);
+        assertEquals(OrderJob.JobStatus.SUCCEEDED, awaitDone(submitted.getJobId()).getStatus());
+    }
+
+    // Jobs left QUEUED or RUNNING, as by an instance that stopped
+    private List<Long> interruptedJobs(int count) {
+        List<Long> jobIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            OrderJob job = new OrderJob(OrderJob.JobType.CREATE, payload(request(product.getId())));
+            job.setStatus(i % 2 == 0 ? OrderJob.JobStatus.QUEUED : OrderJob.JobStatus.RUNNING);
+            jobIds.add(jobRepository.save(job).getId());
+        }
+        return jobIds;
+    }
+
+    // A second instance over the same tables, as after a restart
+    private OrderJobService service(int workers, int queueCapacity) {
+        OrderJobService service = new OrderJobService(jobRepository, orderService, transactionTemplate, walletRetry,
+                objectMapper, workers, queueCapacity);
+        restarted.add(service);
+        return service;
+    }
+
+    private OrderJobDTO awaitDone(Long jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        OrderJobDTO job = orderJobService.getJob(jobId);
+        while ((job.getStatus() == OrderJob.JobStatus.QUEUED || job.getStatus() == OrderJob.JobStatus.RUNNING)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            job = orderJobService.getJob(jobId);
+        }
+        return job;
+    }
+
+    private OrderRequestDTO request(Long productId) {
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(1);
+        OrderRequestDTO request = new OrderRequestDTO();
+        request.setUserId(user.getId());
+        request.setOrderItems(List.of(item));
+        return request;
+    }
+
+    private String payload(OrderRequestDTO request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
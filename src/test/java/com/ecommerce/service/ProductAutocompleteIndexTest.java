@@ -0,0 +1,122 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.AutocompleteSuggestionDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductAutocompleteIndexTest {
+
+    private final ProductAutocompleteIndex index = new ProductAutocompleteIndex();
+    private final Category audio = category(1L);
+    private final Category tools = category(2L);
+
+    @BeforeEach
+    void setUp() {
+        index.replaceAll(List.of(
+                product(1L, "Wireless Headphones", audio),
+                product(2L, "Wireless Mouse", audio),
+                product(3L, "Phone case", audio),
+                product(4L, "Headphone stand", audio),
+                product(5L, "Wire cutter", tools)),
+                Map.of(1L, 5L, 2L, 9L, 3L, 1L, 4L, 5L));
+    }
+
+    @Test
+    void prefixesMatchNamesAndTheirLaterWords() {
+        // Most popular first; equal popularity falls back to the name
+        assertEquals(List.of(2L, 1L, 5L), ids(index.suggest("wire", 10)));
+        assertEquals(List.of(4L, 1L), ids(index.suggest("head", 10)));
+        assertEquals(List.of(3L), ids(index.suggest("case", 10)));
+        // Ends inside a compressed edge
+        assertEquals(List.of(2L, 1L, 5L), ids(index.suggest("wi", 10)));
+        assertEquals(List.of(2L), ids(index.suggest("  WIRELESS   m", 10)));
+        assertEquals(List.of(), ids(index.suggest("wirex", 10)));
+        assertEquals(List.of(), ids(index.suggest("stands", 10)));
+    }
+
+    @Test
+    void suggestionsStopAtTheLimit() {
+        assertEquals(List.of(2L, 1L), ids(index.suggest("wire", 2)));
+        assertEquals(List.of(), ids(index.suggest("wire", 0)));
+
+        List<Product> cables = new ArrayList<>();
+        Map<Long, Long> popularity = new HashMap<>();
+        for (long id = 1; id <= 15; id++) {
+            cables.add(product(id, "Cable " + id, tools));
+            popularity.put(id, id);
+        }
+        index.replaceAll(cables, popularity);
+
+        // Only the ten most popular are kept, whatever the caller asks for
+        List<AutocompleteSuggestionDTO> top = index.suggest("cable", 50);
+        assertEquals(List.of(15L, 14L, 13L, 12L, 11L, 10L, 9L, 8L, 7L, 6L), ids(top));
+        assertEquals(15L, top.get(0).getPopularity());
+
+        // The next best moves up when one of them goes
+        index.remove(15L);
+        assertEquals(5L, ids(index.suggest("cable", 10)).get(9));
+    }
+
+    @Test
+    void popularityChangesReorderSuggestions() {
+        index.addPopularity(5L, 20);
+        assertEquals(List.of(5L, 2L, 1L), ids(index.suggest("wire", 10)));
+
+        // Popularity never drops below zero
+        index.addPopularity(2L, -100);
+        assertEquals(List.of(5L, 1L, 2L), ids(index.suggest("wire", 10)));
+        assertEquals(0L, index.suggest("wireless m", 1).get(0).getPopularity());
+    }
+
+    @Test
+    void updatesAndRemovalsShowInSuggestions() {
+        // A rename keeps the popularity earned under the old name
+        index.put(product(2L, "Trackball", audio));
+        assertEquals(List.of(1L), ids(index.suggest("wireless", 10)));
+        assertEquals(List.of(), ids(index.suggest("mouse", 10)));
+        assertEquals(9L, index.suggest("track", 1).get(0).getPopularity());
+
+        index.remove(1L);
+        assertEquals(List.of(4L), ids(index.suggest("head", 10)));
+        assertEquals(List.of(5L), ids(index.suggest("wire", 10)));
+
+        index.removeCategory(tools.getId());
+        assertEquals(List.of(), ids(index.suggest("wire", 10)));
+        assertEquals(List.of(2L, 4L, 3L), ids(index.suggest("", 10)));
+    }
+
+    @Test
+    void productReachableThroughSeveralWordsIsSuggestedOnce() {
+        index.put(product(6L, "Case for case", tools));
+        assertEquals(List.of(3L, 6L), ids(index.suggest("case", 10)));
+    }
+
+    private static List<Long> ids(List<AutocompleteSuggestionDTO> suggestions) {
+        return suggestions.stream().map(AutocompleteSuggestionDTO::getProductId).toList();
+    }
+
+    private static Product product(Long id, String name, Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(10.0);
+        product.setStock(5);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category category(Long id) {
+        Category category = new Category();
+        category.setId(id);
+        return category;
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ProductExportServiceTest {
+
+    @Autowired
+    private ProductExportService exportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Category category;
+    private Product plain;
+    private Product awkward;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category("Exported " + System.nanoTime()));
+        plain = product("Desk lamp", "LED", 19.5, 3);
+        // Separators, quotes and a line break that CSV has to quote
+        awkward = product("Lamp, \"large\"", "Two lines\nof text", 42.0, 0);
+    }
+
+    @Test
+    void ndjsonHasOneObjectPerProductInIdOrder() throws IOException {
+        String body = export(ProductExportService.Format.NDJSON);
+
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            JsonNode row = objectMapper.readTree(line);
+            if (row.get("categoryId").asLong() == category.getId()) {
+                rows.add(row);
+            }
+        }
+
+        assertEquals(2, rows.size());
+        JsonNode first = rows.get(0);
+        assertEquals(plain.getId(), first.get("id").asLong());
+        assertEquals("Desk lamp", first.get("name").asText());
+        assertEquals(19.5, first.get("price").asDouble());
+        assertEquals(3, first.get("stock").asInt());
+        assertTrue(first.get("imageUrl").isNull());
+        assertEquals(category.getName(), first.get("categoryName").asText());
+
+        JsonNode second = rows.get(1);
+        assertEquals(awkward.getId(), second.get("id").asLong());
+        assertEquals("Lamp, \"large\"", second.get("name").asText());
+        assertEquals("Two lines\nof text", second.get("description").asText());
+    }
+
+    @Test
+    void csvQuotesFieldsThatNeedIt() throws IOException {
+        String body = export(ProductExportService.Format.CSV);
+
+        assertTrue(body.startsWith("id,name,description,price,stock,imageUrl,createdAt,categoryId,categoryName\n"));
+        assertTrue(body.contains("\n" + plain.getId() + ",Desk lamp,LED,19.5,3,,"));
+        assertTrue(body.contains("\n" + awkward.getId() + ",\"Lamp, \"\"large\"\"\",\"Two lines\nof text\",42.0,0,,"));
+        assertTrue(body.endsWith("\n"));
+    }
+
+    @Test
+    void clientThatGoesAwayFailsTheExport() {
+        // Accepts the first few bytes, then fails like a closed connection
+        OutputStream closing = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++written > 16) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () ->
+                exportService.export(ProductExportService.Format.NDJSON, closing));
+        assertEquals("Broken pipe", e.getMessage());
+    }
+
+    private String export(ProductExportService.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Product product(String name, String description, double price, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setStock(stock);
+        product.setCategory(category);
+        return productRepository.save(product);
+    }
+}
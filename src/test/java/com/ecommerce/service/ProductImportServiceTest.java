@@ -0,0 +1,144 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductImportResultDTO;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService importService;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category("Imported " + System.nanoTime()));
+    }
+
+    @Test
+    void rowsWithoutIdAreInsertedAndRowsWithIdReplaceTheProduct() throws IOException {
+        Product existing = product("Old name", 3);
+
+        ProductImportResultDTO result = importService.importProducts(ProductImportService.Format.NDJSON,
+                input(row(null, "Fresh " + category.getId(), 7) + "\n" + row(existing.getId(), "New name", 9)));
+
+        assertEquals(2, result.getRowsRead());
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpserted());
+        assertEquals(0, result.getFailed());
+        Product replaced = productRepository.findById(existing.getId()).orElseThrow();
+        assertEquals("New name", replaced.getName());
+        assertEquals(9, replaced.getStock());
+        assertEquals(9.5, replaced.getPrice());
+        assertEquals(1, productRepository.findAll().stream()
+                .filter(p -> p.getName().equals("Fresh " + category.getId()) && p.getStock() == 7)
+                .count());
+    }
+
+    @Test
+    void malformedIdsAreRejectedInsteadOfCoerced() throws IOException {
+        Product bystander = product("Bystander", 4);
+        long before = productRepository.count();
+        String rows = row("\"abc\"", "Quoted id", 1)
+                + row("true", "Boolean id", 1)
+                + row(bystander.getId() + ".9", "Fractional id", 1)
+                + row(-3, "Negative id", 1)
+                + row(0, "Zero id", 1);
+
+        ProductImportResultDTO result = importService.importProducts(ProductImportService.Format.NDJSON, input(rows));
+
+        assertEquals(5, result.getFailed());
+        assertEquals(0, result.getInserted() + result.getUpserted());
+        assertEquals(List.of("id: must be a whole number", "id: must be a whole number", "id: must be a whole number",
+                "id: must be positive", "id: must be positive"),
+                result.getErrors().stream().map(ProductImportResultDTO.RowError::getMessage).toList());
+        assertEquals(before, productRepository.count());
+        assertEquals("Bystander", productRepository.findById(bystander.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void csvRowsAreParsedWithQuotedFieldsAndBadRowsReported() throws IOException {
+        String name = "Csv " + category.getId();
+        String csv = "name,description,price,stock,categoryId\n"
+                + "\"" + name + "\",\"Red, large\nwith \"\"quotes\"\"\",4.5,6," + category.getId() + "\n"
+                + "Bad price,x,cheap,1," + category.getId() + "\n"
+                + "No category,x,1.0,1,-1\n"
+                + ",x,1.0,1," + category.getId() + "\n";
+
+        ProductImportResultDTO result = importService.importProducts(ProductImportService.Format.CSV, input(csv));
+
+        assertEquals(1, result.getInserted());
+        assertEquals(3, result.getFailed());
+        List<Long> lines = result.getErrors().stream().map(ProductImportResultDTO.RowError::getLine).toList();
+        // The quoted line break makes the first record span lines 2 and 3
+        assertEquals(List.of(4L, 5L, 6L), lines);
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Invalid number"));
+        assertEquals("categoryId: Category -1 not found", result.getErrors().get(1).getMessage());
+        assertEquals("name: Product name is required", result.getErrors().get(2).getMessage());
+        Product imported = productRepository.findAll().stream()
+                .filter(p -> p.getName().equals(name)).findFirst().orElseThrow();
+        assertEquals("Red, large\nwith \"quotes\"", imported.getDescription());
+        assertEquals(6, imported.getStock());
+    }
+
+    @Test
+    void importedStockOfHotProductGoesToItsShards() throws IOException {
+        Product product = product("Flash sale item", 100);
+        stockShardService.enable(product.getId(), 4);
+
+        ProductImportResultDTO result = importService.importProducts(ProductImportService.Format.NDJSON,
+                input(row(product.getId(), "Flash sale item", 50)));
+
+        assertEquals(1, result.getUpserted());
+        assertEquals(50, stockShardService.getStock(product.getId()));
+        // The fold keeps the imported level instead of writing the old shard total back
+        stockShardService.foldShards();
+        assertEquals(50, productRepository.findById(product.getId()).orElseThrow().getStock());
+    }
+
+    private Product product(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription("Import test product");
+        product.setPrice(12.0);
+        product.setStock(stock);
+        product.setCategory(category);
+        return productRepository.save(product);
+    }
+
+    private String row(Object id, String name, int stock) {
+        String idField = id == null ? "" : "\"id\": " + id + ", ";
+        return "{" + idField + "\"name\": \"" + name + "\", \"description\": \"Imported\", \"price\": 9.5, " +
+                "\"stock\": " + stock + ", \"categoryId\": " + category.getId() + "}\n";
+    }
+
+    private static InputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+    private final Category audio = category(1L, "Audio");
+    private final Category cables = category(2L, "Cables");
+
+    private Product headphones;
+
+    @BeforeEach
+    void setUp() {
+        headphones = product(1L, "Wireless Headphones", "Noise cancelling", 12, audio);
+        index.replaceAll(List.of(
+                headphones,
+                product(2L, "Speaker", "Wireless speaker with wireless charging", 4, audio),
+                product(3L, "Headphone cable", "Spare cable for wired headphones", 30, cables),
+                product(4L, "Wired Earbuds", "In-ear", 8, audio)));
+    }
+
+    @Test
+    void resultsAreRankedByWeightedTermFrequency() {
+        // A name hit weighs as much as two description hits; ties go to the lower id
+        assertEquals(List.of(1L, 2L), index.search("wireless"));
+        assertEquals(List.of(4L, 3L), index.search("wired"));
+        assertEquals(List.of(1L, 2L, 3L, 4L), index.search(""));
+    }
+
+    @Test
+    void everyTermMustMatchAndTheLastOneIsAPrefix() {
+        // Hits on every completion add up: "headphone" in the name and "headphones" in the description
+        assertEquals(List.of(3L, 1L), index.search("headph"));
+        assertEquals(List.of(1L), index.search("wireless head"));
+        assertEquals(List.of(3L), index.search("spare HEADPHONES"));
+        // Only the last term may be partial
+        assertEquals(List.of(), index.search("head wireless"));
+    }
+
+    @Test
+    void updatesAreVisibleToSearches() {
+        index.index(product(4L, "Wireless Earbuds", "In-ear", 8, audio));
+        assertEquals(List.of(1L, 2L, 4L), index.search("wireless"));
+        assertEquals(List.of(3L), index.search("wired"));
+
+        index.remove(1L);
+        assertEquals(List.of(2L, 4L), index.search("wireless"));
+        assertNull(index.get(1L));
+
+        index.removeCategory(cables.getId());
+        assertEquals(List.of(), index.search("cable"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void stockChangesSwapTheSnapshotAndLeaveTheEntityAlone() {
+        ProductSearchIndex.Document before = index.get(1L);
+
+        index.adjustStock(1L, -5);
+
+        assertEquals(7, index.get(1L).stock());
+        assertEquals(12, before.stock());
+        assertEquals(12, headphones.getStock());
+        assertEquals(7, index.getAll(index.search("headphones")).get(0).toSummary().getStock());
+    }
+
+    @Test
+    void changesToTheIndexedEntityDoNotLeakIn() {
+        headphones.setName("Renamed");
+        headphones.setStock(0);
+
+        ProductSearchIndex.Document document = index.get(1L);
+        assertEquals("Wireless Headphones", document.name());
+        assertEquals(12, document.stock());
+        assertEquals("Audio", document.toSummary().getCategoryName());
+        assertEquals(List.of(), index.search("renamed"));
+    }
+
+    private static Product product(Long id, String name, String description, int stock, Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(25.0);
+        product.setStock(stock);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name);
+        category.setId(id);
+        return category;
+    }
+}
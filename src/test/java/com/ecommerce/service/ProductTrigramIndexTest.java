@@ -0,0 +1,87 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductTrigramIndexTest {
+
+    private final ProductTrigramIndex index = new ProductTrigramIndex();
+    private final Category peripherals = category(1L);
+    private final Category bakery = category(2L);
+
+    @BeforeEach
+    void setUp() {
+        index.replaceAll(List.of(
+                product(1L, "Wireless Keyboard", "Mechanical keys", peripherals),
+                product(2L, "Wired Keyboard", "Office", peripherals),
+                product(3L, "Gaming Mouse", "Wireless optical", peripherals),
+                product(4L, "Keyboard cover", "Silicone", peripherals),
+                product(5L, "Mousse cake", "Chocolate", bakery)));
+    }
+
+    @Test
+    void termsMatchWithinTheirEditBound() {
+        // Two edits allowed for long words, one for short ones
+        assertEquals(List.of(1L, 2L, 4L), index.search("keybaord", 10));
+        assertEquals(List.of(3L), index.search("mose", 10));
+        // Too far from anything indexed
+        assertEquals(List.of(), index.search("kyebrd", 10));
+        // One- and two-letter words must match exactly
+        assertEquals(List.of(), index.search("ke", 10));
+    }
+
+    @Test
+    void everyTermMustMatchAndCloserMatchesRankFirst() {
+        assertEquals(List.of(1L), index.search("wireles keybord", 10));
+        assertEquals(List.of(1L, 3L), index.search("wireless", 10));
+        // The exact word outranks the one a letter away
+        assertEquals(List.of(3L, 5L), index.search("mouse", 10));
+        assertEquals(List.of(3L), index.search("mouse", 1));
+    }
+
+    @Test
+    void updatesReplaceTheIndexedText() {
+        index.index(product(2L, "Wired Trackball", "Office", peripherals));
+        assertEquals(List.of(1L, 4L), index.search("keyboard", 10));
+        assertEquals(List.of(2L), index.search("trackbal", 10));
+
+        index.remove(1L);
+        assertEquals(List.of(4L), index.search("keyboard", 10));
+
+        index.removeCategory(bakery.getId());
+        assertEquals(List.of(3L), index.search("mouse", 10));
+    }
+
+    @Test
+    void repeatedUpdatesKeepOneDocumentPerProduct() {
+        // Enough retired ordinals to compact the index several times
+        for (int i = 0; i < 200; i++) {
+            index.index(product(4L, "Keyboard cover " + i, "Silicone", peripherals));
+        }
+        assertEquals(List.of(1L, 2L, 4L), index.search("keyboard", 10));
+        assertEquals(List.of(4L), index.search("silicon", 10));
+    }
+
+    private static Product product(Long id, String name, String description, Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(10.0);
+        product.setStock(5);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category category(Long id) {
+        Category category = new Category();
+        category.setId(id);
+        return category;
+    }
+}
@@ -0,0 +1,107 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.ecommerce.service.StockReservationLedger.TICK_MILLIS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockReservationLedgerTest {
+
+    private final StockReservationLedger ledger = new StockReservationLedger();
+    private final long now = System.currentTimeMillis();
+
+    @Test
+    void reservationsAreHeldAgainstStock() {
+        assertNull(ledger.reserve(1, Map.of(10L, 3), Map.of(10L, 5), later(60)));
+        // Only 2 of the 5 units are left for other orders
+        assertEquals(10L, ledger.reserve(2, Map.of(10L, 3), Map.of(10L, 5), later(60)));
+        assertNull(ledger.reserve(3, Map.of(10L, 2), Map.of(10L, 5), later(60)));
+
+        assertEquals(5, ledger.reserved(10L));
+        assertTrue(ledger.isReserved(1));
+        assertFalse(ledger.isReserved(2));
+        assertEquals(2, ledger.activeReservations());
+    }
+
+    @Test
+    void shortOrderReservesNothing() {
+        assertEquals(20L, ledger.reserve(1, Map.of(10L, 1, 20L, 6), Map.of(10L, 5, 20L, 5), later(60)));
+
+        assertEquals(0, ledger.reserved(10L));
+        assertEquals(0, ledger.reserved(20L));
+        assertFalse(ledger.isReserved(1));
+    }
+
+    @Test
+    void releaseHandsUnitsBackOnce() {
+        ledger.reserve(1, Map.of(10L, 3), Map.of(10L, 5), later(60));
+
+        assertTrue(ledger.release(1));
+        assertFalse(ledger.release(1));
+        assertEquals(0, ledger.reserved(10L));
+        assertNull(ledger.reserve(2, Map.of(10L, 5), Map.of(10L, 5), later(60)));
+    }
+
+    @Test
+    void reservationsFallDueOnTheWheel() {
+        ledger.reserve(1, Map.of(10L, 1), Map.of(10L, 5), later(3));
+        ledger.reserve(2, Map.of(10L, 1), Map.of(10L, 5), later(30));
+
+        assertEquals(List.of(), ledger.dueOrders(later(2)));
+        assertEquals(List.of(1L), ledger.dueOrders(later(4)));
+        // Due orders stay held until released, and are handed out once
+        assertTrue(ledger.isReserved(1));
+        assertEquals(List.of(), ledger.dueOrders(later(5)));
+        assertEquals(List.of(2L), ledger.dueOrders(later(31)));
+    }
+
+    @Test
+    void failedExpiryIsRetriedOnTheNextTick() {
+        ledger.reserve(1, Map.of(10L, 1), Map.of(10L, 5), later(1));
+        assertEquals(List.of(1L), ledger.dueOrders(later(2)));
+
+        ledger.retryLater(1);
+        assertEquals(List.of(1L), ledger.dueOrders(later(3)));
+    }
+
+    @Test
+    void releasedReservationIsNotDue() {
+        ledger.reserve(1, Map.of(10L, 1), Map.of(10L, 5), later(1));
+        ledger.release(1);
+
+        assertEquals(List.of(), ledger.dueOrders(later(2)));
+    }
+
+    @Test
+    void deadlinesBeyondOneTurnWaitForTheirOwnTick() {
+        long deadline = later(5000);
+        ledger.reserve(1, Map.of(10L, 1), Map.of(10L, 5), deadline);
+
+        // The slot comes round before the deadline does
+        assertEquals(List.of(), ledger.dueOrders(later(4000)));
+        assertEquals(List.of(), ledger.dueOrders(later(4999)));
+        assertEquals(List.of(1L), ledger.dueOrders(later(5001)));
+    }
+
+    @Test
+    void restoredReservationsSkipTheStockCheck() {
+        // Loaded after a restart: the units were promised before, whatever the stock is now
+        ledger.restore(1, Map.of(10L, 8), later(60));
+
+        assertEquals(8, ledger.reserved(10L));
+        assertEquals(10L, ledger.reserve(2, Map.of(10L, 1), Map.of(10L, 8), later(60)));
+        // One that lapsed while the application was down is due on the first sweep
+        ledger.restore(3, Map.of(10L, 1), now - 60 * TICK_MILLIS);
+        assertEquals(List.of(3L), ledger.dueOrders(later(1)));
+    }
+
+    private long later(int ticks) {
+        return now + ticks * TICK_MILLIS;
+    }
+}
@@ -0,0 +1,239 @@
+package com.ecommerce.service;
+
+import com.ecommerce.exception.InsufficientStockException;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderStatus;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.StockReservation;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.StockReservationRepository;
+import com.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class StockReservationServiceTest {
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private StockReservationLedger ledger;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private CatalogFacetIndex facetIndex;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void reserveHoldsUnitsUntilReleased() {
+        Product product = product(5);
+        Order first = order();
+        Order second = order();
+
+        reserve(first, product, 3);
+        assertEquals(3, reservationService.getReserved(product.getId()));
+        assertEquals(1, rowsOf(first));
+
+        InsufficientStockException e = assertThrows(InsufficientStockException.class, () -> reserve(second, product, 3));
+        assertEquals("Not enough stock for product: " + product.getName(), e.getMessage());
+        assertEquals(0, rowsOf(second));
+
+        transactionTemplate.executeWithoutResult(status -> reservationService.release(first.getId()));
+        assertEquals(0, reservationService.getReserved(product.getId()));
+        assertEquals(0, rowsOf(first));
+        reserve(second, product, 5);
+        assertEquals(5, reservationService.getReserved(product.getId()));
+    }
+
+    @Test
+    void rolledBackReservationIsDropped() {
+        Product product = product(5);
+        Order order = order();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            reservationService.reserve(order.getId(), Map.of(product.getId(), 4), Map.of(product.getId(), product));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, reservationService.getReserved(product.getId()));
+        assertFalse(ledger.isReserved(order.getId()));
+    }
+
+    @Test
+    void expiredReservationCancelsTheOrder() throws Exception {
+        Product product = product(5);
+        Order order = order();
+        reserve(order, product, 2);
+
+        // Let the reservation lapse rather than wait out the TTL
+        ledger.release(order.getId());
+        ledger.restore(order.getId(), Map.of(product.getId(), 2), System.currentTimeMillis() - 60_000);
+        reservationService.expireReservations();
+        // The scheduled sweep may have picked it up first; the ledger lets go after the commit
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ledger.isReserved(order.getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertFalse(ledger.isReserved(order.getId()));
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        assertEquals(0, rowsOf(order));
+        assertEquals(0, reservationService.getReserved(product.getId()));
+    }
+
+    @Test
+    void expiryLeavesPaidOrdersAlone() {
+        Product product = product(5);
+        Order order = order();
+        reserve(order, product, 2);
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.updateStatusIfCurrent(order.getId(), OrderStatus.PENDING, OrderStatus.PAID));
+
+        ledger.release(order.getId());
+        ledger.restore(order.getId(), Map.of(product.getId(), 2), System.currentTimeMillis() - 60_000);
+        reservationService.expireReservations();
+
+        assertEquals(OrderStatus.PAID, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void reservationsAreRestoredOnStartup() {
+        Product product = product(10);
+        Order live = order();
+        Order lapsed = order();
+        reservationRepository.saveAll(List.of(
+                reservation(live, product, 2, LocalDateTime.now().plusMinutes(10)),
+                reservation(live, product, 1, LocalDateTime.now().plusMinutes(10)),
+                reservation(lapsed, product, 4, LocalDateTime.now().minusMinutes(10))));
+
+        // A fresh ledger, as after a restart
+        StockReservationLedger restarted = new StockReservationLedger();
+        new StockReservationService(restarted, reservationRepository, orderRepository, facetIndex,
+                stockShardService, jdbcTemplate, transactionTemplate, Duration.ofMinutes(15)).loadReservations();
+
+        assertEquals(7, restarted.reserved(product.getId()));
+        assertTrue(restarted.isReserved(live.getId()));
+        assertTrue(restarted.isReserved(lapsed.getId()));
+        List<Long> due = restarted.dueOrders(System.currentTimeMillis() + StockReservationLedger.TICK_MILLIS);
+        assertTrue(due.contains(lapsed.getId()));
+        assertFalse(due.contains(live.getId()));
+    }
+
+    @Test
+    void availabilityOfHotProductComesFromItsShards() {
+        Product product = product(10);
+        productSearchService.indexProduct(product);
+        reserve(order(), product, 1);
+
+        stockShardService.enable(product.getId(), 2);
+        // Moves units in the shards only, as a checkout on another instance would
+        stockShardService.resetStock(product.getId(), 4);
+
+        Map<String, Object> availability = reservationService.getAvailability(product.getId());
+        assertEquals(4, availability.get("stock"));
+        assertEquals(1, availability.get("reserved"));
+        assertEquals(3, availability.get("available"));
+    }
+
+    @Test
+    void batchedReservationsOfHotProductAreCheckedAgainstItsShards() {
+        Product product = product(10);
+        stockShardService.enable(product.getId(), 2);
+        // The shards sold down to 3 while the row still says 10
+        stockShardService.resetStock(product.getId(), 3);
+        Order tooLarge = order();
+        Order fits = order();
+
+        Map<Long, InsufficientStockException> failures = transactionTemplate.execute(status ->
+                reservationService.reserveAll(Map.of(
+                        tooLarge.getId(), Map.of(product.getId(), 4),
+                        fits.getId(), Map.of(product.getId(), 3)), Map.of(product.getId(), product)));
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(tooLarge.getId()));
+        assertEquals(0, rowsOf(tooLarge));
+        assertEquals(1, rowsOf(fits));
+    }
+
+    private void reserve(Order order, Product product, int quantity) {
+        transactionTemplate.executeWithoutResult(status -> reservationService.reserve(order.getId(),
+                Map.of(product.getId(), quantity), Map.of(product.getId(), product)));
+    }
+
+    private int rowsOf(Order order) {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_reservations WHERE order_id = ?", Integer.class, order.getId());
+        return rows == null ? 0 : rows;
+    }
+
+    private Product product(int stock) {
+        Category category = categoryRepository.save(new Category("Reserved " + System.nanoTime()));
+        Product product = new Product();
+        product.setName("Reservable " + System.nanoTime());
+        product.setDescription("Reservation test product");
+        product.setPrice(5.0);
+        product.setStock(stock);
+        product.setCategory(category);
+        return productRepository.save(product);
+    }
+
+    private Order order() {
+        User user = userRepository.save(new User("holder" + System.nanoTime() + "@example.com", "secret", "holder", "CUSTOMER"));
+        Order order = new Order();
+        order.setUser(user);
+        order.setTotalPrice(5.0);
+        return orderRepository.save(order);
+    }
+
+    private static StockReservation reservation(Order order, Product product, int quantity, LocalDateTime expiresAt) {
+        StockReservation reservation = new StockReservation();
+        reservation.setOrderId(order.getId());
+        reservation.setProductId(product.getId());
+        reservation.setQuantity(quantity);
+        reservation.setExpiresAt(expiresAt);
+        return reservation;
+    }
+}
@@ -0,0 +1,164 @@
+package com.ecommerce.service;
+
+import com.ecommerce.exception.InsufficientStockException;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class StockServiceTest {
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        Product hot = product(50);
+        Product other = product(1000);
+
+        int buyers = 400;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> checkouts = new ArrayList<>();
+
+        for (int i = 0; i < buyers; i++) {
+            checkouts.add(pool.submit(() -> {
+                start.await();
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            stockService.takeStock(Map.of(hot.getId(), 1, other.getId(), 2)));
+                    sold.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> checkout : checkouts) {
+            checkout.get();
+        }
+        pool.shutdown();
+
+        assertEquals(50, sold.get());
+        assertEquals(buyers - 50, rejected.get());
+        assertEquals(0, stockOf(hot));
+        // Rejected checkouts left the second product untouched
+        assertEquals(1000 - 2 * 50, stockOf(other));
+    }
+
+    @Test
+    void switchingHotSkuModeDuringCheckoutsNeverOversells() throws Exception {
+        int stock = 2000;
+        Product product = product(stock);
+
+        int buyers = 2400;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        List<Future<?>> checkouts = new ArrayList<>();
+
+        for (int i = 0; i < buyers; i++) {
+            checkouts.add(pool.submit(() -> {
+                start.await();
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            stockService.takeStock(Map.of(product.getId(), 1)));
+                    sold.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    // Sold out
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        // Move the stock between the product row and its shards while checkouts take it
+        int switches = 0;
+        while (!checkouts.stream().allMatch(Future::isDone)) {
+            stockShardService.enable(product.getId(), 4);
+            stockShardService.disable(product.getId());
+            switches++;
+        }
+        for (Future<?> checkout : checkouts) {
+            checkout.get();
+        }
+        pool.shutdown();
+
+        assertTrue(switches > 0);
+        assertEquals(stock, sold.get());
+        assertEquals(0, stockOf(product));
+    }
+
+    @Test
+    void shortProductRollsBackTheWholeOrder() {
+        Product plenty = product(10);
+        Product scarce = product(1);
+
+        InsufficientStockException e = assertThrows(InsufficientStockException.class, () ->
+                transactionTemplate.executeWithoutResult(status ->
+                        stockService.takeStock(Map.of(plenty.getId(), 6, scarce.getId(), 2))));
+
+        // Only the short product is named, not the one the UPDATE lowered from 10 to 4
+        assertEquals("Not enough stock for product: " + scarce.getName(), e.getMessage());
+
+        assertEquals(10, stockOf(plenty));
+        assertEquals(1, stockOf(scarce));
+    }
+
+    @Test
+    void returnedStockIsAddedBack() {
+        Product product = product(5);
+
+        transactionTemplate.executeWithoutResult(status -> stockService.takeStock(Map.of(product.getId(), 5)));
+        transactionTemplate.executeWithoutResult(status -> stockService.returnStock(Map.of(product.getId(), 2)));
+
+        assertEquals(2, stockOf(product));
+    }
+
+    private Product product(int stock) {
+        Category category = categoryRepository.save(new Category("Stock " + System.nanoTime()));
+        Product product = new Product();
+        product.setName("Stocked " + System.nanoTime());
+        product.setDescription("Stock test product");
+        product.setPrice(5.0);
+        product.setStock(stock);
+        product.setCategory(category);
+        return productRepository.save(product);
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+}
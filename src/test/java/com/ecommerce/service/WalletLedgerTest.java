@@ -0,0 +1,168 @@
+package com.ecommerce.service;
+
+import com.ecommerce.exception.InsufficientStockException;
+import com.ecommerce.model.Transaction;
+import com.ecommerce.model.User;
+import com.ecommerce.repository.TransactionRepository;
+import com.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Ledgers built with ledger mode on, over the tables of the shared test context
+@SpringBootTest
+class WalletLedgerTest {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void debitsAndCreditsMoveTheBalance() {
+        User user = walletOwner(100.0);
+        WalletLedger ledger = ledger();
+
+        record(ledger, user, Transaction.TransactionType.PAYMENT, 30.0);
+        record(ledger, user, Transaction.TransactionType.REFUND, 20.0);
+        assertEquals(90.0, ledger.balanceOf(user.getId()));
+
+        assertThrows(InsufficientStockException.class, () ->
+                record(ledger, user, Transaction.TransactionType.WITHDRAWAL, 500.0));
+        // A debit that rolls back gives its amount back
+        transactionTemplate.executeWithoutResult(status -> {
+            ledger.record(user, Transaction.TransactionType.WITHDRAWAL, 50.0, "Rolled back", null);
+            assertEquals(40.0, ledger.balanceOf(user.getId()));
+            status.setRollbackOnly();
+        });
+        assertEquals(90.0, ledger.balanceOf(user.getId()));
+    }
+
+    @Test
+    void compactionFoldsTheTailIntoTheSnapshot() {
+        User user = walletOwner(100.0);
+        WalletLedger ledger = ledger();
+        record(ledger, user, Transaction.TransactionType.PAYMENT, 30.0);
+        Transaction last = record(ledger, user, Transaction.TransactionType.DEPOSIT, 5.0);
+
+        ledger.compactSnapshots();
+
+        Map<String, Object> snapshot = snapshotOf(user);
+        assertEquals(75.0, ((Number) snapshot.get("balance")).doubleValue());
+        assertEquals(last.getId(), ((Number) snapshot.get("last_transaction_id")).longValue());
+        assertEquals(75.0, walletBalanceOf(user));
+    }
+
+    @Test
+    void compactionStopsBelowTransactionsStillOpen() throws Exception {
+        User user = walletOwner(100.0);
+        WalletLedger ledger = ledger();
+        long foldedBefore = ((Number) snapshotOf(user).get("last_transaction_id")).longValue();
+
+        // A deposit that is written but not yet committed
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<Transaction> open = pool.submit(() -> transactionTemplate.execute(status -> {
+            Transaction deposit = ledger.record(user, Transaction.TransactionType.DEPOSIT, 40.0, "Slow deposit", null);
+            written.countDown();
+            await(commit);
+            return deposit;
+        }));
+        assertTrue(written.await(30, TimeUnit.SECONDS));
+        // Takes a higher id than the open deposit, and commits first
+        record(ledger, user, Transaction.TransactionType.PAYMENT, 10.0);
+
+        ledger.compactSnapshots();
+        assertEquals(foldedBefore, ((Number) snapshotOf(user).get("last_transaction_id")).longValue());
+
+        commit.countDown();
+        Transaction deposit = open.get();
+        ledger.compactSnapshots();
+
+        Map<String, Object> snapshot = snapshotOf(user);
+        assertTrue(((Number) snapshot.get("last_transaction_id")).longValue() > deposit.getId());
+        assertEquals(130.0, ((Number) snapshot.get("balance")).doubleValue());
+        assertEquals(130.0, ledger.balanceOf(user.getId()));
+    }
+
+    @Test
+    void balancesAreRebuiltAfterRestart() {
+        User user = walletOwner(100.0);
+        WalletLedger ledger = ledger();
+        record(ledger, user, Transaction.TransactionType.PAYMENT, 30.0);
+        ledger.compactSnapshots();
+        // Left in the tail
+        record(ledger, user, Transaction.TransactionType.TRANSFER_IN, 12.5);
+
+        WalletLedger restarted = ledger();
+
+        assertEquals(82.5, restarted.balanceOf(user.getId()));
+        assertEquals(ledger.balanceOf(user.getId()), restarted.balanceOf(user.getId()));
+    }
+
+    private WalletLedger ledger() {
+        WalletLedger ledger = new WalletLedger(transactionRepository, jdbcTemplate, transactionTemplate, true);
+        ledger.loadBalances();
+        return ledger;
+    }
+
+    private User walletOwner(double initialBalance) {
+        User user = userRepository.save(new User("ledger" + System.nanoTime() + "@example.com", "secret", "ledger", "CUSTOMER"));
+        walletService.createWallet(user.getId(), initialBalance);
+        return user;
+    }
+
+    private Transaction record(WalletLedger ledger, User user, Transaction.TransactionType type, double amount) {
+        return transactionTemplate.execute(status -> ledger.record(user, type, amount, type.name(), null));
+    }
+
+    private Map<String, Object> snapshotOf(User user) {
+        return jdbcTemplate.queryForMap("SELECT balance, last_transaction_id FROM wallet_snapshots WHERE user_id = ?",
+                user.getId());
+    }
+
+    private double walletBalanceOf(User user) {
+        Double balance = jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE user_id = ?", Double.class,
+                user.getId());
+        return balance == null ? 0 : balance;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
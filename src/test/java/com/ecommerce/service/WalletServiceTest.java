@@ -0,0 +1,171 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.User;
+import com.ecommerce.model.Wallet;
+import com.ecommerce.repository.TransactionRepository;
+import com.ecommerce.repository.UserRepository;
+import com.ecommerce.repository.WalletRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Own database outside H2's MySQL mode: there, concurrent inserts into an identity column
+// (the transactions history) can be handed the same id
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:wallet_test;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+class WalletServiceTest {
+
+    private static final int WALLETS = 16;
+    private static final int OPERATIONS = 10_000;
+    private static final int TRANSFERS = 10_000;
+    private static final double INITIAL_BALANCE = 10_000.0;
+    private static final int MIN_TRANSFERS_PER_SECOND = 50;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void concurrentDepositsAndWithdrawalsLoseNoUpdates() throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < WALLETS; i++) {
+            User user = userRepository.save(new User("wallet" + i + "-" + System.nanoTime() + "@example.com",
+                    "secret", "wallet" + i, "CUSTOMER"));
+            walletService.createWallet(user.getId(), INITIAL_BALANCE);
+            userIds.add(user.getId());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicIntegerArray deposits = new AtomicIntegerArray(WALLETS);
+        AtomicIntegerArray withdrawals = new AtomicIntegerArray(WALLETS);
+        // Operations that ran out of attempts; they must have changed nothing
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<?>> operations = new ArrayList<>();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            int wallet = i % WALLETS;
+            boolean deposit = (i / WALLETS) % 2 == 0;
+            operations.add(pool.submit(() -> {
+                start.await();
+                try {
+                    if (deposit) {
+                        walletService.deposit(userIds.get(wallet), 2.0);
+                        deposits.incrementAndGet(wallet);
+                    } else {
+                        walletService.withdraw(userIds.get(wallet), 1.0);
+                        withdrawals.incrementAndGet(wallet);
+                    }
+                } catch (ResponseStatusException e) {
+                    assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> operation : operations) {
+            operation.get();
+        }
+        pool.shutdown();
+
+        int applied = 0;
+        for (int i = 0; i < WALLETS; i++) {
+            Long userId = userIds.get(i);
+            Wallet wallet = walletRepository.findByUserId(userId).orElseThrow();
+            int changes = deposits.get(i) + withdrawals.get(i);
+
+            assertEquals(INITIAL_BALANCE + 2.0 * deposits.get(i) - withdrawals.get(i), wallet.getBalance());
+            // One version per successful change, and one history row each plus the initial deposit
+            assertEquals(changes, wallet.getVersion().intValue());
+            assertEquals(changes + 1, transactionRepository.findByUserIdOrderByCreatedAtDesc(userId).size());
+            applied += changes;
+        }
+        assertEquals(OPERATIONS, applied + conflicts.get());
+    }
+
+    // Transfers around a ring of wallets, in both directions, so every pair of wallets is
+    // being locked from either side at once. Any deadlock or lock timeout fails the test.
+    @Test
+    void circularTransfersCompleteWithoutDeadlocks(TestReporter reporter) throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < WALLETS; i++) {
+            User user = userRepository.save(new User("ring" + i + "-" + System.nanoTime() + "@example.com",
+                    "secret", "ring" + i, "CUSTOMER"));
+            walletService.createWallet(user.getId(), INITIAL_BALANCE);
+            userIds.add(user.getId());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicIntegerArray sent = new AtomicIntegerArray(WALLETS);
+        AtomicIntegerArray received = new AtomicIntegerArray(WALLETS);
+        List<Future<?>> transfers = new ArrayList<>();
+
+        for (int i = 0; i < TRANSFERS; i++) {
+            int from = i % WALLETS;
+            // Alternate clockwise and counter-clockwise rounds of the ring
+            int to = (i / WALLETS) % 2 == 0 ? (from + 1) % WALLETS : (from + WALLETS - 1) % WALLETS;
+            transfers.add(pool.submit(() -> {
+                start.await();
+                walletService.transfer(userIds.get(from), userIds.get(to), 1.0);
+                sent.incrementAndGet(from);
+                received.incrementAndGet(to);
+                return null;
+            }));
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> transfer : transfers) {
+            // Rethrows a deadlock, lock timeout or exhausted retry as a test failure
+            transfer.get();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        pool.shutdown();
+        // Throughput goes to the test report (surefire XML) rather than the console
+        reporter.publishEntry(Map.of(
+                "transfers", String.valueOf(TRANSFERS),
+                "wallets", String.valueOf(WALLETS),
+                "seconds", String.format("%.2f", seconds),
+                "transfersPerSecond", String.format("%.0f", TRANSFERS / seconds)));
+        // A generous floor: lock convoys or retry storms drop far below it
+        assertTrue(TRANSFERS / seconds >= MIN_TRANSFERS_PER_SECOND,
+                String.format("%.0f transfers/s, below %d", TRANSFERS / seconds, MIN_TRANSFERS_PER_SECOND));
+
+        double total = 0;
+        for (int i = 0; i < WALLETS; i++) {
+            Long userId = userIds.get(i);
+            Wallet wallet = walletRepository.findByUserId(userId).orElseThrow();
+
+            assertEquals(INITIAL_BALANCE - sent.get(i) + received.get(i), wallet.getBalance());
+            // One TRANSFER_OUT or TRANSFER_IN row per side of each transfer, plus the initial deposit
+            assertEquals(sent.get(i) + received.get(i) + 1,
+                    transactionRepository.findByUserIdOrderByCreatedAtDesc(userId).size());
+            total += wallet.getBalance();
+        }
+        assertEquals(WALLETS * INITIAL_BALANCE, total);
+    }
+}